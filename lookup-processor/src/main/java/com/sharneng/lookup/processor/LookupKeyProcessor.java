@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.processor;
+
+import com.sharneng.lookup.LookupKey;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor that generates reflection-free key extractors for getters annotated with {@link LookupKey}.
+ * <p>
+ * For each type that has annotated getters, a {@code public final} class named after the type with the {@code Keys}
+ * suffix is generated in the same package. Nested types are named by joining the enclosing type names with underscore,
+ * e.g. {@code Outer_InnerKeys}. For each getter, two {@link com.sharneng.lookup.Converter} constants are generated:
+ * <ul>
+ * <li>{@code NAME} of type {@code Converter<Type, Object>} to be passed to {@code by(...)},</li>
+ * <li>{@code NAME_VALUE} of type {@code Converter<Type, ReturnType>} to be passed to {@code select(...)}.</li>
+ * </ul>
+ * Getters that cannot be called directly from the generated class are reported as compilation errors.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+@SupportedAnnotationTypes("com.sharneng.lookup.LookupKey")
+public class LookupKeyProcessor extends AbstractProcessor {
+    static final String CLASS_SUFFIX = "Keys";
+    static final String VALUE_SUFFIX = "_VALUE";
+    private static final String CONVERTER = "com.sharneng.lookup.Converter";
+    private static final String GET = "get";
+    private static final String IS = "is";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final Map<TypeElement, List<ExecutableElement>> getters = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(LookupKey.class)) {
+            if (element.getKind() != ElementKind.METHOD) continue;
+            final ExecutableElement method = (ExecutableElement) element;
+            final TypeElement type = (TypeElement) method.getEnclosingElement();
+            if (!isValidGetter(method) || !isValidType(type, method)) continue;
+            List<ExecutableElement> list = getters.get(type);
+            if (list == null) {
+                list = new ArrayList<ExecutableElement>();
+                getters.put(type, list);
+            }
+            list.add(method);
+        }
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : getters.entrySet()) {
+            generate(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    private boolean isValidGetter(ExecutableElement method) {
+        final Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.STATIC)) return error(method, "@LookupKey must be on an instance method");
+        if (modifiers.contains(Modifier.PRIVATE)) return error(method, "@LookupKey must not be on a private method");
+        if (!method.getParameters().isEmpty()) return error(method, "@LookupKey must be on a method without parameter");
+        if (!method.getTypeParameters().isEmpty()) return error(method, "@LookupKey must not be on a generic method");
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            return error(method, "@LookupKey must be on a method that returns a value");
+        }
+        return true;
+    }
+
+    private boolean isValidType(TypeElement type, ExecutableElement method) {
+        for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (!e.getKind().isClass() && !e.getKind().isInterface()) {
+                return error(method, "@LookupKey must be on a method of a top level or member type");
+            }
+            final TypeElement t = (TypeElement) e;
+            if (t.getNestingKind() == NestingKind.ANONYMOUS || t.getNestingKind() == NestingKind.LOCAL) {
+                return error(method, "@LookupKey must be on a method of a top level or member type");
+            }
+            if (t.getModifiers().contains(Modifier.PRIVATE)) {
+                return error(method, "@LookupKey must not be on a method of private type " + t.getQualifiedName());
+            }
+            if (!t.getTypeParameters().isEmpty()) {
+                return error(method, "@LookupKey must not be on a method of generic type " + t.getQualifiedName());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type, List<ExecutableElement> methods) {
+        final Map<String, ExecutableElement> names = new LinkedHashMap<String, ExecutableElement>();
+        final Map<String, ExecutableElement> seen = new HashMap<String, ExecutableElement>();
+        boolean valid = true;
+        for (ExecutableElement method : methods) {
+            final String name = constantName(method);
+            if (name == null) {
+                valid = false;
+                continue;
+            }
+            final ExecutableElement other = seen.containsKey(name) ? seen.get(name) : seen.get(name + VALUE_SUFFIX);
+            if (other != null) {
+                valid = error(method, "@LookupKey constant " + name + " clashes with the one generated for "
+                        + other.getSimpleName() + "()");
+            } else {
+                seen.put(name, method);
+                seen.put(name + VALUE_SUFFIX, method);
+                names.put(name, method);
+            }
+        }
+        if (!valid) return;
+
+        final String packageName = packageOf(type).getQualifiedName().toString();
+        final String className = generatedSimpleName(type);
+        final String qualifiedName = packageName.length() == 0 ? className : packageName + "." + className;
+        try {
+            final PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type)
+                    .openWriter());
+            try {
+                write(out, type, packageName, className, names);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            error(type, "Unable to generate " + qualifiedName + ": " + e);
+        }
+    }
+
+    private void write(PrintWriter out, TypeElement type, String packageName, String className,
+            Map<String, ExecutableElement> names) {
+        final String typeName = type.getQualifiedName().toString();
+        if (packageName.length() > 0) {
+            out.println("package " + packageName + ";");
+            out.println();
+        }
+        out.println("/**");
+        out.println(" * Key extractors of {@link " + typeName + "}.");
+        out.println(" * <p>");
+        out.println(" * Generated by {@code " + getClass().getName() + "}. Do not edit.");
+        out.println(" */");
+        out.println("public final class " + className + " {");
+        for (Map.Entry<String, ExecutableElement> entry : names.entrySet()) {
+            final String name = entry.getKey();
+            final ExecutableElement method = entry.getValue();
+            final String call = "source." + method.getSimpleName() + "()";
+            final String link = "{@link " + typeName + "#" + method.getSimpleName() + "()}";
+            out.println();
+            out.println("    /** Converter of " + link + " to be used as index key. */");
+            writeConverter(out, typeName, "Object", name, call);
+            out.println();
+            out.println("    /** Converter of " + link + " to be used as selected value. */");
+            writeConverter(out, typeName, boxed(method.getReturnType()), name + VALUE_SUFFIX, call);
+        }
+        out.println();
+        out.println("    private " + className + "() {");
+        out.println("    }");
+        out.println("}");
+    }
+
+    private static void writeConverter(PrintWriter out, String typeName, String resultName, String name, String call) {
+        final String converterType = CONVERTER + "<" + typeName + ", " + resultName + ">";
+        out.println("    public static final " + converterType + " " + name + " = new " + converterType + "() {");
+        out.println("        public " + resultName + " convert(" + typeName + " source) {");
+        out.println("            return source == null ? null : " + call + ";");
+        out.println("        }");
+        out.println("    };");
+    }
+
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private String constantName(ExecutableElement method) {
+        final String value = method.getAnnotation(LookupKey.class).value();
+        if (value.length() > 0) {
+            if (!SourceVersion.isName(value) || value.indexOf('.') >= 0) {
+                error(method, "@LookupKey value \"" + value + "\" is not a valid Java identifier");
+                return null;
+            }
+            return value;
+        }
+        return toConstantName(propertyName(method.getSimpleName().toString(),
+                method.getReturnType().getKind() == TypeKind.BOOLEAN));
+    }
+
+    static String propertyName(String methodName, boolean isBoolean) {
+        if (isAccessor(methodName, GET)) return methodName.substring(GET.length());
+        if (isBoolean && isAccessor(methodName, IS)) return methodName.substring(IS.length());
+        return methodName;
+    }
+
+    private static boolean isAccessor(String methodName, String prefix) {
+        return methodName.length() > prefix.length() && methodName.startsWith(prefix)
+                && !Character.isLowerCase(methodName.charAt(prefix.length()));
+    }
+
+    static String toConstantName(String property) {
+        final StringBuilder sb = new StringBuilder(property.length() * 2);
+        final int length = property.length();
+        for (int i = 0; i < length; i++) {
+            final char c = property.charAt(i);
+            if (i > 0 && Character.isUpperCase(c)) {
+                final char prev = property.charAt(i - 1);
+                final boolean nextIsLower = i + 1 < length && Character.isLowerCase(property.charAt(i + 1));
+                if (Character.isLowerCase(prev) || Character.isDigit(prev)
+                        || (Character.isUpperCase(prev) && nextIsLower)) {
+                    sb.append('_');
+                }
+            }
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    static String generatedSimpleName(TypeElement type) {
+        final StringBuilder sb = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            sb.insert(0, '_').insert(0, e.getSimpleName());
+        }
+        return sb.append(CLASS_SUFFIX).toString();
+    }
+
+    private static PackageElement packageOf(Element element) {
+        Element e = element;
+        while (e.getKind() != ElementKind.PACKAGE) e = e.getEnclosingElement();
+        return (PackageElement) e;
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+        return false;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.processor;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupKey;
+import com.sharneng.lookup.Lookups;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LookupKeyProcessorTest {
+    private static final String SAMPLE = "package sample;\n" //
+            + "import com.sharneng.lookup.LookupKey;\n" //
+            + "public class Zip {\n" //
+            + "    private final String code; private final int population; private final boolean active;\n" //
+            + "    public Zip(String code, int population, boolean active) {\n" //
+            + "        this.code = code; this.population = population; this.active = active;\n" //
+            + "    }\n" //
+            + "    @LookupKey public String getZipCode() { return code; }\n" //
+            + "    @LookupKey int getPopulation() { return population; }\n" //
+            + "    @LookupKey public boolean isActive() { return active; }\n" //
+            + "    @LookupKey(\"CITY\") public String city() { return code.substring(0, 2); }\n" //
+            + "    public static class Area {\n" //
+            + "        @LookupKey public String getURLPath() { return \"/\"; }\n" //
+            + "    }\n" //
+            + "}\n";
+
+    private File dir;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("lookup-processor", "");
+        dir.delete();
+        dir.mkdirs();
+        diagnostics = new DiagnosticCollector<JavaFileObject>();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void generatesConverters_forAnnotatedGetters() throws Exception {
+        assertThat(diagnostics.getDiagnostics().toString(), compile("sample/Zip.java", SAMPLE), is(true));
+        ClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+        Class<?> zipClass = loader.loadClass("sample.Zip");
+        Class<?> keysClass = loader.loadClass("sample.ZipKeys");
+        List<Object> zips = new ArrayList<Object>();
+        Object zip = zipClass.getConstructor(String.class, int.class, boolean.class).newInstance("NY10001", 21000,
+                true);
+        zips.add(zip);
+
+        assertThat(converter(keysClass, "ZIP_CODE").convert(zip), is((Object) "NY10001"));
+        assertThat(converter(keysClass, "POPULATION_VALUE").convert(zip), is((Object) 21000));
+        assertThat(converter(keysClass, "ACTIVE").convert(zip), is((Object) true));
+        assertThat(converter(keysClass, "CITY").convert(zip), is((Object) "NY"));
+        assertThat(converter(keysClass, "CITY").convert(null), is(nullValue()));
+        assertThat(keysClass.getField("POPULATION_VALUE").getGenericType().toString(),
+                containsString("<sample.Zip, java.lang.Integer>"));
+
+        Lookup<Object> lookup = Lookups.from(zips).by(converter(keysClass, "ZIP_CODE")).index();
+        assertThat(lookup.get("NY10001"), sameInstance(zip));
+
+        Class<?> areaKeysClass = loader.loadClass("sample.Zip_AreaKeys");
+        assertThat(areaKeysClass.getField("URL_PATH"), is(notNullValue()));
+    }
+
+    @Test
+    public void reportsError_whenGetterIsNotCallable() throws Exception {
+        String source = "package sample;\n" //
+                + "import com.sharneng.lookup.LookupKey;\n" //
+                + "public class Bad {\n" //
+                + "    @LookupKey private String getA() { return null; }\n" //
+                + "    @LookupKey public static String getB() { return null; }\n" //
+                + "    @LookupKey public String getC(int i) { return null; }\n" //
+                + "    @LookupKey public void getD() { }\n" //
+                + "    @LookupKey(\"1E\") public String getE() { return null; }\n" //
+                + "}\n";
+
+        assertThat(compile("sample/Bad.java", source), is(false));
+
+        assertThat(errors(), equalTo(Arrays.asList("@LookupKey must not be on a private method",
+                "@LookupKey must be on an instance method", "@LookupKey must be on a method without parameter",
+                "@LookupKey must be on a method that returns a value",
+                "@LookupKey value \"1E\" is not a valid Java identifier")));
+    }
+
+    @Test
+    public void reportsError_whenConstantNamesClash() throws Exception {
+        String source = "package sample;\n" //
+                + "import com.sharneng.lookup.LookupKey;\n" //
+                + "public class Clash {\n" //
+                + "    @LookupKey public String getName() { return null; }\n" //
+                + "    @LookupKey(\"NAME_VALUE\") public String other() { return null; }\n" //
+                + "}\n";
+
+        assertThat(compile("sample/Clash.java", source), is(false));
+
+        assertThat(errors(), equalTo(Arrays
+                .asList("@LookupKey constant NAME_VALUE clashes with the one generated for getName()")));
+    }
+
+    @Test
+    public void reportsError_whenTypeIsGeneric() throws Exception {
+        String source = "package sample;\n" //
+                + "import com.sharneng.lookup.LookupKey;\n" //
+                + "public class Holder<T> {\n" //
+                + "    @LookupKey public T getValue() { return null; }\n" //
+                + "}\n";
+
+        assertThat(compile("sample/Holder.java", source), is(false));
+
+        assertThat(errors(), equalTo(Arrays.asList("@LookupKey must not be on a method of generic type sample.Holder")));
+    }
+
+    @Test
+    public void toConstantName_convertsCamelCase() {
+        assertThat(LookupKeyProcessor.toConstantName("countyName"), is("COUNTY_NAME"));
+        assertThat(LookupKeyProcessor.toConstantName("URLPath"), is("URL_PATH"));
+        assertThat(LookupKeyProcessor.toConstantName("line2Code"), is("LINE2_CODE"));
+        assertThat(LookupKeyProcessor.toConstantName("x"), is("X"));
+    }
+
+    @Test
+    public void propertyName_stripsAccessorPrefix() {
+        assertThat(LookupKeyProcessor.propertyName("getName", false), is("Name"));
+        assertThat(LookupKeyProcessor.propertyName("isActive", true), is("Active"));
+        assertThat(LookupKeyProcessor.propertyName("isActive", false), is("isActive"));
+        assertThat(LookupKeyProcessor.propertyName("getter", false), is("getter"));
+        assertThat(LookupKeyProcessor.propertyName("get", false), is("get"));
+    }
+
+    private boolean compile(String path, String source) throws Exception {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            String classPath = location(LookupKey.class) + File.pathSeparator + location(Converter.class);
+            List<String> options = Arrays.asList("-classpath", classPath, "-d", dir.getPath(), "-s", dir.getPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(file));
+            task.setProcessors(Arrays.asList(new LookupKeyProcessor()));
+            return task.call();
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private List<String> errors() {
+        List<String> errors = new ArrayList<String>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR) errors.add(d.getMessage(null));
+        }
+        return errors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Converter<Object, Object> converter(Class<?> keysClass, String name) throws Exception {
+        return (Converter<Object, Object>) keysClass.getField(name).get(null);
+    }
+
+    private static String location(Class<?> type) throws Exception {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
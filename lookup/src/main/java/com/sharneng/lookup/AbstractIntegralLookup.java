@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Base class of the key levels that implement {@link IntegralLookup}. Subclasses implement {@link #lookup(long)}.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+abstract class AbstractIntegralLookup<T> extends AbstractLookup<T> implements IntegralLookup<T> {
+    private final Class<?> keyClass;
+
+    AbstractIntegralLookup(final Class<?> keyClass, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.keyClass = keyClass;
+    }
+
+    /**
+     * Return the reference object of the key value or null if not found.
+     */
+    @CheckForNull
+    abstract T lookup(long key);
+
+    @Override
+    protected final T lookup(final Object key) {
+        return key.getClass() == keyClass ? lookup(((Number) key).longValue()) : null;
+    }
+
+    /**
+     * Return the key value boxed to the class of the keys.
+     */
+    final Object keyOf(final long key) {
+        if (keyClass == Integer.class) return Integer.valueOf((int) key);
+        if (keyClass == Long.class) return Long.valueOf(key);
+        if (keyClass == Short.class) return Short.valueOf((short) key);
+        return Byte.valueOf((byte) key);
+    }
+
+    @Override
+    public T find(final long key) {
+        return find(key, getDefaultValue());
+    }
+
+    @Override
+    public T find(final long key, @CheckForNull final T defaultValue) {
+        final T result = lookup(key);
+        return result == null ? defaultValue : result;
+    }
+
+    @Override
+    public int findAll(final long[] keys, final T[] results) {
+        if (keys == null) throw new IllegalArgumentException(Utils.notNull("keys"));
+        if (results == null) throw new IllegalArgumentException(Utils.notNull("results"));
+        final T defaultValue = getDefaultValue();
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            final T result = lookup(keys[i]);
+            if (result != null) found++;
+            results[i] = result == null ? defaultValue : result;
+        }
+        return found;
+    }
+
+    @Override
+    public int findAll(final int[] keys, final T[] results) {
+        if (keys == null) throw new IllegalArgumentException(Utils.notNull("keys"));
+        if (results == null) throw new IllegalArgumentException(Utils.notNull("results"));
+        final T defaultValue = getDefaultValue();
+        int found = 0;
+        for (int i = 0; i < keys.length; i++) {
+            final T result = lookup(keys[i]);
+            if (result != null) found++;
+            results[i] = result == null ? defaultValue : result;
+        }
+        return found;
+    }
+
+    /**
+     * Return true if the keys are integral numbers of the same class.
+     */
+    static boolean isIntegral(final Object[] keys) {
+        if (keys.length == 0 || !Utils.isIntegral(keys[0])) return false;
+        final Class<?> keyClass = keys[0].getClass();
+        for (Object key : keys) {
+            if (key.getClass() != keyClass) return false;
+        }
+        return true;
+    }
+}
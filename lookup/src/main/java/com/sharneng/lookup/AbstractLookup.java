@@ -30,6 +30,9 @@ public abstract class AbstractLookup<T> implements Lookup<T> {
     @CheckForNull
     private final T defaultValue;
 
+    @CheckForNull
+    private final LookupException notFoundException;
+
     /**
      * Construct a new instance with the specified default value.
      * 
@@ -37,7 +40,46 @@ public abstract class AbstractLookup<T> implements Lookup<T> {
      *            the default value to be used by {@link #get(Object)} method.
      */
     protected AbstractLookup(@CheckForNull T defaultValue) {
+        this(defaultValue, null);
+    }
+
+    /**
+     * Construct a new instance with the specified default value and the preallocated exception to throw when not
+     * found.
+     * 
+     * @param defaultValue
+     *            the default value to be used by {@link #get(Object)} method.
+     * @param notFoundException
+     *            the exception to throw when not found, or {@code null} to create a new one each time
+     */
+    protected AbstractLookup(@CheckForNull T defaultValue, @CheckForNull LookupException notFoundException) {
         this.defaultValue = defaultValue;
+        this.notFoundException = notFoundException;
+    }
+
+    /**
+     * Return the default value passed to the constructor.
+     * 
+     * @return the default value to be used by {@link #get(Object)} method
+     */
+    @CheckForNull
+    protected final T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Return the preallocated exception to throw when not found, or {@code null} if a new one is created each time.
+     */
+    @CheckForNull
+    LookupException getNotFoundException() {
+        return notFoundException;
+    }
+
+    /**
+     * Return true if the preallocated stackless exception is thrown when not found.
+     */
+    boolean isStackless() {
+        return notFoundException == StacklessLookupException.NOT_FOUND;
     }
 
     /**
@@ -97,7 +139,7 @@ public abstract class AbstractLookup<T> implements Lookup<T> {
     public T get(@CheckForNull final Object key) {
         final T result = find(key, defaultValue);
         if (result != null) return result;
-        throw Utils.notFoundException(key);
+        throw Utils.notFoundException(notFoundException, key);
     }
 
     /**
@@ -125,6 +167,6 @@ public abstract class AbstractLookup<T> implements Lookup<T> {
         if (key == null) throw new IllegalArgumentException(Utils.notNull("key"));
         final T value = lookup(key);
         if (value != null) return value;
-        throw Utils.notFoundException(key);
+        throw Utils.notFoundException(notFoundException, key);
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.CheckForNull;
+
+import ognl.Ognl;
+import ognl.ObjectPropertyAccessor;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import ognl.OgnlRuntime;
+
+/**
+ * The getter methods resolved for an OGNL expression that is a plain property path, e.g. {@code address.zipCode}.
+ * <p>
+ * The getters are resolved by OGNL itself for the exact classes along the path, so invoking them directly gives the
+ * same result as evaluating the expression. When an object on the path is {@code null} or of another class,
+ * {@link #get(Object)} returns {@link #UNRESOLVED} and the expression must be evaluated by OGNL.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class AccessorChain {
+    /**
+     * Returned by {@link #get(Object)} when the chain doesn't apply to the given source object.
+     */
+    static final Object UNRESOLVED = new Object();
+
+    private static final Pattern PROPERTY_PATH = Pattern
+            .compile("\\s*[A-Za-z_$][\\w$]*(\\s*\\.\\s*[A-Za-z_$][\\w$]*)*\\s*");
+    private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList("true", "false", "null", "this",
+            "root", "context", "new", "and", "or", "not", "in", "instanceof", "band", "bor", "xor", "eq", "neq", "lt",
+            "lte", "gt", "gte", "shl", "shr", "ushr"));
+
+    private final String[] names;
+    private final Class<?>[] classes;
+    private final Method[] getters;
+
+    private AccessorChain(final String[] names, final Class<?>[] classes, final Method[] getters) {
+        this.names = names;
+        this.classes = classes;
+        this.getters = getters;
+    }
+
+    /**
+     * Resolve the getters of the property path for the class of given source object.
+     * 
+     * @return the resolved chain or {@code null} if the expression is not a property path of public getters
+     */
+    @CheckForNull
+    static AccessorChain resolve(final String expression, final Object source) {
+        if (!PROPERTY_PATH.matcher(expression).matches()) return null;
+        final String[] names = expression.split("\\.");
+        final Class<?>[] classes = new Class<?>[names.length];
+        final Method[] getters = new Method[names.length];
+        final OgnlContext context = (OgnlContext) Ognl.createDefaultContext(source);
+        Class<?> c = source.getClass();
+        try {
+            for (int i = 0; i < names.length; i++) {
+                final String name = names[i] = names[i].trim();
+                if (KEYWORDS.contains(name) || c.isInterface() || c.isArray()) return null;
+                if (OgnlRuntime.getPropertyAccessor(c).getClass() != ObjectPropertyAccessor.class) return null;
+                final Method getter = OgnlRuntime.getGetMethod(context, c, name);
+                if (getter == null || !Modifier.isPublic(getter.getModifiers())
+                        || !Modifier.isPublic(getter.getDeclaringClass().getModifiers())) return null;
+                classes[i] = c;
+                getters[i] = getter;
+                c = getter.getReturnType();
+            }
+        } catch (Exception e) {
+            return null; // let OGNL report the error when evaluating
+        }
+        return new AccessorChain(names, classes, getters);
+    }
+
+    /**
+     * Invoke the getters along the path.
+     * 
+     * @return the value of the property path, or {@link #UNRESOLVED} if the chain doesn't apply to the source
+     */
+    @CheckForNull
+    Object get(@CheckForNull final Object source) {
+        Object value = source;
+        int i = 0;
+        try {
+            for (; i < getters.length; i++) {
+                if (value == null || value.getClass() != classes[i]) return UNRESOLVED;
+                value = getters[i].invoke(value);
+            }
+        } catch (InvocationTargetException e) {
+            // wrapped as OGNL does when it invokes the getter, see OgnlConverter
+            throw new LookupBuildException(new OgnlException(names[i], e.getCause()));
+        } catch (IllegalAccessException e) {
+            return UNRESOLVED;
+        }
+        return value;
+    }
+}
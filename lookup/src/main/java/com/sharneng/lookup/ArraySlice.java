@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list view of a slice of an array. The array is shared by many slices, so that many lists can be kept in
+ * one contiguous array without any per list copy of the elements.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the elements
+ */
+final class ArraySlice<T> extends AbstractList<T> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] array;
+    private final int offset;
+    private final int length;
+
+    ArraySlice(final Object[] array, final int offset, final int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(final int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                + length);
+        return (T) array[offset + index];
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Replace this with a copy of the elements, as the backing array is shared by other slices.
+     */
+    private Object writeReplace() {
+        return new ArrayList<T>(this);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A lookup of non-overlapping intervals with {@link Comparable} bounds. A point is resolved by a binary search on the
+ * lower bounds.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class ComparableRangeLookup<T> extends AbstractLookup<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] lows;
+    private final Object[] highs;
+    private final Object[] values;
+
+    ComparableRangeLookup(final Object[] lows, final Object[] highs, final Object[] values,
+            @CheckForNull T defaultValue, @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.lows = lows;
+        this.highs = highs;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        try {
+            final int index = Utils.floorIndex(lows, key);
+            return index >= 0 && Utils.compare(highs[index], key) >= 0 ? (T) values[index] : null;
+        } catch (ClassCastException e) {
+            return null; // key is not comparable to the bounds so it cannot be in any range
+        }
+    }
+
+    Object[] getLows() {
+        return lows;
+    }
+
+    Object[] getHighs() {
+        return highs;
+    }
+
+    Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup of integral keys of same class backed by an array indexed by the key minus the smallest key.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class DenseLookup<T> extends AbstractIntegralLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long min;
+    private final Object[] values;
+
+    /**
+     * Create a dense lookup. The keys must be integral of the same class, see {@link #rangeOf(Object[])}.
+     */
+    DenseLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(keys[0].getClass(), defaultValue, notFoundException);
+        long min = Long.MAX_VALUE;
+        for (Object key : keys) {
+            min = Math.min(min, ((Number) key).longValue());
+        }
+        this.min = min;
+        this.values = new Object[(int) rangeOf(keys)];
+        for (int i = 0; i < keys.length; i++) {
+            this.values[(int) (((Number) keys[i]).longValue() - min)] = values[i];
+        }
+    }
+
+    /**
+     * Create a dense lookup from the array of values indexed by the key minus the smallest key.
+     */
+    DenseLookup(final Class<?> keyClass, final long min, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(keyClass, defaultValue, notFoundException);
+        this.min = min;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    T lookup(final long key) {
+        final long index = key - min;
+        return index >= 0 && index < values.length ? (T) values[(int) index] : null;
+    }
+
+    @Override
+    public int slotCount() {
+        return values.length;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keyOf(min + slot);
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Return the size of the array needed to hold the keys, or -1 if the keys are not integral of the same class or
+     * their range is too wide for an array.
+     */
+    static long rangeOf(final Object[] keys) {
+        if (!isIntegral(keys)) return -1;
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (Object key : keys) {
+            final long value = ((Number) key).longValue();
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final long range = max - min + 1;
+        return range > 0 && range <= Integer.MAX_VALUE ? range : -1;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -15,14 +15,40 @@
  */
 package com.sharneng.lookup;
 
+import java.io.Serializable;
+
 import javax.annotation.CheckForNull;
 
-class EmptyLookup<T> implements Lookup<T> {
+class EmptyLookup<T> implements Lookup<T>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     @CheckForNull
     private final T defaultValue;
+    @CheckForNull
+    private final LookupException notFoundException;
 
     EmptyLookup(@CheckForNull T defaultValue) {
+        this(defaultValue, null);
+    }
+
+    EmptyLookup(@CheckForNull T defaultValue, @CheckForNull LookupException notFoundException) {
         this.defaultValue = defaultValue;
+        this.notFoundException = notFoundException;
+    }
+
+    /**
+     * Return the preallocated exception to throw when not found, or {@code null} if a new one is created each time.
+     */
+    @CheckForNull
+    LookupException getNotFoundException() {
+        return notFoundException;
+    }
+
+    /**
+     * Return true if the preallocated stackless exception is thrown when not found.
+     */
+    boolean isStackless() {
+        return notFoundException == StacklessLookupException.NOT_FOUND;
     }
 
     @Override
@@ -43,7 +69,7 @@ class EmptyLookup<T> implements Lookup<T> {
     @Override
     public T get(Object key) {
         if (defaultValue != null) return defaultValue;
-        throw Utils.notFoundException(key);
+        throw Utils.notFoundException(notFoundException, key);
     }
 
     @Override
@@ -54,6 +80,14 @@ class EmptyLookup<T> implements Lookup<T> {
 
     @Override
     public T hunt(Object key) {
-        throw (key == null) ? new IllegalArgumentException(Utils.notNull("key")) : Utils.notFoundException(key);
+        throw (key == null) ? new IllegalArgumentException(Utils.notNull("key")) : Utils.notFoundException(
+                notFoundException, key);
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup of keys of one enum type backed by an array indexed by the ordinal of the key.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class EnumLookup<T> extends AbstractLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> enumClass;
+    private final Object[] constants;
+    private final Object[] values;
+
+    /**
+     * Create an enum lookup. The keys must be of the same enum type, see {@link #enumClassOf(Object[])}.
+     */
+    EnumLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.enumClass = enumClassOf(keys);
+        this.constants = enumClass.getEnumConstants();
+        this.values = new Object[constants.length];
+        for (int i = 0; i < keys.length; i++) {
+            this.values[((Enum<?>) keys[i]).ordinal()] = values[i];
+        }
+    }
+
+    /**
+     * Create an enum lookup from the array of values indexed by the ordinal of the key.
+     */
+    EnumLookup(final Class<?> enumClass, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.enumClass = enumClass;
+        this.constants = enumClass.getEnumConstants();
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        if (key.getClass() != enumClass && !(key instanceof Enum && ((Enum<?>) key).getDeclaringClass() == enumClass)) {
+            return null;
+        }
+        return (T) values[((Enum<?>) key).ordinal()];
+    }
+
+    @Override
+    public int slotCount() {
+        return values.length;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return constants[slot];
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Return the enum type of the keys, or {@code null} if the keys are not all of the same enum type.
+     */
+    @CheckForNull
+    static Class<?> enumClassOf(final Object[] keys) {
+        if (keys.length == 0 || !(keys[0] instanceof Enum)) return null;
+        final Class<?> enumClass = ((Enum<?>) keys[0]).getDeclaringClass();
+        for (Object key : keys) {
+            if (!(key instanceof Enum) || ((Enum<?>) key).getDeclaringClass() != enumClass) return null;
+        }
+        return enumClass;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
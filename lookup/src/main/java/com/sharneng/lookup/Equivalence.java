@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+/**
+ * Strategy to hash and compare the keys of a lookup, in place of the {@link Object#hashCode() hashCode} and
+ * {@link Object#equals(Object) equals} methods of the keys. The same strategy is used to build the lookup and to find
+ * in it.
+ * <p>
+ * Implementations must be thread safe and consistent: equivalent keys must have the same hash code. Both methods must
+ * accept keys of any class, as the key passed to find is not necessarily of the class of the keys of the lookup.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @see Equivalences
+ */
+public interface Equivalence {
+
+    /**
+     * Compute the hash code of the key.
+     * 
+     * @param key
+     *            the key, never {@code null}
+     * @return the hash code of the key
+     */
+    int hash(Object key);
+
+    /**
+     * Check if two keys are equivalent.
+     * 
+     * @param a
+     *            a key, never {@code null}
+     * @param b
+     *            another key, never {@code null}
+     * @return true if and only if the two keys are equivalent
+     */
+    boolean equivalent(Object a, Object b);
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+/**
+ * Class to hold factory methods to return the commonly used implementations of {@link Equivalence}.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class Equivalences {
+    private static final Equivalence NATURAL = new Equivalence() {
+        public int hash(Object key) {
+            return key.hashCode();
+        }
+
+        public boolean equivalent(Object a, Object b) {
+            return a.equals(b);
+        }
+
+        @Override
+        public String toString() {
+            return "natural";
+        }
+    };
+
+    private static final Equivalence IDENTITY = new Equivalence() {
+        public int hash(Object key) {
+            return System.identityHashCode(key);
+        }
+
+        public boolean equivalent(Object a, Object b) {
+            return a == b;
+        }
+
+        @Override
+        public String toString() {
+            return "identity";
+        }
+    };
+
+    private static final Equivalence CHAR_SEQUENCES = new Equivalence() {
+        public int hash(Object key) {
+            return key instanceof CharSequence ? murmur3((CharSequence) key) : key.hashCode();
+        }
+
+        public boolean equivalent(Object a, Object b) {
+            if (a instanceof CharSequence && b instanceof CharSequence) {
+                return contentEquals((CharSequence) a, (CharSequence) b);
+            }
+            return a.equals(b);
+        }
+
+        @Override
+        public String toString() {
+            return "charSequences";
+        }
+    };
+
+    private Equivalences() {
+    }
+
+    /**
+     * Return the equivalence of the {@link Object#hashCode() hashCode} and {@link Object#equals(Object) equals}
+     * methods of the keys. This is the default.
+     * 
+     * @return the natural equivalence
+     */
+    public static Equivalence natural() {
+        return NATURAL;
+    }
+
+    /**
+     * Return the equivalence of the identity of the keys, only the same instance of the key is found.
+     * 
+     * @return the identity equivalence
+     */
+    public static Equivalence identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Return the equivalence of the content of {@link CharSequence} keys. Keys of any {@link CharSequence} class with
+     * the same characters are equivalent, e.g. a {@link StringBuilder} finds a {@link String} key. Character sequences
+     * are hashed by MurmurHash3, which distributes well even when {@link String#hashCode()} collides. Other keys use
+     * the natural equivalence.
+     * 
+     * @return the equivalence of the content of character sequences
+     */
+    public static Equivalence charSequences() {
+        return CHAR_SEQUENCES;
+    }
+
+    /**
+     * 32 bit MurmurHash3 of the characters, two characters per block.
+     */
+    static int murmur3(final CharSequence s) {
+        final int c1 = 0xcc9e2d51, c2 = 0x1b873593, r1 = 15, r2 = 13, m = 5, n = 0xe6546b64, bits = 16;
+        final int length = s.length();
+        int h = 0;
+        int i = 1;
+        for (; i < length; i += 2) {
+            int k = s.charAt(i - 1) | (s.charAt(i) << bits);
+            k = Integer.rotateLeft(k * c1, r1) * c2;
+            h = Integer.rotateLeft(h ^ k, r2) * m + n;
+        }
+        if (i == length) {
+            final int k = Integer.rotateLeft(s.charAt(i - 1) * c1, r1) * c2;
+            h ^= k;
+        }
+        return fmix(h ^ (length * 2));
+    }
+
+    private static int fmix(final int hash) {
+        final int f1 = 0x85ebca6b, f2 = 0xc2b2ae35, s1 = 16, s2 = 13;
+        int h = hash;
+        h = (h ^ (h >>> s1)) * f1;
+        h = (h ^ (h >>> s2)) * f2;
+        return h ^ (h >>> s1);
+    }
+
+    private static boolean contentEquals(final CharSequence a, final CharSequence b) {
+        final int length = a.length();
+        if (length != b.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+/**
+ * Wraps a key with its hash code computed once by an {@link Equivalence}, so that the hash map used to build a lookup
+ * groups the keys by the equivalence without calling the hash function of the key again.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class EquivalentKey {
+    final Object key;
+    final int hash;
+    private final Equivalence equivalence;
+
+    EquivalentKey(final Object key, final Equivalence equivalence) {
+        this.key = key;
+        this.hash = equivalence.hash(key);
+        this.equivalence = equivalence;
+    }
+
+    static Object unwrap(final Object key) {
+        return key instanceof EquivalentKey ? ((EquivalentKey) key).key : key;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof EquivalentKey)) return false;
+        final EquivalentKey other = (EquivalentKey) obj;
+        return hash == other.hash && equivalence.equivalent(key, other.key);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(key);
+    }
+}
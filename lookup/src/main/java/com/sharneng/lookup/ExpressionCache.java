@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+import ognl.Ognl;
+import ognl.OgnlException;
+
+/**
+ * A global, bounded and thread safe cache of the OGNL expressions used to build lookups.
+ * <p>
+ * The cache keeps the parsed expression trees, as well as the getter methods resolved for each class of source data
+ * when the expression is a plain property path, so that repeated builds with the same expressions skip both parsing
+ * and the introspection of the source class. The least recently used expressions are evicted when the cache is full.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class ExpressionCache {
+    private static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private static final class Key {
+        private final String expression;
+        @CheckForNull
+        private final Class<?> sourceClass;
+        private final Class<?> resultClass;
+
+        private Key(final String expression, @CheckForNull final Class<?> sourceClass, final Class<?> resultClass) {
+            this.expression = expression;
+            this.sourceClass = sourceClass;
+            this.resultClass = resultClass;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = expression.hashCode();
+            result = prime * result + (sourceClass == null ? 0 : sourceClass.hashCode());
+            return prime * result + resultClass.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Key)) return false;
+            final Key other = (Key) obj;
+            return expression.equals(other.expression) && sourceClass == other.sourceClass
+                    && resultClass == other.resultClass;
+        }
+    }
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private static final Map<Key, Object> CACHE = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+            return size() > maximumSize;
+        }
+    };
+
+    private ExpressionCache() {
+    }
+
+    /**
+     * Return the number of times a cached expression was reused.
+     * 
+     * @return the number of cache hits
+     */
+    public static long hitCount() {
+        return HITS.get();
+    }
+
+    /**
+     * Return the number of times an expression had to be parsed or compiled.
+     * 
+     * @return the number of cache misses
+     */
+    public static long missCount() {
+        return MISSES.get();
+    }
+
+    /**
+     * Return the number of the expressions currently cached.
+     * 
+     * @return the size of the cache
+     */
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Change the maximum number of the expressions to be cached, the default is {@value #DEFAULT_MAXIMUM_SIZE}.
+     * 
+     * @param size
+     *            the maximum number of the expressions to be cached
+     * @exception IllegalArgumentException
+     *                when {@code size} is negative
+     */
+    public static void setMaximumSize(final int size) {
+        if (size < 0) throw new IllegalArgumentException("Argument size must not be negative.");
+        synchronized (CACHE) {
+            maximumSize = size;
+            while (CACHE.size() > size) {
+                CACHE.remove(CACHE.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Remove all cached expressions and reset the statistics.
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            HITS.set(0);
+            MISSES.set(0);
+        }
+    }
+
+    /**
+     * Return the parsed tree of the expression.
+     * 
+     * @exception LookupBuildException
+     *                if the expression is invalid
+     */
+    static Object parse(final String expression, final Class<?> resultClass) {
+        final Key key = new Key(expression, null, resultClass);
+        Object tree = get(key);
+        if (tree != null) return tree;
+        try {
+            tree = Ognl.parseExpression(expression);
+        } catch (OgnlException e) {
+            throw new LookupBuildException(e);
+        }
+        return put(key, tree);
+    }
+
+    /**
+     * Return the getters resolved for the class of given source object.
+     * 
+     * @return the resolved getters or {@link AccessorChain#UNRESOLVED} if the expression is not a property path of
+     *         public getters
+     */
+    static Object resolve(final String expression, final Object source, final Class<?> resultClass) {
+        final Key key = new Key(expression, source.getClass(), resultClass);
+        Object chain = get(key);
+        if (chain != null) return chain;
+        chain = AccessorChain.resolve(expression, source);
+        return put(key, chain == null ? AccessorChain.UNRESOLVED : chain);
+    }
+
+    @CheckForNull
+    private static Object get(final Key key) {
+        final Object tree;
+        synchronized (CACHE) {
+            tree = CACHE.get(key);
+        }
+        if (tree != null) HITS.incrementAndGet();
+        return tree;
+    }
+
+    private static Object put(final Key key, final Object tree) {
+        MISSES.incrementAndGet();
+        synchronized (CACHE) {
+            CACHE.put(key, tree);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup of {@link Comparable} keys of same class backed by an array in Eytzinger order, the breadth first order of the
+ * implicit binary search tree. Element {@code k} is the parent of elements {@code 2k} and {@code 2k+1}, and element
+ * {@code 0} is not used. The top levels of the tree, which every search goes through, are packed together at the
+ * beginning of the array and stay in the CPU cache. The search descends without exiting the loop early, so the loop
+ * has a fixed number of iterations and the choice of the child is a conditional move.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class EytzingerLookup<T> extends AbstractLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> keyClass;
+    private final Object[] keys;
+    private final Object[] values;
+    @CheckForNull
+    private transient volatile int[] positions;
+
+    /**
+     * Create an Eytzinger lookup. The keys must be distinct strings or integral numbers of the same class, see
+     * {@link SortedLookup#isSortable(Object[])}.
+     */
+    EytzingerLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.keyClass = keys.length == 0 ? Void.class : keys[0].getClass();
+        final int[] order = layout(sort(keys));
+        this.keys = new Object[order.length];
+        this.values = new Object[order.length];
+        for (int k = 1; k < order.length; k++) {
+            this.keys[k] = keys[order[k]];
+            this.values[k] = values[order[k]];
+        }
+    }
+
+    /**
+     * Create an Eytzinger lookup from the keys that are already sorted, without comparing them again.
+     */
+    EytzingerLookup(final Class<?> keyClass, final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.keyClass = keyClass;
+        final int[] order = layout(keys.length);
+        this.keys = new Object[order.length];
+        this.values = new Object[order.length];
+        for (int k = 1; k < order.length; k++) {
+            this.keys[k] = keys[order[k]];
+            this.values[k] = values[order[k]];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        if (key.getClass() != keyClass) return null;
+        final Comparable<Object> target = (Comparable<Object>) key;
+        final Object[] keys = this.keys;
+        final int n = keys.length - 1;
+        int k = 1;
+        while (k <= n) {
+            k = (k << 1) | (target.compareTo(keys[k]) > 0 ? 1 : 0);
+        }
+        k = lowerBound(k);
+        return k != 0 && key.equals(keys[k]) ? (T) values[k] : null;
+    }
+
+    /**
+     * {@inheritDoc} The slots are ranked by the keys, so the entries are scanned in the ascending order of the keys.
+     */
+    @Override
+    public int slotCount() {
+        return keys.length - 1;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keys[positions()[slot]];
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[positions()[slot]];
+    }
+
+    /**
+     * Return the positions of the keys in ascending order, built on first use as only scans need them.
+     */
+    private int[] positions() {
+        int[] p = positions;
+        if (p == null) positions = p = positions(keys.length - 1);
+        return p;
+    }
+
+    /**
+     * Return the indexes of the keys in ascending order.
+     */
+    static Integer[] sort(final Object[] keys) {
+        final Integer[] sorted = new Integer[keys.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @SuppressWarnings("unchecked")
+            public int compare(Integer i1, Integer i2) {
+                return ((Comparable<Object>) keys[i1]).compareTo(keys[i2]);
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Return the indexes of the sorted keys in Eytzinger order, in an array of one more element whose first is not
+     * used.
+     */
+    static int[] layout(final Integer[] sorted) {
+        final int[] order = new int[sorted.length + 1];
+        fill(sorted, 0, 1, order);
+        return order;
+    }
+
+    /**
+     * Return the ranks of {@code n} keys in Eytzinger order, in an array of one more element whose first is not used.
+     */
+    static int[] layout(final int n) {
+        final Integer[] ranks = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = i;
+        }
+        return layout(ranks);
+    }
+
+    private static int fill(final Integer[] sorted, final int rank, final int k, final int[] order) {
+        if (k >= order.length) return rank;
+        int next = fill(sorted, rank, k << 1, order);
+        order[k] = sorted[next++];
+        return fill(sorted, next, (k << 1) | 1, order);
+    }
+
+    /**
+     * Return the position of the first key not less than the searched one, or {@code 0} if there is none, from the
+     * position where the search fell off the tree. The search turned right at every level below the lower bound, so
+     * the lower bound is found by dropping the trailing ones and the last left turn.
+     */
+    static int lowerBound(final int k) {
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Return the positions of {@code n} keys in Eytzinger order indexed by their ranks in ascending order, by an
+     * in-order walk of the tree.
+     */
+    static int[] positions(final int n) {
+        final int[] positions = new int[n];
+        walk(1, 0, positions);
+        return positions;
+    }
+
+    private static int walk(final int k, final int rank, final int[] positions) {
+        if (k > positions.length) return rank;
+        int next = walk(k << 1, rank, positions);
+        positions[next++] = k;
+        return walk((k << 1) | 1, next, positions);
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
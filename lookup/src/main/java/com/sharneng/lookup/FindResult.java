@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Holds the result of {@link Lookups#tryFind(Lookup, Object, FindResult)}. An instance can be reused for many finds,
+ * but it must not be shared by threads.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            the type of the object to be looked up
+ */
+public final class FindResult<T> {
+    @CheckForNull
+    private T value;
+
+    /**
+     * Check if the last find found the reference object.
+     * 
+     * @return true if the reference object is found
+     */
+    public boolean isFound() {
+        return value != null;
+    }
+
+    /**
+     * Return the reference object found by the last find.
+     * 
+     * @return the reference object found, or {@code null} if not found
+     */
+    @CheckForNull
+    public T getValue() {
+        return value;
+    }
+
+    void setValue(@CheckForNull final T value) {
+        this.value = value;
+    }
+}
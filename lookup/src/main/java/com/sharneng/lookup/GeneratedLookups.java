@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates a dedicated {@link Lookup} class for a small set of keys, see {@link Layout#GENERATED}.
+ * <p>
+ * Each key and value is held in its own field. The {@code lookup} method switches on the hash code of the key and then
+ * compares it with the keys of the same hash code. The key fields are typed by the key class when all keys are of the
+ * same public class, so that {@code equals} is a direct call.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class GeneratedLookups {
+    /**
+     * The maximum number of keys a generated lookup class can have.
+     */
+    static final int MAX_SIZE = 64;
+    static final String PACKAGE = "com.sharneng.lookup.generated";
+
+    private static final Logger LOG = LoggerFactory.getLogger(GeneratedLookups.class);
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final ClassPool POOL = new ClassPool(true);
+
+    static {
+        POOL.appendClassPath(new ClassClassPath(AbstractLookup.class));
+    }
+
+    private GeneratedLookups() {
+    }
+
+    /**
+     * Create a lookup of a generated class, or return {@code null} if the class cannot be generated.
+     */
+    @CheckForNull
+    static <T> Lookup<T> create(final Map<?, ? extends T> map, @CheckForNull final T defaultValue,
+            @CheckForNull final LookupException notFound) {
+        final Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+        for (Map.Entry<?, ? extends T> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) entries.put(entry.getKey(), entry.getValue());
+        }
+        if (entries.size() > MAX_SIZE) return null;
+        final Object[] keys = entries.keySet().toArray();
+        final Object[] values = entries.values().toArray();
+        final GeneratedClassLoader loader = new GeneratedClassLoader(GeneratedLookups.class.getClassLoader());
+        try {
+            final String name = PACKAGE + ".Lookup" + SEQUENCE.incrementAndGet();
+            final Class<?> type = loader.define(name, generate(name, keys, loader));
+            @SuppressWarnings("unchecked")
+            final Lookup<T> lookup = (Lookup<T>) type.getConstructor(Object[].class, Object[].class, Object.class,
+                    LookupException.class).newInstance(keys, values, defaultValue, notFound);
+            return lookup;
+        } catch (Exception e) {
+            return failed(e);
+        } catch (LinkageError e) {
+            return failed(e);
+        }
+    }
+
+    @CheckForNull
+    private static <T> Lookup<T> failed(final Throwable cause) {
+        LOG.warn("Unable to generate a lookup class, using {} layout instead", Layout.HASH, cause);
+        return null;
+    }
+
+    /**
+     * Read the keys and values of a generated lookup back from its fields.
+     */
+    static Map<Object, Object> entriesOf(final Lookup<?> lookup) {
+        final Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+        final Class<?> type = lookup.getClass();
+        try {
+            for (int i = 0; i < type.getDeclaredFields().length / 2; i++) {
+                final Field key = type.getDeclaredField("k" + i), value = type.getDeclaredField("v" + i);
+                key.setAccessible(true);
+                value.setAccessible(true);
+                entries.put(key.get(lookup), value.get(lookup));
+            }
+        } catch (Exception e) {
+            throw new LookupException("Unable to read the entries of generated lookup " + type.getName(), e);
+        }
+        return entries;
+    }
+
+    private static byte[] generate(final String name, final Object[] keys, final ClassLoader loader)
+            throws Exception {
+        final String keyType = keyTypeOf(keys, loader);
+        final String simpleName = name.substring(name.lastIndexOf('.') + 1);
+        final StringBuilder init = new StringBuilder("public ").append(simpleName).append(
+                "(Object[] k, Object[] v, Object d, " + LookupException.class.getName() + " n) { super(d, n);");
+        final Map<Integer, List<Integer>> buckets = new LinkedHashMap<Integer, List<Integer>>();
+        for (int i = 0; i < keys.length; i++) {
+            init.append("k").append(i).append(" = (").append(keyType).append(") k[").append(i).append("];");
+            init.append("v").append(i).append(" = v[").append(i).append("];");
+            final Integer hash = keys[i].hashCode();
+            List<Integer> bucket = buckets.get(hash);
+            if (bucket == null) {
+                bucket = new ArrayList<Integer>(1);
+                buckets.put(hash, bucket);
+            }
+            bucket.add(i);
+        }
+        init.append('}');
+
+        final StringBuilder lookup = new StringBuilder("protected Object lookup(Object key) {");
+        if (keys.length > 0) {
+            lookup.append("switch (key.hashCode()) {");
+            for (Map.Entry<Integer, List<Integer>> bucket : buckets.entrySet()) {
+                lookup.append("case ").append(bucket.getKey()).append(':');
+                for (int i : bucket.getValue()) {
+                    lookup.append("if (k").append(i).append(".equals(key)) return v").append(i).append(';');
+                }
+                lookup.append("return null;");
+            }
+            lookup.append("default: return null; }");
+        } else {
+            lookup.append("return null;");
+        }
+        lookup.append('}');
+
+        synchronized (POOL) {
+            final CtClass ctClass = POOL.makeClass(name, POOL.get(AbstractLookup.class.getName()));
+            try {
+                ctClass.setModifiers(Modifier.PUBLIC | Modifier.FINAL);
+                for (int i = 0; i < keys.length; i++) {
+                    ctClass.addField(CtField.make("private final " + keyType + " k" + i + ";", ctClass));
+                    ctClass.addField(CtField.make("private final Object v" + i + ";", ctClass));
+                }
+                ctClass.addConstructor(CtNewConstructor.make(init.toString(), ctClass));
+                ctClass.addMethod(CtNewMethod.make(lookup.toString(), ctClass));
+                return ctClass.toBytecode();
+            } finally {
+                ctClass.detach();
+            }
+        }
+    }
+
+    /**
+     * Use the common class of the keys when it is public and visible to the generated class, otherwise Object.
+     */
+    private static String keyTypeOf(final Object[] keys, final ClassLoader loader) {
+        if (keys.length == 0) return "Object";
+        final Class<?> type = keys[0].getClass();
+        for (Object key : keys) {
+            if (key.getClass() != type) return "Object";
+        }
+        if (type.isArray() || type.getEnclosingClass() != null || !Modifier.isPublic(type.getModifiers())) {
+            return "Object";
+        }
+        try {
+            if (Class.forName(type.getName(), false, loader) != type || POOL.find(type.getName()) == null) {
+                return "Object";
+            }
+        } catch (ClassNotFoundException e) {
+            return "Object";
+        }
+        return type.getName();
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(final String name, final byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Decorates a large lookup with a small table of its hottest keys that is checked before the lookup.
+ * <p>
+ * One in {@value #SAMPLE_INTERVAL} accesses of each thread is sampled, counted by a per thread counter so that readers
+ * write shared state only to record a sample. Once {@value #WINDOW} keys are sampled, the thread that takes the
+ * last sample hands them to the promoter, which counts them off the readers' path and publishes a new table of the
+ * most frequent keys. Keys sampled in the previous window too get half of their previous count added. Keys that are
+ * not sampled in a window drop out of the table. The table is immutable and published through a volatile field.
+ * Readers never lock, and the samples are deliberately not synchronized as a lost sample does no harm.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class HotKeyLookup<T> implements Lookup<T> {
+    static final int SAMPLE_INTERVAL = 16;
+    static final int WINDOW = 4096;
+    private static final int MIN_HITS = 2;
+
+    /**
+     * Counts the accesses of each thread to decide which ones to sample.
+     */
+    private static final ThreadLocal<int[]> TICKS = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * Promotes the hot keys of all lookups in a single daemon thread.
+     */
+    private static final Executor PROMOTER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "lookup-hot-keys");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Open addressing table of the hot keys. Each key is followed by its value in the same array so that a hit reads one
+     * cache line.
+     */
+    private static final class Front {
+        static final Front EMPTY = new Front(new Object[0], new Object[0]);
+        private final Object[] slots;
+        private final int mask;
+
+        Front(final Object[] keys, final Object[] values) {
+            int capacity = 1;
+            while (capacity < keys.length * 2) capacity <<= 1;
+            mask = capacity - 1;
+            slots = new Object[capacity * 2];
+            for (int i = 0; i < keys.length; i++) {
+                int slot = keys[i].hashCode() & mask;
+                while (slots[slot * 2] != null) slot = (slot + 1) & mask;
+                slots[slot * 2] = keys[i];
+                slots[slot * 2 + 1] = values[i];
+            }
+        }
+
+        @CheckForNull
+        Object get(final Object key) {
+            if (slots.length == 0) return null;
+            for (int slot = key.hashCode() & mask;; slot = (slot + 1) & mask) {
+                final Object k = slots[slot * 2];
+                if (k == null) return null;
+                if (k == key || k.equals(key)) return slots[slot * 2 + 1];
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != null) size++;
+            }
+            return size;
+        }
+    }
+
+    private final Lookup<T> lookup;
+    private final int capacity;
+    private final Executor promoter;
+    private volatile Front front = Front.EMPTY;
+    private final Object[] samples = new Object[WINDOW];
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final Runnable promotion = new Runnable() {
+        public void run() {
+            try {
+                promote();
+            } finally {
+                sampled.set(0);
+            }
+        }
+    };
+    private Map<Object, Integer> previousCounts = Collections.emptyMap();
+
+    HotKeyLookup(final Lookup<T> lookup, final int capacity) {
+        this(lookup, capacity, PROMOTER);
+    }
+
+    HotKeyLookup(final Lookup<T> lookup, final int capacity, final Executor promoter) {
+        this.lookup = lookup;
+        this.capacity = capacity;
+        this.promoter = promoter;
+    }
+
+    @Override
+    public boolean has(@CheckForNull final Object key) {
+        return hot(key) != null || lookup.has(key);
+    }
+
+    @Override
+    public T find(@CheckForNull final Object key) {
+        final T value = hot(key);
+        return value != null ? value : lookup.find(key);
+    }
+
+    @Override
+    public T find(@CheckForNull final Object key, @CheckForNull final T defaultValue) {
+        final T value = hot(key);
+        return value != null ? value : lookup.find(key, defaultValue);
+    }
+
+    @Override
+    public T get(@CheckForNull final Object key) {
+        final T value = hot(key);
+        return value != null ? value : lookup.get(key);
+    }
+
+    @Override
+    public T get(@CheckForNull final Object key, final T defaultValue) {
+        final T value = hot(key);
+        return value != null ? value : lookup.get(key, defaultValue);
+    }
+
+    @Override
+    public T hunt(final Object key) {
+        final T value = hot(key);
+        return value != null ? value : lookup.hunt(key);
+    }
+
+    /**
+     * Return the decorated lookup.
+     */
+    Lookup<T> getLookup() {
+        return lookup;
+    }
+
+    /**
+     * Check if the key is currently in the hot key table.
+     */
+    boolean isHot(final Object key) {
+        return front.get(key) != null;
+    }
+
+    /**
+     * Return the number of keys currently in the hot key table.
+     */
+    int hotSize() {
+        return front.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    @CheckForNull
+    private T hot(@CheckForNull final Object key) {
+        if (key == null) return null;
+        final int[] ticks = TICKS.get();
+        if ((++ticks[0] & (SAMPLE_INTERVAL - 1)) == 0) sample(key);
+        return (T) front.get(key);
+    }
+
+    private void sample(final Object key) {
+        final int index = sampled.getAndIncrement();
+        if (index >= WINDOW) return;
+        samples[index] = key;
+        if (index == WINDOW - 1) promoter.execute(promotion);
+    }
+
+    /**
+     * Count the samples and publish the most frequent keys as the new front table. Runs in the promoter, at most once
+     * at a time for each lookup as the next window starts only after it is done.
+     */
+    private void promote() {
+        final Map<Object, Integer> counts = new HashMap<Object, Integer>();
+        for (int i = 0; i < samples.length; i++) {
+            final Object key = samples[i];
+            samples[i] = null;
+            if (key == null) continue;
+            final Integer count = counts.get(key);
+            counts.put(key, count == null ? 1 : count + 1);
+        }
+        for (Map.Entry<Object, Integer> entry : counts.entrySet()) {
+            final Integer previous = previousCounts.get(entry.getKey());
+            if (previous != null) entry.setValue(entry.getValue() + previous / 2);
+        }
+        previousCounts = counts;
+
+        final List<Map.Entry<Object, Integer>> ranked = new ArrayList<Map.Entry<Object, Integer>>(counts.entrySet());
+        Collections.sort(ranked, new Comparator<Map.Entry<Object, Integer>>() {
+            public int compare(Map.Entry<Object, Integer> o1, Map.Entry<Object, Integer> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        final List<Object> keys = new ArrayList<Object>(capacity);
+        final List<Object> values = new ArrayList<Object>(capacity);
+        for (Map.Entry<Object, Integer> entry : ranked) {
+            if (keys.size() == capacity || entry.getValue() < MIN_HITS) break;
+            final T value = lookup.find(entry.getKey(), null);
+            if (value == null) continue;
+            keys.add(entry.getKey());
+            values.add(value);
+        }
+        front = new Front(keys.toArray(), values.toArray());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup of integral keys of same class backed by an array of unboxed keys in Eytzinger order. See
+ * {@link EytzingerLookup} for the layout and the search.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class IntegralEytzingerLookup<T> extends AbstractIntegralLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] keys;
+    private final Object[] values;
+    @CheckForNull
+    private transient volatile int[] positions;
+
+    /**
+     * Create an integral Eytzinger lookup. The keys must be distinct integral of the same class, see
+     * {@link #isIntegral(Object[])}.
+     */
+    IntegralEytzingerLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(keys[0].getClass(), defaultValue, notFoundException);
+        final int[] order = EytzingerLookup.layout(EytzingerLookup.sort(keys));
+        this.keys = new long[order.length];
+        this.values = new Object[order.length];
+        for (int k = 1; k < order.length; k++) {
+            this.keys[k] = ((Number) keys[order[k]]).longValue();
+            this.values[k] = values[order[k]];
+        }
+    }
+
+    /**
+     * Create an integral Eytzinger lookup from the keys that are already sorted, without comparing them again.
+     */
+    IntegralEytzingerLookup(final Class<?> keyClass, final long[] keys, final Object[] values,
+            @CheckForNull T defaultValue, @CheckForNull final LookupException notFoundException) {
+        super(keyClass, defaultValue, notFoundException);
+        final int[] order = EytzingerLookup.layout(keys.length);
+        this.keys = new long[order.length];
+        this.values = new Object[order.length];
+        for (int k = 1; k < order.length; k++) {
+            this.keys[k] = keys[order[k]];
+            this.values[k] = values[order[k]];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    T lookup(final long key) {
+        final long[] keys = this.keys;
+        final int n = keys.length - 1;
+        int k = 1;
+        while (k <= n) {
+            k = (k << 1) | (keys[k] < key ? 1 : 0);
+        }
+        k = EytzingerLookup.lowerBound(k);
+        return k != 0 && keys[k] == key ? (T) values[k] : null;
+    }
+
+    /**
+     * {@inheritDoc} The slots are ranked by the keys, so the entries are scanned in the ascending order of the keys.
+     */
+    @Override
+    public int slotCount() {
+        return keys.length - 1;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keyOf(keys[positions()[slot]]);
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[positions()[slot]];
+    }
+
+    /**
+     * Return the positions of the keys in ascending order, built on first use as only scans need them.
+     */
+    private int[] positions() {
+        int[] p = positions;
+        if (p == null) positions = p = EytzingerLookup.positions(keys.length - 1);
+        return p;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A {@link Lookup} of which the keys are integral numbers of one class, {@link Integer}, {@link Long}, {@link Short} or
+ * {@link Byte}. In addition to the methods of {@link Lookup}, which find only keys of the same class, it can find by
+ * the primitive value of the key without boxing, one key or many keys at a time.
+ * <p>
+ * The key levels of integral keys built with {@link Layout#AUTO}, {@link Layout#DENSE} or {@link Layout#PRIMITIVE}
+ * implement this interface. All methods in this interface must be thread safe.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            the type of the object to be looked up.
+ */
+public interface IntegralLookup<T> extends Lookup<T> {
+
+    /**
+     * Find and return the reference object of the key of given value, or return a default value when not found.
+     * <p>
+     * The default value is implementation dependent and maybe null.
+     * 
+     * @param key
+     *            the value of the key
+     * @return the reference object found or a default value if not found
+     */
+    @CheckForNull
+    T find(long key);
+
+    /**
+     * Find and return the reference object of the key of given value, or return the specified default value when not
+     * found.
+     * 
+     * @param key
+     *            the value of the key
+     * @param defaultValue
+     *            the default value, which can be {@code null}, to be returned if object is not found
+     * @return the reference object found or {@code defaultValue} if not found
+     */
+    @CheckForNull
+    T find(long key, @CheckForNull T defaultValue);
+
+    /**
+     * Find the reference objects of many keys in one call, the result of {@code keys[i]} is stored in
+     * {@code results[i]}. Keys that are not found get the default value.
+     * 
+     * @param keys
+     *            the values of the keys
+     * @param results
+     *            the array to receive the results, must be at least as long as {@code keys}
+     * @return the number of keys found
+     */
+    int findAll(long[] keys, T[] results);
+
+    /**
+     * Find the reference objects of many keys in one call, the result of {@code keys[i]} is stored in
+     * {@code results[i]}. Keys that are not found get the default value.
+     * 
+     * @param keys
+     *            the values of the keys
+     * @param results
+     *            the array to receive the results, must be at least as long as {@code keys}
+     * @return the number of keys found
+     */
+    int findAll(int[] keys, T[] results);
+}
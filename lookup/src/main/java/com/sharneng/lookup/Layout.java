@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+/**
+ * The in-memory representations of the key levels of a built lookup. When the chosen layout does not apply to the
+ * keys of a level, the one that {@link #AUTO} chooses is used for that level.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public enum Layout {
+    /**
+     * The representation of each level is chosen by analyzing its keys. This is the default.
+     * <ul>
+     * <li>{@link #ENUM} for keys of the same enum type,</li>
+     * <li>{@link #LINEAR} for no more than 8 keys,</li>
+     * <li>{@link #DENSE} for integral keys of the same class that fill at least half of their range,</li>
+     * <li>{@link #PRIMITIVE} for other integral keys of the same class,</li>
+     * <li>{@link #SORTED} for string keys of 32 or more characters on average,</li>
+     * <li>{@link #OPEN} otherwise.</li>
+     * </ul>
+     */
+    AUTO,
+
+    /**
+     * Keys are kept in a {@link java.util.HashMap}.
+     */
+    HASH,
+
+    /**
+     * Keys are kept in an array and compared one by one.
+     */
+    LINEAR,
+
+    /**
+     * Values are kept in an array indexed by the integral key minus the smallest key. Keys of any other class, including
+     * other integral classes, are not found. Applies only to integral keys of the same class whose range is no more than
+     * 64 times the number of keys.
+     */
+    DENSE,
+
+    /**
+     * Keys are kept unboxed in an open addressing hash table of primitive keys. Applies only to integral keys of the same
+     * class.
+     * 
+     * @see IntegralLookup
+     */
+    PRIMITIVE,
+
+    /**
+     * Values are kept in an array indexed by the ordinal of the enum key. Applies only to keys of the same enum type.
+     */
+    ENUM,
+
+    /**
+     * Keys are kept in an open addressing hash table with linear probing.
+     */
+    OPEN,
+
+    /**
+     * Keys are kept in a sorted array and found by binary search. Applies only to string or integral keys of the same
+     * class, whose natural ordering is consistent with equals.
+     */
+    SORTED,
+
+    /**
+     * Keys are kept in an array in Eytzinger order, the breadth first order of a binary search tree, and found by a
+     * search without early exit. The top levels of the tree share the same cache lines, so it is faster than
+     * {@link #SORTED} for large levels, while taking a fraction of the memory of {@link #HASH}. Integral keys are kept
+     * unboxed. The entries are scanned in the ascending order of the keys. Applies only to string or integral keys of
+     * the same class, whose natural ordering is consistent with equals.
+     */
+    EYTZINGER,
+
+    /**
+     * A dedicated class is generated at runtime for each level that has no more than 64 keys. Its lookup is a switch on
+     * the precomputed hash codes of the keys followed by direct equality checks, which the JIT can fully inline. Larger
+     * levels, or when the class cannot be generated, fall back to {@link #HASH}.
+     * <p>
+     * Each generated class is defined by its own class loader so it can be unloaded together with the lookup. Use it for
+     * small and long living lookups, such as status codes and currencies.
+     */
+    GENERATED
+}
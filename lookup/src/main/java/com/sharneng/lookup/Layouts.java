@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Creates the representation of a key level according to the {@link Layout}.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class Layouts {
+    static final int LINEAR_MAX_SIZE = 8;
+    static final int DENSE_MIN_FILL = 2;
+    static final int DENSE_MAX_SPREAD = 64;
+    static final int SORTED_MIN_LENGTH = 32;
+
+    static final int REFERENCE_BYTES = 4;
+    static final int ARRAY_BYTES = 16;
+    private static final int OBJECT_BYTES = 32;
+    private static final int HASH_ENTRY_BYTES = 48;
+    private static final int OTHER_ENTRY_BYTES = 24;
+    private static final int GENERATED_CLASS_BYTES = 4096;
+
+    private Layouts() {
+    }
+
+    /**
+     * Create the lookup of the key level. Entries of {@code null} key or value are dropped as they can never be found.
+     */
+    static <T> Lookup<T> create(final Layout layout, final Map<?, ? extends T> map, @CheckForNull final T defaultValue,
+            @CheckForNull final LookupException notFound) {
+        if (layout == Layout.HASH) return new MapBasedLookup<T>(map, defaultValue, notFound);
+        if (layout == Layout.GENERATED) {
+            final Lookup<T> lookup = map.size() > GeneratedLookups.MAX_SIZE ? null : GeneratedLookups.create(map,
+                    defaultValue, notFound);
+            return lookup == null ? new MapBasedLookup<T>(map, defaultValue, notFound) : lookup;
+        }
+
+        final Map<Object, Object> entries = new LinkedHashMap<Object, Object>();
+        for (Map.Entry<?, ? extends T> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) entries.put(entry.getKey(), entry.getValue());
+        }
+        final Object[] keys = entries.keySet().toArray();
+        final Object[] values = entries.values().toArray();
+        switch (choose(layout, keys)) {
+        case LINEAR:
+            return new LinearLookup<T>(keys, values, defaultValue, notFound);
+        case DENSE:
+            return new DenseLookup<T>(keys, values, defaultValue, notFound);
+        case PRIMITIVE:
+            return new PrimitiveHashLookup<T>(keys, values, defaultValue, notFound);
+        case ENUM:
+            return new EnumLookup<T>(keys, values, defaultValue, notFound);
+        case SORTED:
+            return new SortedLookup<T>(keys, values, defaultValue, notFound);
+        case EYTZINGER:
+            return AbstractIntegralLookup.isIntegral(keys) ? new IntegralEytzingerLookup<T>(keys, values, defaultValue,
+                    notFound) : new EytzingerLookup<T>(keys, values, defaultValue, notFound);
+        default:
+            return new OpenHashLookup<T>(keys, values, defaultValue, notFound);
+        }
+    }
+
+    /**
+     * Create the lookup of the key level of which the keys are wrapped as {@link EquivalentKey}. It is always of the
+     * {@link Layout#OPEN} layout, reusing the hash codes computed when the keys were wrapped.
+     */
+    static <T> Lookup<T> create(final Equivalence equivalence, final Map<?, ? extends T> map,
+            @CheckForNull final T defaultValue, @CheckForNull final LookupException notFound) {
+        final int size = map.size();
+        final Object[] keys = new Object[size];
+        final int[] hashes = new int[size];
+        final Object[] values = new Object[size];
+        int i = 0;
+        for (Map.Entry<?, ? extends T> entry : map.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) continue;
+            final EquivalentKey key = (EquivalentKey) entry.getKey();
+            keys[i] = key.key;
+            hashes[i] = key.hash;
+            values[i++] = entry.getValue();
+        }
+        return new OpenHashLookup<T>(Arrays.copyOf(keys, i), hashes, Arrays.copyOf(values, i), defaultValue, notFound,
+                equivalence);
+    }
+
+    /**
+     * Choose the layout for the keys, the requested layout is used when it applies. Otherwise the keys are analyzed.
+     */
+    static Layout choose(final Layout layout, final Object[] keys) {
+        switch (layout) {
+        case LINEAR:
+        case OPEN:
+            return layout;
+        case DENSE:
+            if (isDense(keys, DENSE_MAX_SPREAD)) return layout;
+            break;
+        case PRIMITIVE:
+            if (AbstractIntegralLookup.isIntegral(keys)) return layout;
+            break;
+        case SORTED:
+        case EYTZINGER:
+            if (SortedLookup.isSortable(keys)) return layout;
+            break;
+        default:
+            break;
+        }
+        if (EnumLookup.enumClassOf(keys) != null) return Layout.ENUM;
+        if (keys.length <= LINEAR_MAX_SIZE) return Layout.LINEAR;
+        if (isDense(keys, DENSE_MIN_FILL)) return Layout.DENSE;
+        if (AbstractIntegralLookup.isIntegral(keys)) return Layout.PRIMITIVE;
+        if (keys[0] instanceof String && SortedLookup.isSortable(keys) && averageLength(keys) >= SORTED_MIN_LENGTH) {
+            return Layout.SORTED;
+        }
+        return Layout.OPEN;
+    }
+
+    /**
+     * Return the layout of the lookup or {@code null} if it is not a key level built by {@link LookupBuilder}.
+     */
+    @CheckForNull
+    static Layout of(final Lookup<?> lookup) {
+        if (lookup instanceof MapBasedLookup) return Layout.HASH;
+        if (lookup instanceof LinearLookup) return Layout.LINEAR;
+        if (lookup instanceof DenseLookup) return Layout.DENSE;
+        if (lookup instanceof PrimitiveHashLookup) return Layout.PRIMITIVE;
+        if (lookup instanceof EnumLookup) return Layout.ENUM;
+        if (lookup instanceof OpenHashLookup) return Layout.OPEN;
+        if (lookup instanceof SortedLookup) return Layout.SORTED;
+        if (lookup instanceof EytzingerLookup || lookup instanceof IntegralEytzingerLookup) return Layout.EYTZINGER;
+        if (lookup != null && lookup.getClass().getName().startsWith(GeneratedLookups.PACKAGE)) return Layout.GENERATED;
+        return null;
+    }
+
+    /**
+     * Estimate the bytes of the arrays of a key level, assuming compressed references. The keys and reference objects
+     * are not counted, as they are shared with the source data.
+     * 
+     * @param entries
+     *            the number of entries of the key level
+     */
+    static long estimateBytes(final Lookup<?> lookup, final int entries) {
+        final long slots = lookup instanceof Slots ? ((Slots) lookup).slotCount() : entries;
+        final Layout layout = of(lookup);
+        if (layout == null) return OBJECT_BYTES + ARRAY_BYTES * 2 + slots * OTHER_ENTRY_BYTES;
+        switch (layout) {
+        case HASH:
+            return OBJECT_BYTES + ARRAY_BYTES + slots * HASH_ENTRY_BYTES;
+        case GENERATED:
+            return GENERATED_CLASS_BYTES + slots * REFERENCE_BYTES * 2;
+        case DENSE:
+            return OBJECT_BYTES + ARRAY_BYTES + slots * REFERENCE_BYTES;
+        case PRIMITIVE:
+            return OBJECT_BYTES + ARRAY_BYTES * 2 + slots * (Long.SIZE / Byte.SIZE + REFERENCE_BYTES);
+        case EYTZINGER:
+            final int keyBytes = lookup instanceof IntegralLookup ? Long.SIZE / Byte.SIZE : REFERENCE_BYTES;
+            return OBJECT_BYTES + ARRAY_BYTES * 2 + (slots + 1) * (keyBytes + REFERENCE_BYTES);
+        case OPEN:
+            return OBJECT_BYTES + ARRAY_BYTES * 3 + slots * (Integer.SIZE / Byte.SIZE + REFERENCE_BYTES * 2);
+        default:
+            return OBJECT_BYTES + ARRAY_BYTES * 2 + slots * REFERENCE_BYTES * 2;
+        }
+    }
+
+    private static boolean isDense(final Object[] keys, final int maxSpread) {
+        final long range = DenseLookup.rangeOf(keys);
+        return range > 0 && range <= (long) keys.length * maxSpread;
+    }
+
+    private static long averageLength(final Object[] keys) {
+        long total = 0;
+        for (Object key : keys) {
+            total += ((String) key).length();
+        }
+        return total / keys.length;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup that scans the keys one by one. It is the fastest representation for a handful of keys.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class LinearLookup<T> extends AbstractLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] keys;
+    private final Object[] values;
+
+    LinearLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @Override
+    public int slotCount() {
+        return keys.length;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        final Object[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            if (key.equals(keys[i])) return (T) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A lookup of non-overlapping intervals with bounds of integral numbers. The bounds are stored in sorted primitive
+ * arrays and a point is resolved by a binary search on the lower bounds.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class LongRangeLookup<T> extends AbstractLookup<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] lows;
+    private final long[] highs;
+    private final Object[] values;
+
+    LongRangeLookup(final long[] lows, final long[] highs, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.lows = lows;
+        this.highs = highs;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        if (!Utils.isIntegral(key)) return null;
+        final long point = ((Number) key).longValue();
+        final int index = Utils.floorIndex(lows, point);
+        return index >= 0 && point <= highs[index] ? (T) values[index] : null;
+    }
+
+    long[] getLows() {
+        return lows;
+    }
+
+    long[] getHighs() {
+        return highs;
+    }
+
+    Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -17,17 +17,25 @@ package com.sharneng.lookup;
 
 import com.sharneng.lookup.fluent.Defined;
 import com.sharneng.lookup.fluent.Indexed;
+import com.sharneng.lookup.fluent.Selected;
 import com.sharneng.lookup.fluent.Sourced;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.annotation.CheckForNull;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Class to hold factory methods to return the implementation of {@link Lookup}.
  * 
@@ -35,18 +43,14 @@ import javax.annotation.CheckForNull;
  * 
  */
 final class LookupBuilder<E, T> implements Sourced<E, T> {
-    private enum Duplication {
-        FIRST,
-        LAST,
-        FAIL
-    }
+    private static final Logger LOG = LoggerFactory.getLogger(LookupBuilder.class);
 
     private class Indexer implements Indexed<E, Lookup<T>> {
 
         @SuppressWarnings("unchecked")
         @Override
         public Lookup<T> index() {
-            return (Lookup<T>) new Builder().build();
+            return (Lookup<T>) (owner == null ? build() : owner.indexOf(LookupBuilder.this));
         }
 
         @SuppressWarnings("unchecked")
@@ -81,19 +85,85 @@ final class LookupBuilder<E, T> implements Sourced<E, T> {
             return (Defined<Lookup<?>>) (Defined<?>) this;
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public Defined<Lookup<Lookup<T>>> byRange(String lowExpression, String highExpression) {
+            return (Defined<Lookup<Lookup<T>>>) (Defined<?>) LookupBuilder.this.byRange(lowExpression, highExpression);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Defined<Lookup<Lookup<T>>> byRange(Converter<E, Object> lowConverter, Converter<E, Object> highConverter) {
+            return (Defined<Lookup<Lookup<T>>>) (Defined<?>) LookupBuilder.this.byRange(lowConverter, highConverter);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Defined<Lookup<Lookup<T>>> asOf(String effectiveExpression) {
+            return (Defined<Lookup<Lookup<T>>>) (Defined<?>) LookupBuilder.this.asOf(effectiveExpression);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Defined<Lookup<Lookup<T>>> asOf(String effectiveExpression, String expiryExpression) {
+            return (Defined<Lookup<Lookup<T>>>) (Defined<?>) LookupBuilder.this.asOf(effectiveExpression,
+                    expiryExpression);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Defined<Lookup<Lookup<T>>> asOf(Converter<E, Object> effectiveConverter) {
+            return (Defined<Lookup<Lookup<T>>>) (Defined<?>) LookupBuilder.this.asOf(effectiveConverter);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Defined<Lookup<Lookup<T>>> asOf(Converter<E, Object> effectiveConverter,
+                Converter<E, Object> expiryConverter) {
+            return (Defined<Lookup<Lookup<T>>>) (Defined<?>) LookupBuilder.this.asOf(effectiveConverter,
+                    expiryConverter);
+        }
+
     }
 
     private Duplication duplication = Duplication.FAIL;
+    private Layout layout = Layout.AUTO;
+    @CheckForNull
+    private Equivalence equivalence;
+    private boolean stackless;
+    private long memoryBudget;
+    private boolean compactOverBudget;
     @CheckForNull
     private T defaultValue;
     private final Collection<? extends E> source;
     @SuppressWarnings("unchecked")
     private Converter<E, T> selectConverter = (Converter<E, T>) Utils.toSelf();
     private final List<Converter<E, Object>> converters = new ArrayList<Converter<E, Object>>();
+    private final List<Converter<E, Boolean>> conditions = new ArrayList<Converter<E, Boolean>>();
+    @CheckForNull
+    private Converter<E, Object> lowConverter;
+    @CheckForNull
+    private Converter<E, Object> highConverter;
+    @CheckForNull
+    private Converter<E, Object> prefixConverter;
+    @CheckForNull
+    private Converter<E, Object> effectiveConverter;
+    @CheckForNull
+    private Converter<E, Object> expiryConverter;
     private final Indexer indexer = new Indexer();
+    private boolean grouped;
+    @CheckForNull
+    private Comparator<Object> groupComparator;
+    @CheckForNull
+    private final MultiLookupBuilder<E> owner;
 
     public LookupBuilder(@CheckForNull final Collection<? extends E> source) {
+        this(source, null);
+    }
+
+    LookupBuilder(@CheckForNull final Collection<? extends E> source, @CheckForNull MultiLookupBuilder<E> owner) {
         this.source = source == null ? Collections.<E> emptyList() : source;
+        this.owner = owner;
     }
 
     @Override
@@ -118,6 +188,23 @@ final class LookupBuilder<E, T> implements Sourced<E, T> {
         return that;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public Selected<E, List<T>> grouped() {
+        grouped = true;
+        defaultValue = null; // not a list
+        return (Selected<E, List<T>>) (Selected<E, ?>) this;
+    }
+
+    @Override
+    public Selected<E, List<T>> grouped(Comparator<? super T> comparator) {
+        if (comparator == null) throw new IllegalArgumentException(Utils.notNull("comparator"));
+        @SuppressWarnings("unchecked")
+        final Comparator<Object> c = (Comparator<Object>) comparator;
+        groupComparator = c;
+        return grouped();
+    }
+
     @Override
     public Indexed<E, Lookup<T>> by(Converter<E, Object> converter) {
         if (converter == null) throw new IllegalArgumentException(Utils.notNullIndexed("converter",
@@ -143,6 +230,66 @@ final class LookupBuilder<E, T> implements Sourced<E, T> {
         return indexer.by(converters);
     }
 
+    @Override
+    public Defined<Lookup<T>> byRange(Converter<E, Object> lowConverter, Converter<E, Object> highConverter) {
+        if (lowConverter == null) throw new IllegalArgumentException(Utils.notNull("lowConverter"));
+        if (highConverter == null) throw new IllegalArgumentException(Utils.notNull("highConverter"));
+        this.lowConverter = lowConverter;
+        this.highConverter = highConverter;
+        return indexer;
+    }
+
+    @Override
+    public Defined<Lookup<T>> byRange(String lowExpression, String highExpression) {
+        if (lowExpression == null) throw new IllegalArgumentException(Utils.notNull("lowExpression"));
+        if (highExpression == null) throw new IllegalArgumentException(Utils.notNull("highExpression"));
+        return byRange(new OgnlConverter<E, Object>(Object.class, lowExpression), new OgnlConverter<E, Object>(
+                Object.class, highExpression));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Defined<PrefixLookup<T>> byPrefix(Converter<E, Object> converter) {
+        if (converter == null) throw new IllegalArgumentException(Utils.notNull("converter"));
+        this.prefixConverter = converter;
+        return (Defined<PrefixLookup<T>>) (Defined<?>) indexer;
+    }
+
+    @Override
+    public Defined<PrefixLookup<T>> byPrefix(String expression) {
+        if (expression == null) throw new IllegalArgumentException(Utils.notNull("expression"));
+        return byPrefix(new OgnlConverter<E, Object>(Object.class, expression));
+    }
+
+    @Override
+    public Defined<Lookup<T>> asOf(Converter<E, Object> effectiveConverter) {
+        if (effectiveConverter == null) throw new IllegalArgumentException(Utils.notNull("effectiveConverter"));
+        this.effectiveConverter = effectiveConverter;
+        return indexer;
+    }
+
+    @Override
+    public Defined<Lookup<T>> asOf(Converter<E, Object> effectiveConverter, Converter<E, Object> expiryConverter) {
+        if (effectiveConverter == null) throw new IllegalArgumentException(Utils.notNull("effectiveConverter"));
+        if (expiryConverter == null) throw new IllegalArgumentException(Utils.notNull("expiryConverter"));
+        this.expiryConverter = expiryConverter;
+        return asOf(effectiveConverter);
+    }
+
+    @Override
+    public Defined<Lookup<T>> asOf(String effectiveExpression) {
+        if (effectiveExpression == null) throw new IllegalArgumentException(Utils.notNull("effectiveExpression"));
+        return asOf(new OgnlConverter<E, Object>(Object.class, effectiveExpression));
+    }
+
+    @Override
+    public Defined<Lookup<T>> asOf(String effectiveExpression, String expiryExpression) {
+        if (effectiveExpression == null) throw new IllegalArgumentException(Utils.notNull("effectiveExpression"));
+        if (expiryExpression == null) throw new IllegalArgumentException(Utils.notNull("expiryExpression"));
+        return asOf(new OgnlConverter<E, Object>(Object.class, effectiveExpression), new OgnlConverter<E, Object>(
+                Object.class, expiryExpression));
+    }
+
     @Override
     public Sourced<E, T> notEmpty() {
         if (source.size() == 0) throw new LookupBuildException("source collection must not be empty");
@@ -161,38 +308,210 @@ final class LookupBuilder<E, T> implements Sourced<E, T> {
         return this;
     }
 
+    @Override
+    public Sourced<E, T> layout(Layout layout) {
+        if (layout == null) throw new IllegalArgumentException(Utils.notNull("layout"));
+        this.layout = layout;
+        return this;
+    }
+
+    @Override
+    public Sourced<E, T> keyEquivalence(Equivalence equivalence) {
+        if (equivalence == null) throw new IllegalArgumentException(Utils.notNull("equivalence"));
+        this.equivalence = equivalence == Equivalences.natural() ? null : equivalence;
+        return this;
+    }
+
+    @Override
+    public Sourced<E, T> stacklessNotFound() {
+        stackless = true;
+        return this;
+    }
+
+    @Override
+    public Sourced<E, T> memoryBudget(long bytes) {
+        if (bytes <= 0) throw new IllegalArgumentException("Argument bytes must be positive.");
+        memoryBudget = bytes;
+        return this;
+    }
+
+    @Override
+    public Sourced<E, T> compactOverBudget() {
+        compactOverBudget = true;
+        return this;
+    }
+
+    @Override
+    public Sourced<E, T> where(String expression) {
+        if (expression == null) throw new IllegalArgumentException(Utils.notNull("expression"));
+        return where(new OgnlConverter<E, Boolean>(Boolean.class, expression));
+    }
+
+    @Override
+    public Sourced<E, T> where(Converter<E, Boolean> condition) {
+        if (condition == null) throw new IllegalArgumentException(Utils.notNull("condition"));
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * Check if enough information is collected to build the lookup.
+     */
+    boolean isDefined() {
+        return !converters.isEmpty() || hasSpecialLastLevel();
+    }
+
+    Lookup<?> build() {
+        try {
+            return new Builder(false).build();
+        } catch (MemoryBudgetException e) {
+            if (!compactOverBudget || layout == Layout.SORTED || equivalence != null) throw e;
+            LOG.warn("{}, building again using {} layout for levels of string or integral keys", e.getMessage(),
+                    Layout.SORTED);
+            return new Builder(true).build();
+        }
+    }
+
+    /**
+     * Check if the source object meets all the conditions of this builder, evaluating them in the order they are
+     * declared until one of them fails.
+     */
+    boolean accepts(final E value) {
+        for (Converter<E, Boolean> condition : conditions) {
+            if (!Boolean.TRUE.equals(condition.convert(value))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Collect the converters of the keys and values of this builder. The conditions are not collected, they are
+     * evaluated by {@link #accepts(Object)} before any of these converters.
+     */
+    void collectConverters(final Collection<? super Converter<E, ?>> collector) {
+        collector.add(selectConverter);
+        collector.addAll(converters);
+        addIfSet(collector, lowConverter);
+        addIfSet(collector, highConverter);
+        addIfSet(collector, prefixConverter);
+        addIfSet(collector, effectiveConverter);
+        addIfSet(collector, expiryConverter);
+    }
+
+    private static <C> void addIfSet(final Collection<? super C> collector, @CheckForNull final C converter) {
+        if (converter != null) collector.add(converter);
+    }
+
+    /**
+     * Build the lookup from the rows of values that are already converted from the source data, each converter reads
+     * from its column in the row. The rows must only be those of the source objects {@link #accepts(Object) accepted}
+     * by this builder, so the conditions are not evaluated again.
+     */
+    @SuppressWarnings("unchecked")
+    Lookup<?> build(final Collection<Object[]> rows, final Map<Converter<E, ?>, Integer> columns) {
+        final LookupBuilder<Object[], T> that = new LookupBuilder<Object[], T>(rows);
+        that.duplication = duplication;
+        that.layout = layout;
+        that.equivalence = equivalence;
+        that.stackless = stackless;
+        that.memoryBudget = memoryBudget;
+        that.compactOverBudget = compactOverBudget;
+        that.defaultValue = defaultValue;
+        that.grouped = grouped;
+        that.groupComparator = groupComparator;
+        that.selectConverter = (Converter<Object[], T>) column(columns, selectConverter);
+        for (Converter<E, Object> converter : converters) {
+            that.converters.add(column(columns, converter));
+        }
+        that.lowConverter = column(columns, lowConverter);
+        that.highConverter = column(columns, highConverter);
+        that.prefixConverter = column(columns, prefixConverter);
+        that.effectiveConverter = column(columns, effectiveConverter);
+        that.expiryConverter = column(columns, expiryConverter);
+        return that.build();
+    }
+
+    @CheckForNull
+    private static <E> Converter<Object[], Object> column(final Map<Converter<E, ?>, Integer> columns,
+            @CheckForNull final Converter<E, ?> converter) {
+        if (converter == null) return null;
+        final int index = columns.get(converter);
+        return new Converter<Object[], Object>() {
+            public Object convert(Object[] row) {
+                return row[index];
+            }
+        };
+    }
+
+    private boolean hasSpecialLastLevel() {
+        return lowConverter != null || effectiveConverter != null || prefixConverter != null;
+    }
+
     private class Builder {
-        private final int keyCount = converters.size();
+        private final boolean compact;
+        private final int keyCount = converters.size() + (hasSpecialLastLevel() ? 1 : 0);
+        @CheckForNull
+        private final LookupException notFound = stackless ? StacklessLookupException.NOT_FOUND : null;
         private final Lookup<?>[] chain = buildChain();
         private final Object[] keys = new Object[keyCount];
+        private final Object[] groupedValues = grouped ? new Object[source.size()] : null;
+        private int groupedSize;
+        private final Map<Layout, Integer> layouts = new EnumMap<Layout, Integer>(Layout.class);
+        private long estimatedBytes;
+        private int levels;
+        private long entries;
+        private long pendingEntries;
+        private int lastLevelSize;
+
+        /**
+         * @param compact
+         *            true to use the {@link Layout#SORTED} layout for the levels of string or integral keys, whose
+         *            natural ordering is consistent with equals
+         */
+        Builder(final boolean compact) {
+            this.compact = compact;
+            if (groupedValues != null) charge(Layouts.ARRAY_BYTES + (long) groupedValues.length
+                    * Layouts.REFERENCE_BYTES, 0);
+        }
 
         public Lookup<?> build() {
-            return (keyCount > 1 ? multiLevel(source, 0) : lastLevel(source, converters.get(0)));
+            final Lookup<?> lookup = level(source, 0);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Built lookup of {} source objects using {} layout with key levels of {}, estimated {} bytes",
+                        new Object[] { source.size(), layout, layouts, estimatedBytes });
+            }
+            return lookup;
         }
 
         private Lookup<?>[] buildChain() {
             Lookup<?>[] chain = new Lookup<?>[keyCount];
-            Lookup<?> lookup = new EmptyLookup<T>(defaultValue);
+            Lookup<?> lookup = new EmptyLookup<T>(defaultValue, notFound);
             chain[0] = lookup;
             for (int i = 1; i < keyCount; i++) {
-                lookup = new EmptyLookup<Object>(lookup);
+                lookup = new EmptyLookup<Object>(lookup, notFound);
                 chain[i] = lookup;
             }
             return chain;
         }
 
-        private Lookup<?> multiLevel(final Collection<? extends E> values, int index) {
-    
-            Converter<E, Object> converter = converters.get(index);
-            if (++index == keyCount) return lastLevel(values, converter); // last one
-    
+        private Lookup<?> level(final Collection<? extends E> values, final int index) {
+            if (index == keyCount - 1) {
+                final long pending = pendingEntries;
+                lastLevelSize = 0;
+                final Lookup<?> lookup = lastLevel(values, index == 0 && !conditions.isEmpty());
+                pendingEntries = pending;
+                return built(lookup, lastLevelSize);
+            }
+
+            Converter<E, Object> converter = equivalent(converters.get(index));
             Map<Object, Collection<E>> map = new HashMap<Object, Collection<E>>();
             for (E value : values) {
+                if (index == 0 && !accepts(value)) continue;
                 Object key = converter.convert(value);
                 Collection<E> c = map.get(key);
                 if (c == null) {
                     c = new ArrayList<E>();
                     map.put(key, c);
+                    pending();
                 }
                 c.add(value);
             }
@@ -200,26 +519,212 @@ final class LookupBuilder<E, T> implements Sourced<E, T> {
             Map<Object, Lookup<?>> lookupMap = new HashMap<Object, Lookup<?>>();
             for (Map.Entry<Object, Collection<E>> entry : map.entrySet()) {
                 final Object key = entry.getKey();
-                keys[index - 1] = key;
-                lookupMap.put(key, multiLevel(entry.getValue(), index));
+                keys[index] = EquivalentKey.unwrap(key);
+                lookupMap.put(key, level(entry.getValue(), index + 1));
             }
-    
-            return new MapBasedLookup<Lookup<?>>(lookupMap, chain[keyCount - index - 1]);
+
+            pendingEntries -= map.size();
+            return built(keyLookup(lookupMap, chain[keyCount - index - 2]), lookupMap.size());
         }
 
-        private Lookup<T> lastLevel(final Collection<? extends E> values, Converter<E, Object> converter) {
+        /**
+         * Build the last level, counting the values it accepts in {@link #lastLevelSize}.
+         * 
+         * @param filter
+         *            true to skip the values that don't meet the conditions, which is only needed when the last level
+         *            is the first one
+         */
+        private Lookup<T> lastLevel(final Collection<? extends E> values, final boolean filter) {
+            if (lowConverter != null) return rangeLevel(values, filter);
+            if (effectiveConverter != null) return temporalLevel(values, filter);
+            if (prefixConverter != null) {
+                return TrieLookup.build(keyLevelMap(values, filter, prefixConverter), defaultValue, notFound);
+            }
+            return keyLookup(keyLevelMap(values, filter, equivalent(converters.get(keyCount - 1))), defaultValue);
+        }
+
+        /**
+         * Return the values that meet the conditions when filtering, counting them in {@link #lastLevelSize}. Grouping
+         * passes the values twice, so it gets the accepted values in a list instead of evaluating the conditions again.
+         */
+        private Collection<? extends E> grouping(final Collection<? extends E> values, final boolean filter) {
+            if (!filter) {
+                lastLevelSize = values.size();
+                return values;
+            }
+            final List<E> accepted = new ArrayList<E>();
+            for (E value : values) {
+                if (accepts(value)) accepted.add(value);
+            }
+            lastLevelSize = accepted.size();
+            return accepted;
+        }
+
+        /**
+         * Finish the key level just built, charging its estimated bytes to the memory budget.
+         */
+        private Lookup<?> built(final Lookup<?> lookup, final int size) {
+            levels++;
+            charge(Layouts.estimateBytes(lookup, size), size);
+            return lookup;
+        }
+
+        /**
+         * Count an entry added to a key level being built, and fail early when even the smallest estimate of the
+         * levels being built exceeds the memory budget, before the intermediate maps grow any further.
+         */
+        private void pending() {
+            pendingEntries++;
+            final long bytes = estimatedBytes + pendingEntries * Layouts.REFERENCE_BYTES;
+            if (memoryBudget > 0 && bytes > memoryBudget) {
+                throw new MemoryBudgetException(bytes, memoryBudget, levels, entries + pendingEntries);
+            }
+        }
+
+        private void charge(final long bytes, final int size) {
+            estimatedBytes += bytes;
+            entries += size;
+            if (memoryBudget > 0 && estimatedBytes > memoryBudget) {
+                throw new MemoryBudgetException(estimatedBytes, memoryBudget, levels, entries);
+            }
+        }
+
+        /**
+         * Wrap the keys computed by the converter when the equivalence is set.
+         */
+        private Converter<E, Object> equivalent(final Converter<E, Object> converter) {
+            final Equivalence equivalence = LookupBuilder.this.equivalence;
+            if (equivalence == null) return converter;
+            return new Converter<E, Object>() {
+                public Object convert(E source) {
+                    final Object key = converter.convert(source);
+                    return key == null ? null : new EquivalentKey(key, equivalence);
+                }
+            };
+        }
+
+        private <V> Lookup<V> keyLookup(final Map<Object, V> map, @CheckForNull final V defaultValue) {
+            final Lookup<V> lookup = equivalence == null ? Layouts.create(layoutOf(map), map, defaultValue,
+                    notFound) : Layouts.create(equivalence, map, defaultValue, notFound);
+            final Layout chosen = Layouts.of(lookup);
+            final Integer count = layouts.get(chosen);
+            layouts.put(chosen, count == null ? 1 : count + 1);
+            return lookup;
+        }
+
+        private Layout layoutOf(final Map<Object, ?> map) {
+            if (!compact) return layout;
+            for (Object key : map.keySet()) {
+                if (key != null && !(key instanceof String) && !Utils.isIntegral(key)) return layout;
+            }
+            return Layout.SORTED;
+        }
+
+        private Map<Object, T> keyLevelMap(final Collection<? extends E> values, final boolean filter,
+                Converter<E, Object> converter) {
+            if (grouped) return groupedLevelMap(grouping(values, filter), converter);
             final Map<Object, T> map = new HashMap<Object, T>();
             for (E e : values) {
+                if (filter && !accepts(e)) continue;
+                lastLevelSize++;
                 T value = selectConverter.convert(e);
                 final Object key = converter.convert(e);
-                if (duplication == Duplication.LAST || !map.containsKey(key)) {
+                final boolean added = !map.containsKey(key);
+                if (duplication == Duplication.LAST || added) {
                     map.put(key, value);
+                    if (added) pending();
                 } else if (duplication == Duplication.FAIL) {
-                    keys[keys.length - 1] = key;
+                    keys[keys.length - 1] = EquivalentKey.unwrap(key);
                     throw new DuplicateKeyException(value, map.get(key), keys);
                 }
             }
-            return new MapBasedLookup<T>(map, defaultValue);
+            return map;
+        }
+
+        /**
+         * Group the selected values by the key, into slices of the array shared by all levels.
+         */
+        @SuppressWarnings("unchecked")
+        private Map<Object, T> groupedLevelMap(final Collection<? extends E> values, Converter<E, Object> converter) {
+            final Object[] valueKeys = new Object[values.size()];
+            final Map<Object, int[]> slices = new LinkedHashMap<Object, int[]>();
+            int i = 0;
+            for (E e : values) {
+                final Object key = converter.convert(e);
+                valueKeys[i++] = key;
+                final int[] slice = slices.get(key);
+                if (slice == null) {
+                    slices.put(key, new int[] { 1, 0 });
+                    pending();
+                } else {
+                    slice[0]++;
+                }
+            }
+            for (int[] slice : slices.values()) { // {count, 0} -> {start, start}
+                slice[1] = groupedSize;
+                groupedSize += slice[0];
+                slice[0] = slice[1];
+            }
+            i = 0;
+            for (E e : values) {
+                groupedValues[slices.get(valueKeys[i++])[1]++] = selectConverter.convert(e);
+            }
+            final Map<Object, T> map = new LinkedHashMap<Object, T>();
+            for (Map.Entry<Object, int[]> entry : slices.entrySet()) {
+                final int start = entry.getValue()[0], end = entry.getValue()[1];
+                if (groupComparator != null) Arrays.sort(groupedValues, start, end, groupComparator);
+                map.put(entry.getKey(), (T) new ArraySlice<Object>(groupedValues, start, end - start));
+            }
+            return map;
+        }
+
+        private Lookup<T> rangeLevel(final Collection<? extends E> values, final boolean filter) {
+            final RangeBuilder<T> builder = new RangeBuilder<T>(duplication, keys);
+            if (grouped) {
+                for (Map.Entry<Object, T> entry : groupedLevelMap(grouping(values, filter), new Converter<E, Object>() {
+                    public Object convert(E source) {
+                        return Arrays.asList(lowConverter.convert(source), highConverter.convert(source));
+                    }
+                }).entrySet()) {
+                    final List<?> bounds = (List<?>) entry.getKey();
+                    builder.add(bounds.get(0), bounds.get(1), entry.getValue());
+                }
+                return builder.build(defaultValue, notFound);
+            }
+            for (E e : values) {
+                if (filter && !accepts(e)) continue;
+                lastLevelSize++;
+                builder.add(lowConverter.convert(e), highConverter.convert(e), selectConverter.convert(e));
+                pending();
+            }
+            return builder.build(defaultValue, notFound);
+        }
+
+        private Lookup<T> temporalLevel(final Collection<? extends E> values, final boolean filter) {
+            final TemporalBuilder<T> builder = new TemporalBuilder<T>(duplication, keys, expiryConverter != null);
+            if (grouped) {
+                for (Map.Entry<Object, T> entry : groupedLevelMap(grouping(values, filter), new Converter<E, Object>() {
+                    public Object convert(E source) {
+                        return Arrays.asList(effectiveConverter.convert(source), expiryOf(source));
+                    }
+                }).entrySet()) {
+                    final List<?> times = (List<?>) entry.getKey();
+                    builder.add(times.get(0), times.get(1), entry.getValue());
+                }
+                return builder.build(defaultValue, notFound);
+            }
+            for (E e : values) {
+                if (filter && !accepts(e)) continue;
+                lastLevelSize++;
+                builder.add(effectiveConverter.convert(e), expiryOf(e), selectConverter.convert(e));
+                pending();
+            }
+            return builder.build(defaultValue, notFound);
+        }
+
+        @CheckForNull
+        private Object expiryOf(final E e) {
+            return expiryConverter == null ? null : expiryConverter.convert(e);
         }
     }
 }
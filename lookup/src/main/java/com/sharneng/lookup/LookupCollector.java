@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Builds a lookup from source data that is pushed to it one object at a time, in the shape of the
+ * {@code java.util.stream.Collector}. Each thread accumulates into its own {@link Partial} table, the partial tables
+ * are combined in the encounter order and the combined table is finished into the lookup. No copy of the source data
+ * is kept.
+ * <p>
+ * This library compiles for Java 6, so it cannot implement the {@code Collector} interface itself. With Java 8 it
+ * becomes a collector that works with parallel streams by:
+ * 
+ * <pre>
+ * LookupCollector&lt;Code, Code, Lookup&lt;Code&gt;&gt; c = Lookups.toLookup(byId, self);
+ * Lookup&lt;Code&gt; lookup = codes.parallelStream().collect(
+ *         Collector.of(c::newPartial, c::accumulate, c::combine, c::finish));
+ * </pre>
+ * 
+ * An instance is immutable and can be shared, the options return new instances.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the source data
+ * @param <T>
+ *            type of the reference objects of the lookup
+ * @param <R>
+ *            type of the built lookup, which is nested as many levels as the keys
+ */
+public final class LookupCollector<E, T, R> {
+
+    /**
+     * The table accumulated from part of the source data. It is not thread safe and must be accumulated by one thread
+     * at a time.
+     * 
+     * @param <E>
+     *            type of the source data
+     */
+    public static final class Partial<E> {
+        private final Map<Object, Object> root = new HashMap<Object, Object>();
+
+        private Partial() {
+        }
+    }
+
+    private final Converter<E, Object>[] keyConverters;
+    private final Converter<E, T> valueConverter;
+    private final Duplication duplication;
+    @CheckForNull
+    private final T defaultValue;
+
+    LookupCollector(final Converter<E, Object>[] keyConverters, final Converter<E, T> valueConverter,
+            final Duplication duplication, @CheckForNull final T defaultValue) {
+        this.keyConverters = keyConverters;
+        this.valueConverter = valueConverter;
+        this.duplication = duplication;
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * When same set of key resolve to two or more duplicated values, use the first in the encounter order.
+     * 
+     * @return the collector that keeps the first value
+     */
+    public LookupCollector<E, T, R> useFirstOnDuplicate() {
+        return new LookupCollector<E, T, R>(keyConverters, valueConverter, Duplication.FIRST, defaultValue);
+    }
+
+    /**
+     * When same set of key resolve to two or more duplicated values, use the last in the encounter order.
+     * 
+     * @return the collector that keeps the last value
+     */
+    public LookupCollector<E, T, R> useLastOnDuplicate() {
+        return new LookupCollector<E, T, R>(keyConverters, valueConverter, Duplication.LAST, defaultValue);
+    }
+
+    /**
+     * Set the default value to be returned when the referenced value is not found in the built lookup.
+     * 
+     * @param defaultValue
+     *            the default value to be returned when the referenced value is not found in the built lookup
+     * @return the collector that builds lookup of the default value
+     */
+    public LookupCollector<E, T, R> defaultTo(@CheckForNull final T defaultValue) {
+        return new LookupCollector<E, T, R>(keyConverters, valueConverter, duplication, defaultValue);
+    }
+
+    /**
+     * Create an empty partial table, the {@code supplier} of the collector.
+     * 
+     * @return a new partial table
+     */
+    public Partial<E> newPartial() {
+        return new Partial<E>();
+    }
+
+    /**
+     * Add one source object to the partial table, the {@code accumulator} of the collector.
+     * 
+     * @param partial
+     *            the partial table to add to
+     * @param source
+     *            the source object
+     * @exception DuplicateKeyException
+     *                when the keys are duplicated and the collector is not told to use the first or last
+     */
+    @SuppressWarnings("unchecked")
+    public void accumulate(final Partial<E> partial, final E source) {
+        final int last = keyConverters.length - 1;
+        Map<Object, Object> map = partial.root;
+        final Object[] keys = new Object[keyConverters.length];
+        for (int i = 0; i < last; i++) {
+            keys[i] = keyConverters[i].convert(source);
+            Map<Object, Object> next = (Map<Object, Object>) map.get(keys[i]);
+            if (next == null) {
+                next = new HashMap<Object, Object>();
+                map.put(keys[i], next);
+            }
+            map = next;
+        }
+        keys[last] = keyConverters[last].convert(source);
+        final T value = valueConverter.convert(source);
+        if (!map.containsKey(keys[last])) map.put(keys[last], value);
+        else resolve(map, keys, last, value);
+    }
+
+    /**
+     * Merge the right partial table into the left one, the {@code combiner} of the collector. The source data of the
+     * left table must come before that of the right in the encounter order.
+     * 
+     * @param left
+     *            the partial table of the source data that comes first
+     * @param right
+     *            the partial table of the source data that comes next
+     * @return the left partial table with the right merged
+     * @exception DuplicateKeyException
+     *                when the keys are duplicated and the collector is not told to use the first or last
+     */
+    public Partial<E> combine(final Partial<E> left, final Partial<E> right) {
+        merge(left.root, right.root, new Object[keyConverters.length], 0);
+        return left;
+    }
+
+    /**
+     * Build the lookup from the partial table, the {@code finisher} of the collector.
+     * 
+     * @param partial
+     *            the partial table of all source data
+     * @return the built lookup
+     */
+    @SuppressWarnings("unchecked")
+    public R finish(final Partial<E> partial) {
+        final int last = keyConverters.length - 1;
+        final Object[] defaults = new Object[keyConverters.length];
+        defaults[last] = defaultValue;
+        for (int i = last - 1; i >= 0; i--) {
+            defaults[i] = i == last - 1 ? new EmptyLookup<T>(defaultValue) : new EmptyLookup<Object>(defaults[i + 1]);
+        }
+        return (R) level(partial.root, 0, defaults);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge(final Map<Object, Object> left, final Map<Object, Object> right, final Object[] keys,
+            final int index) {
+        for (Map.Entry<Object, Object> entry : right.entrySet()) {
+            keys[index] = entry.getKey();
+            if (!left.containsKey(keys[index])) left.put(keys[index], entry.getValue());
+            else if (index < keyConverters.length - 1) {
+                merge((Map<Object, Object>) left.get(keys[index]), (Map<Object, Object>) entry.getValue(), keys,
+                        index + 1);
+            } else resolve(left, keys, index, entry.getValue());
+        }
+    }
+
+    private void resolve(final Map<Object, Object> map, final Object[] keys, final int index, final Object value) {
+        if (duplication == Duplication.LAST) map.put(keys[index], value);
+        else if (duplication == Duplication.FAIL) throw new DuplicateKeyException(value, map.get(keys[index]), keys);
+    }
+
+    /**
+     * Build the lookup of the key level bottom up, the default value of each level is the empty chain of the levels
+     * below it as that built by {@link LookupBuilder}.
+     */
+    @SuppressWarnings("unchecked")
+    private Lookup<?> level(final Map<Object, Object> map, final int index, final Object[] defaults) {
+        if (index == keyConverters.length - 1) return Layouts.create(Layout.AUTO, map, defaults[index], null);
+        final Map<Object, Object> lookups = new HashMap<Object, Object>();
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+            lookups.put(entry.getKey(), level((Map<Object, Object>) entry.getValue(), index + 1, defaults));
+        }
+        return Layouts.create(Layout.AUTO, lookups, defaults[index], null);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a getter of a source data class to be used as the key or the selected value of lookups.
+ * <p>
+ * When the {@code lookup-processor} is on the compiler's annotation processor path, it generates a {@code Keys} class
+ * next to the source data class, e.g. {@code CountyCodeKeys} for {@code CountyCode}. The generated class has two
+ * {@link Converter} constants for each annotated getter: one to be used by {@code by(...)} and the other, suffixed by
+ * {@code _VALUE}, to be used by {@code select(...)}. They call the getter directly, so that no reflection is involved
+ * and a misspelled key fails at compile time.
+ * 
+ * <pre>
+ * Lookup&lt;Lookup&lt;String&gt;&gt; lookup = Lookups.from(codes).select(CountyCodeKeys.COUNTY_VALUE)
+ *         .by(CountyCodeKeys.STATE).by(CountyCodeKeys.CODE).index();
+ * </pre>
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface LookupKey {
+
+    /**
+     * The name of the generated constants. When empty, the name is derived from the property name of the getter, e.g.
+     * {@code COUNTY_NAME} for {@code getCountyName()}.
+     * 
+     * @return the name of the generated constants
+     */
+    String value() default "";
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A scan over the entries of a built lookup, obtained from {@link Lookups#scan(Lookup)} or
+ * {@link Lookups#scan(Lookup, int)}. The key of an entry is the key of the lookup, or an unmodifiable list of the keys
+ * of every level when more than one key levels are scanned.
+ * <p>
+ * The scan walks the slots of the arrays that the key levels are built of, so no copy of the source collection is
+ * needed to list the content of a lookup. A scan covers a range of slots of the first key level, which can be split
+ * into smaller scans by {@link #trySplit()} or {@link #split(int)} to scan the parts in parallel. Levels of
+ * {@link Layout#HASH} and {@link Layout#GENERATED} layouts are copied to arrays the first time they are scanned, and
+ * the copies are shared by the scan and the scans split from it. Range and temporal key levels cannot be scanned.
+ * <p>
+ * A scan can be iterated many times, but it is not thread safe. Split it and give each part to one thread.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the reference objects in the last scanned key level
+ */
+public final class LookupScan<T> implements Iterable<Map.Entry<Object, T>> {
+    private static final Slots EMPTY = new ArraySlots(new Object[0], new Object[0]);
+
+    private final Slots slots;
+    private final ConcurrentMap<Object, Slots> copies;
+    private final int keyCount;
+    private int from;
+    private final int to;
+
+    private LookupScan(final Slots slots, final ConcurrentMap<Object, Slots> copies, final int keyCount,
+            final int from, final int to) {
+        this.slots = slots;
+        this.copies = copies;
+        this.keyCount = keyCount;
+        this.from = from;
+        this.to = to;
+    }
+
+    static <T> LookupScan<T> of(final Lookup<?> lookup, final int keyCount) {
+        final ConcurrentMap<Object, Slots> copies = new ConcurrentHashMap<Object, Slots>();
+        final Slots slots = slotsOf(lookup, copies);
+        return new LookupScan<T>(slots, copies, keyCount, 0, slots.slotCount());
+    }
+
+    /**
+     * Return the number of slots of the first key level that this scan covers, which is an estimate of the work left.
+     * Empty slots are included, and so are not the entries of the nested key levels.
+     * 
+     * @return the number of slots to scan
+     */
+    public int estimateSize() {
+        return to - from;
+    }
+
+    /**
+     * Split off the first half of this scan, which then covers only the second half. This is the same contract of
+     * {@code java.util.Spliterator#trySplit()}, so that recursive decomposition as in fork/join works naturally.
+     * 
+     * @return the scan of the first half, or {@code null} if this scan is too small to split
+     */
+    @CheckForNull
+    public LookupScan<T> trySplit() {
+        if (to - from < 2) return null;
+        final int mid = (from + to) >>> 1;
+        final LookupScan<T> prefix = new LookupScan<T>(slots, copies, keyCount, from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    /**
+     * Split this scan into the given number of scans of about the same number of slots. This scan is not changed.
+     * 
+     * @param parts
+     *            the number of scans wanted
+     * @return the scans, fewer than {@code parts} if this scan has not as many slots
+     */
+    public List<LookupScan<T>> split(final int parts) {
+        if (parts <= 0) throw new IllegalArgumentException("Argument parts must be positive.");
+        final int size = to - from, count = Math.max(1, Math.min(parts, size));
+        final List<LookupScan<T>> scans = new ArrayList<LookupScan<T>>(count);
+        for (int i = 0; i < count; i++) {
+            scans.add(new LookupScan<T>(slots, copies, keyCount, from + (int) ((long) size * i / count), from
+                    + (int) ((long) size * (i + 1) / count)));
+        }
+        return scans;
+    }
+
+    /**
+     * Iterate the entries in this scan.
+     * 
+     * @return the iterator of the entries
+     */
+    @Override
+    public Iterator<Map.Entry<Object, T>> iterator() {
+        return new EntryIterator();
+    }
+
+    /**
+     * Return the keys in this scan.
+     * 
+     * @return the keys, as single keys or lists of the keys of every level
+     */
+    public Iterable<Object> keys() {
+        return new Iterable<Object>() {
+            @Override
+            public Iterator<Object> iterator() {
+                final EntryIterator entries = new EntryIterator();
+                return new ReadOnlyIterator<Object>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        entries.advance();
+                        return entries.key();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Return the reference objects in this scan.
+     * 
+     * @return the reference objects of the last scanned key level
+     */
+    public Iterable<T> values() {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                final EntryIterator entries = new EntryIterator();
+                return new ReadOnlyIterator<T>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return entries.advance();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Return the slots of the lookup, taking the copy made before for the levels that are not kept in arrays.
+     */
+    private static Slots slotsOf(final Object lookup, final ConcurrentMap<Object, Slots> copies) {
+        if (lookup instanceof Slots) return (Slots) lookup;
+        if (lookup instanceof HotKeyLookup) return slotsOf(((HotKeyLookup<?>) lookup).getLookup(), copies);
+        if (lookup instanceof EmptyLookup) return EMPTY;
+        final Slots copy = copies.get(lookup);
+        if (copy != null) return copy;
+        final Slots slots;
+        if (lookup instanceof MapBasedLookup) {
+            slots = new ArraySlots(((MapBasedLookup<?>) lookup).getMap());
+        } else if (Layouts.of((Lookup<?>) lookup) == Layout.GENERATED) {
+            slots = new ArraySlots(GeneratedLookups.entriesOf((Lookup<?>) lookup));
+        } else {
+            throw new UnsupportedOperationException("Unable to scan " + lookup);
+        }
+        final Slots raced = copies.putIfAbsent(lookup, slots);
+        return raced == null ? slots : raced;
+    }
+
+    /**
+     * Walks the slots of the key levels depth first, keeping the current slot of every level.
+     */
+    private final class EntryIterator extends ReadOnlyIterator<Map.Entry<Object, T>> {
+        private final Slots[] levels = new Slots[keyCount];
+        private final int[] positions = new int[keyCount];
+        private final int[] ends = new int[keyCount];
+        private final Object[] keys = new Object[keyCount];
+        private int depth;
+        private boolean ready;
+        @CheckForNull
+        private Object value;
+
+        EntryIterator() {
+            levels[0] = slots;
+            positions[0] = from - 1;
+            ends[0] = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ready) return true;
+            while (depth >= 0) {
+                final int position = ++positions[depth];
+                if (position >= ends[depth]) {
+                    depth--;
+                    continue;
+                }
+                final Object found = levels[depth].valueAt(position);
+                if (found == null) continue;
+                keys[depth] = levels[depth].keyAt(position);
+                if (depth == keyCount - 1) {
+                    value = found;
+                    ready = true;
+                    return true;
+                }
+                if (!(found instanceof Lookup)) {
+                    throw new UnsupportedOperationException("Unable to scan " + found + " as key level " + (depth + 2)
+                            + ", the lookup has fewer key levels than " + keyCount);
+                }
+                final Slots nested = slotsOf(found, copies);
+                depth++;
+                levels[depth] = nested;
+                positions[depth] = -1;
+                ends[depth] = nested.slotCount();
+            }
+            return false;
+        }
+
+        @Override
+        public Map.Entry<Object, T> next() {
+            final T value = advance();
+            return new AbstractMap.SimpleImmutableEntry<Object, T>(key(), value);
+        }
+
+        @SuppressWarnings("unchecked")
+        T advance() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return (T) value;
+        }
+
+        Object key() {
+            return keyCount == 1 ? keys[0] : Collections.unmodifiableList(Arrays.asList(keys.clone()));
+        }
+    }
+
+    private abstract static class ReadOnlyIterator<E> implements Iterator<E> {
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The slots of the key levels that are not themselves kept in arrays.
+     */
+    private static final class ArraySlots implements Slots {
+        private final Object[] keys;
+        private final Object[] values;
+
+        ArraySlots(final Object[] keys, final Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        ArraySlots(final Map<?, ?> map) {
+            this(map.keySet().toArray(), map.values().toArray());
+        }
+
+        @Override
+        public int slotCount() {
+            return keys.length;
+        }
+
+        @Override
+        public Object keyAt(final int slot) {
+            return keys[slot];
+        }
+
+        @Override
+        public Object valueAt(final int slot) {
+            return values[slot];
+        }
+    }
+}
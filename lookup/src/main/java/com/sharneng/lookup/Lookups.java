@@ -15,9 +15,11 @@
  */
 package com.sharneng.lookup;
 
+import com.sharneng.lookup.fluent.MultiSourced;
 import com.sharneng.lookup.fluent.Sourced;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import javax.annotation.CheckForNull;
@@ -46,6 +48,19 @@ public final class Lookups {
         return new LookupBuilder<T, T>(source);
     }
 
+    /**
+     * Specify the source data for multiple lookups to be built together in one pass over the source data.
+     * 
+     * @param source
+     *            a collection of source data
+     * @param <T>
+     *            they type of the source data
+     * @return a fluent API interface to be continue declaring the lookups
+     */
+    public static <T> MultiSourced<T> fromAll(@CheckForNull Collection<? extends T> source) {
+        return new MultiLookupBuilder<T>(source);
+    }
+
     /**
      * Creates a lookup based on given map. This is equivalent to {@link #create(Map, Object) create(map, null)}.
      * <p>
@@ -82,7 +97,7 @@ public final class Lookups {
      */
     public static <T> Lookup<T> create(final Map<? extends Object, ? extends T> map, @CheckForNull T defaultValue) {
         if (map == null) throw new IllegalArgumentException(Utils.notNull("map"));
-        return new MapBasedLookup<T>(map, defaultValue);
+        return new MapBasedLookup<T>(map, defaultValue, null);
     }
 
     /* source, string */
@@ -213,4 +228,210 @@ public final class Lookups {
             final String... expressions) {
         return from(source).notEmpty().defaultTo(defaultValue).by(expressions).index();
     }
+
+    /**
+     * Return the layout of a key level of a lookup built by {@link #from(Collection)}, this is the top level of a multi
+     * level lookup.
+     * 
+     * @param lookup
+     *            a key level of a built lookup
+     * @return the layout of the level, or {@code null} if the lookup is not a key level, for example an empty, range or
+     *         prefix lookup
+     * @see com.sharneng.lookup.fluent.Selected#layout(Layout)
+     */
+    @CheckForNull
+    public static Layout layoutOf(@CheckForNull Lookup<?> lookup) {
+        return Layouts.of(lookup);
+    }
+
+    /**
+     * Decorate a large lookup with a small table of its most frequently found keys, which is checked before the lookup.
+     * This helps when a few keys account for most of the finds, so that they are found in a few cache lines instead of
+     * missing the CPU cache in the large lookup.
+     * <p>
+     * The accesses are sampled, and the hottest keys are periodically promoted into the table while the keys that cooled
+     * down are demoted. Finding never locks. The keys passed to find must be immutable, and the lookup must find them by
+     * {@link Object#equals(Object) equals}.
+     * 
+     * @param lookup
+     *            the lookup to decorate
+     * @param capacity
+     *            the maximum number of hot keys, a few hundred is typical
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the lookup decorated with a hot key table
+     */
+    public static <T> Lookup<T> withHotKeys(final Lookup<T> lookup, final int capacity) {
+        if (lookup == null) throw new IllegalArgumentException(Utils.notNull("lookup"));
+        if (capacity <= 0) throw new IllegalArgumentException("Argument capacity must be positive.");
+        return new HotKeyLookup<T>(lookup, capacity);
+    }
+
+    /**
+     * Find the reference object for given key with one probe of the lookup and without throwing exception. The result
+     * is reported by the return value and kept in the {@code result} holder, which can be reused for many finds.
+     * <p>
+     * This is the alternative to calling {@link Lookup#has(Object) has} followed by {@link Lookup#find(Object) find},
+     * which probes the lookup twice, or to catching the exception thrown by {@link Lookup#get(Object) get} and
+     * {@link Lookup#hunt(Object) hunt}. The default value of the lookup is not used.
+     * 
+     * @param lookup
+     *            the lookup to find the reference object
+     * @param key
+     *            the key to lookup the object
+     * @param result
+     *            the holder to receive the reference object found, or {@code null} if not found
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return true if the reference object is found
+     */
+    public static <T> boolean tryFind(final Lookup<T> lookup, @CheckForNull final Object key,
+            final FindResult<? super T> result) {
+        if (lookup == null) throw new IllegalArgumentException(Utils.notNull("lookup"));
+        if (result == null) throw new IllegalArgumentException(Utils.notNull("result"));
+        final T value = lookup.find(key, null);
+        result.setValue(value);
+        return value != null;
+    }
+
+    /**
+     * Create a lookup that overrides and removes a few reference objects of a shared base lookup, without copying the
+     * base. The memory used by the overlay is proportional to the number of overridden and removed keys. Finding probes
+     * the overrides first and then the base, so at most two lookups are probed even when overlays are stacked on
+     * overlays. The default value of the overlay is that of the base, and so are the key equivalence and the exception
+     * thrown when not found.
+     * <p>
+     * The overlay takes a copy of the overrides and removals, the base must not change after the overlay is created.
+     * 
+     * @param base
+     *            the lookup to be overlaid, which can be shared by many overlays
+     * @param overrides
+     *            the map of the keys to the reference objects that replace those in the base or are added
+     * @param removals
+     *            the keys of which the reference objects in the base are removed, can be {@code null}
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the lookup of the overrides on the base
+     */
+    public static <T> Lookup<T> overlay(final Lookup<T> base, final Map<?, ? extends T> overrides,
+            @CheckForNull final Collection<?> removals) {
+        if (base == null) throw new IllegalArgumentException(Utils.notNull("base"));
+        if (overrides == null) throw new IllegalArgumentException(Utils.notNull("overrides"));
+        return OverlayLookup.create(base, overrides, removals == null ? Collections.emptySet() : removals);
+    }
+
+    /**
+     * Create a collector that builds a lookup from source data pushed to it, e.g. by a parallel stream, without
+     * collecting the source data first.
+     * 
+     * @param keyConverter
+     *            the converter to compute the key from the source data
+     * @param valueConverter
+     *            the converter to compute the reference object from the source data
+     * @param <E>
+     *            type of the source data
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the collector of the lookup
+     * @see LookupCollector
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static <E, T> LookupCollector<E, T, Lookup<T>> toLookup(final Converter<E, Object> keyConverter,
+            final Converter<E, T> valueConverter) {
+        return collector(new Converter[] { keyConverter }, valueConverter);
+    }
+
+    /**
+     * Create a collector that builds a lookup of two levels of keys from source data pushed to it, e.g. by a parallel
+     * stream, without collecting the source data first.
+     * 
+     * @param keyConverter1
+     *            the converter to compute the first key from the source data
+     * @param keyConverter2
+     *            the converter to compute the second key from the source data
+     * @param valueConverter
+     *            the converter to compute the reference object from the source data
+     * @param <E>
+     *            type of the source data
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the collector of the lookup
+     * @see LookupCollector
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static <E, T> LookupCollector<E, T, Lookup<Lookup<T>>> toLookup(final Converter<E, Object> keyConverter1,
+            final Converter<E, Object> keyConverter2, final Converter<E, T> valueConverter) {
+        return collector(new Converter[] { keyConverter1, keyConverter2 }, valueConverter);
+    }
+
+    /**
+     * Create a collector that builds a lookup of any levels of keys from source data pushed to it, e.g. by a parallel
+     * stream, without collecting the source data first.
+     * 
+     * @param keyConverters
+     *            the converters to compute the keys of each level from the source data
+     * @param valueConverter
+     *            the converter to compute the reference object from the source data
+     * @param <E>
+     *            type of the source data
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the collector of the lookup
+     * @see LookupCollector
+     */
+    public static <E, T> LookupCollector<E, T, Lookup<?>> toLookup(final Converter<E, Object>[] keyConverters,
+            final Converter<E, T> valueConverter) {
+        return collector(keyConverters, valueConverter);
+    }
+
+    private static <E, T, R> LookupCollector<E, T, R> collector(final Converter<E, Object>[] keyConverters,
+            final Converter<E, T> valueConverter) {
+        if (keyConverters == null) throw new IllegalArgumentException(Utils.notNull("keyConverters"));
+        if (keyConverters.length == 0) throw new IllegalArgumentException(
+                "Argument keyConverters must not be empty");
+        for (int i = 0; i < keyConverters.length; i++) {
+            if (keyConverters[i] == null) throw new IllegalArgumentException(Utils.notNullIndexed("keyConverter",
+                    i + 1));
+        }
+        if (valueConverter == null) throw new IllegalArgumentException(Utils.notNull("valueConverter"));
+        return new LookupCollector<E, T, R>(keyConverters.clone(), valueConverter, Duplication.FAIL, null);
+    }
+
+    /**
+     * Scan the entries of a lookup built by this library. The scan can be split to scan the parts in parallel.
+     * 
+     * @param lookup
+     *            the lookup to scan
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the scan of the entries of the lookup
+     * @exception UnsupportedOperationException
+     *                if the lookup is not of a layout that can be scanned
+     * @see LookupScan
+     */
+    public static <T> LookupScan<T> scan(final Lookup<T> lookup) {
+        return scan(lookup, 1);
+    }
+
+    /**
+     * Scan the entries of the given number of nested key levels of a lookup built by this library. The key of each
+     * entry is the list of the keys of every level, and the value is the reference object in the last scanned level.
+     * The scan can be split by the slots of the first level to scan the parts in parallel.
+     * 
+     * @param lookup
+     *            the lookup to scan
+     * @param keyCount
+     *            the number of key levels to scan
+     * @param <T>
+     *            type of the reference object in the last scanned level
+     * @return the scan of the entries of the lookup
+     * @exception UnsupportedOperationException
+     *                if a key level is not of a layout that can be scanned, or the lookup has fewer key levels
+     * @see LookupScan
+     */
+    public static <T> LookupScan<T> scan(final Lookup<?> lookup, final int keyCount) {
+        if (lookup == null) throw new IllegalArgumentException(Utils.notNull("lookup"));
+        if (keyCount <= 0) throw new IllegalArgumentException("Argument keyCount must be positive.");
+        return LookupScan.of(lookup, keyCount);
+    }
 }
@@ -15,16 +15,20 @@
  */
 package com.sharneng.lookup;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.annotation.CheckForNull;
 
-class MapBasedLookup<T> extends AbstractLookup<T> {
+class MapBasedLookup<T> extends AbstractLookup<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private final Map<? extends Object, ? extends T> map;
 
-    MapBasedLookup(final Map<? extends Object, ? extends T> map, @CheckForNull T defaultValue) {
-        super(defaultValue);
+    MapBasedLookup(final Map<? extends Object, ? extends T> map, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
         this.map = new HashMap<Object, T>(map);
     }
 
@@ -32,4 +36,15 @@ class MapBasedLookup<T> extends AbstractLookup<T> {
     protected T lookup(final Object key) {
         return map.get(key);
     }
+
+    Map<? extends Object, ? extends T> getMap() {
+        return map;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+/**
+ * Indicates the estimated memory of the lookup being built exceeds the budget set by
+ * {@link com.sharneng.lookup.fluent.Selected#memoryBudget(long)}. The build is stopped before it uses much more memory
+ * than the budget.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public class MemoryBudgetException extends LookupBuildException {
+    private static final long serialVersionUID = 1L;
+
+    private final long estimatedBytes;
+    private final long budgetBytes;
+    private final int levels;
+    private final long entries;
+
+    /**
+     * Construct a new {@link MemoryBudgetException}.
+     * 
+     * @param estimatedBytes
+     *            the estimated bytes of the key levels built so far
+     * @param budgetBytes
+     *            the memory budget
+     * @param levels
+     *            the number of key levels built so far
+     * @param entries
+     *            the number of entries in the key levels built so far
+     */
+    public MemoryBudgetException(final long estimatedBytes, final long budgetBytes, final int levels,
+            final long entries) {
+        super("Estimated " + estimatedBytes + " bytes of " + levels + " key levels with " + entries
+                + " entries exceeds the memory budget of " + budgetBytes + " bytes");
+        this.estimatedBytes = estimatedBytes;
+        this.budgetBytes = budgetBytes;
+        this.levels = levels;
+        this.entries = entries;
+    }
+
+    /**
+     * Return the estimated bytes of the key levels built when the budget is exceeded.
+     * 
+     * @return the estimated bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Return the memory budget that is exceeded.
+     * 
+     * @return the budget in bytes
+     */
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Return the number of key levels built when the budget is exceeded, which counts every nested lookup.
+     * 
+     * @return the number of key levels
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * Return the number of entries in the key levels built when the budget is exceeded.
+     * 
+     * @return the number of entries
+     */
+    public long getEntries() {
+        return entries;
+    }
+}
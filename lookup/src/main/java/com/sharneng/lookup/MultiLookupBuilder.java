@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import com.sharneng.lookup.fluent.MultiSourced;
+import com.sharneng.lookup.fluent.Sourced;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Builds multiple lookups over the same source data in one pass.
+ * <p>
+ * Every source element is converted once to a row of the values of the distinct converters used by the declared
+ * lookups. The conditions of each lookup are evaluated first, and only the converters of the lookups that accept the
+ * element are evaluated, so a rejected element never reaches the key and value converters of that lookup and an
+ * element rejected by all lookups keeps no row. Each lookup is then built from the rows it accepts, so the OGNL
+ * expressions are not evaluated again and the selected values are shared by all the lookups.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the source data
+ */
+final class MultiLookupBuilder<E> implements MultiSourced<E> {
+    private final Collection<? extends E> source;
+    private final List<LookupBuilder<E, ?>> builders = new ArrayList<LookupBuilder<E, ?>>();
+    @CheckForNull
+    private Map<LookupBuilder<E, ?>, Lookup<?>> lookups;
+
+    MultiLookupBuilder(@CheckForNull final Collection<? extends E> source) {
+        this.source = source == null ? new ArrayList<E>() : source;
+    }
+
+    @Override
+    public synchronized Sourced<E, E> lookup() {
+        if (lookups != null) throw new IllegalStateException("Lookups are already built");
+        final LookupBuilder<E, E> builder = new LookupBuilder<E, E>(source, this);
+        builders.add(builder);
+        return builder;
+    }
+
+    @Override
+    public synchronized void index() {
+        if (lookups != null) return;
+
+        final List<LookupBuilder<E, ?>> defined = new ArrayList<LookupBuilder<E, ?>>();
+        final Set<Converter<E, ?>> distinct = new LinkedHashSet<Converter<E, ?>>();
+        for (LookupBuilder<E, ?> builder : builders) {
+            if (!builder.isDefined()) continue;
+            defined.add(builder);
+            builder.collectConverters(distinct);
+        }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final Converter<E, ?>[] converters = distinct.toArray(new Converter[distinct.size()]);
+        final Map<Converter<E, ?>, Integer> columns = new LinkedHashMap<Converter<E, ?>, Integer>();
+        for (int i = 0; i < converters.length; i++) {
+            columns.put(converters[i], i);
+        }
+
+        final int[][] columnsOf = new int[defined.size()][];
+        final List<List<Object[]>> rowsOf = new ArrayList<List<Object[]>>(defined.size());
+        for (int b = 0; b < columnsOf.length; b++) {
+            final Set<Converter<E, ?>> used = new LinkedHashSet<Converter<E, ?>>();
+            defined.get(b).collectConverters(used);
+            columnsOf[b] = new int[used.size()];
+            int i = 0;
+            for (Converter<E, ?> converter : used) {
+                columnsOf[b][i++] = columns.get(converter);
+            }
+            rowsOf.add(new ArrayList<Object[]>());
+        }
+
+        final boolean[] converted = new boolean[converters.length];
+        Object[] row = null;
+        for (E e : source) {
+            if (row == null) row = new Object[converters.length];
+            Arrays.fill(converted, false);
+            boolean accepted = false;
+            for (int b = 0; b < columnsOf.length; b++) {
+                if (!defined.get(b).accepts(e)) continue;
+                for (int i : columnsOf[b]) {
+                    if (converted[i]) continue;
+                    row[i] = converters[i].convert(e);
+                    converted[i] = true;
+                }
+                rowsOf.get(b).add(row);
+                accepted = true;
+            }
+            if (accepted) row = null;
+        }
+
+        final Map<LookupBuilder<E, ?>, Lookup<?>> built = new IdentityHashMap<LookupBuilder<E, ?>, Lookup<?>>();
+        for (int b = 0; b < columnsOf.length; b++) {
+            built.put(defined.get(b), defined.get(b).build(rowsOf.get(b), columns));
+        }
+        lookups = built;
+    }
+
+    synchronized Lookup<?> indexOf(final LookupBuilder<E, ?> builder) {
+        index();
+        final Lookup<?> lookup = lookups.get(builder);
+        if (lookup == null) throw new IllegalStateException("Lookup was not completely declared before the lookups are"
+                + " built");
+        return lookup;
+    }
+}
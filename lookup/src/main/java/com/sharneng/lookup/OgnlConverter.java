@@ -15,29 +15,66 @@
  */
 package com.sharneng.lookup;
 
+import javax.annotation.CheckForNull;
+
 import ognl.Ognl;
 import ognl.OgnlException;
 
 class OgnlConverter<TFrom, TTo> implements Converter<TFrom, TTo> {
+    private static final class Resolved {
+        private final Class<?> sourceClass;
+        @CheckForNull
+        private final AccessorChain chain;
+
+        private Resolved(final Class<?> sourceClass, @CheckForNull final AccessorChain chain) {
+            this.sourceClass = sourceClass;
+            this.chain = chain;
+        }
+    }
+
+    private final String text;
     private final Object expression;
     private final Class<? extends TTo> resultClass;
+    @CheckForNull
+    private volatile Resolved resolved;
 
     public OgnlConverter(final Class<? extends TTo> clazz, final String expression) {
         this.resultClass = clazz;
-        try {
-            this.expression = Ognl.parseExpression(expression);
-        } catch (OgnlException e) {
-            throw new LookupBuildException(e);
-        }
+        this.text = expression;
+        this.expression = ExpressionCache.parse(expression, clazz);
     }
 
     public TTo convert(final TFrom source) {
-        try {
-            Object result = source == null ? null : Ognl.getValue(expression, source);
-            return resultClass.cast(result);
-        } catch (OgnlException e) {
-            throw new LookupBuildException(e);
+        if (source == null) return null;
+        Resolved r = resolved;
+        if (r == null || r.sourceClass != source.getClass()) {
+            final Object chain = ExpressionCache.resolve(text, source, resultClass);
+            r = new Resolved(source.getClass(), chain instanceof AccessorChain ? (AccessorChain) chain : null);
+            resolved = r;
         }
+        Object result = r.chain == null ? AccessorChain.UNRESOLVED : r.chain.get(source);
+        if (result == AccessorChain.UNRESOLVED) {
+            try {
+                result = Ognl.getValue(expression, source);
+            } catch (OgnlException e) {
+                throw new LookupBuildException(e);
+            }
+        }
+        return resultClass.cast(result);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        return text.hashCode() * prime + resultClass.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof OgnlConverter<?, ?>)) return false;
+        final OgnlConverter<?, ?> other = (OgnlConverter<?, ?>) obj;
+        return text.equals(other.text) && resultClass.equals(other.resultClass);
     }
 
 }
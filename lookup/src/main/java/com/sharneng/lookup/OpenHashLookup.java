@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup backed by an open addressing hash table with linear probing. Keys, values and hash codes are kept in parallel
+ * arrays that are at most half full, so a lookup usually reads one slot and calls {@code equals} only on a hash match.
+ * <p>
+ * When an {@link Equivalence} is given, it is used in place of the {@code hashCode} and {@code equals} of the keys.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class OpenHashLookup<T> extends AbstractLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int mask;
+    private final int[] hashes;
+    private final Object[] keys;
+    private final Object[] values;
+    @CheckForNull
+    private final Equivalence equivalence;
+
+    OpenHashLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        this(keys, null, values, defaultValue, notFoundException, null);
+    }
+
+    /**
+     * Create the lookup with the hash codes of the keys already computed by the equivalence when given.
+     */
+    OpenHashLookup(final Object[] keys, @CheckForNull final int[] hashes, final Object[] values,
+            @CheckForNull T defaultValue, @CheckForNull final LookupException notFoundException,
+            @CheckForNull final Equivalence equivalence) {
+        super(defaultValue, notFoundException);
+        this.equivalence = equivalence;
+        int capacity = 2;
+        while (capacity < keys.length * 2) capacity <<= 1;
+        this.mask = capacity - 1;
+        this.hashes = new int[capacity];
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            final int hash = spread(hashes == null ? hashOf(keys[i]) : hashes[i]);
+            int slot = hash & mask;
+            while (this.keys[slot] != null) slot = (slot + 1) & mask;
+            this.hashes[slot] = hash;
+            this.keys[slot] = keys[i];
+            this.values[slot] = values[i];
+        }
+    }
+
+    @CheckForNull
+    Equivalence getEquivalence() {
+        return equivalence;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        final int hash = spread(hashOf(key));
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            final Object k = keys[slot];
+            if (k == null) return null;
+            if (hashes[slot] == hash && (k == key || equivalent(key, k))) return (T) values[slot];
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        return keys.length;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    private int hashOf(final Object key) {
+        return equivalence == null ? key.hashCode() : equivalence.hash(key);
+    }
+
+    private boolean equivalent(final Object key, final Object k) {
+        return equivalence == null ? key.equals(k) : equivalence.equivalent(key, k);
+    }
+
+    private static int spread(final int h) {
+        final int shift = 16;
+        return h ^ (h >>> shift);
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
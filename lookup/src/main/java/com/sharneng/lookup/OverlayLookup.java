@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A lookup of a small layer of overrides on top of a shared base lookup. The layer holds the replaced and added
+ * reference objects, and a tombstone for each removed key, so finding probes the layer once and the base at most once.
+ * <p>
+ * An overlay on another overlay merges the two layers and shares the base underneath, so finding never probes more than
+ * two lookups however many overlays are stacked.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+final class OverlayLookup<T> extends AbstractLookup<T> {
+    private static final Object TOMBSTONE = new Object();
+
+    private final Lookup<T> base;
+    private final Lookup<Object> layer;
+
+    private OverlayLookup(final Lookup<T> base, final Lookup<Object> layer,
+            @CheckForNull final LookupException notFound) {
+        super(base.find(null), notFound);
+        this.base = base;
+        this.layer = layer;
+    }
+
+    /**
+     * Create the overlay of the overrides and removals on the base lookup. The layer matches the keys by the same
+     * {@link Equivalence} as the base, and the overlay throws the same preallocated exception when not found.
+     */
+    static <T> OverlayLookup<T> create(final Lookup<T> base, final Map<?, ? extends T> overrides,
+            final Collection<?> removals) {
+        final Map<Object, Object> entries = new HashMap<Object, Object>();
+        final Lookup<T> shared = base instanceof OverlayLookup ? ((OverlayLookup<T>) base).base : base;
+        final Equivalence equivalence = shared instanceof OpenHashLookup ? ((OpenHashLookup<?>) shared)
+                .getEquivalence() : null;
+        if (base instanceof OverlayLookup) {
+            for (Map.Entry<Object, Object> entry : LookupScan.<Object> of(((OverlayLookup<T>) base).layer, 1)) {
+                entries.put(keyOf(entry.getKey(), equivalence), entry.getValue());
+            }
+        }
+        for (Map.Entry<?, ? extends T> entry : overrides.entrySet()) {
+            if (entry.getKey() == null) throw new IllegalArgumentException("Overrides must not have null key.");
+            if (entry.getValue() == null) throw new IllegalArgumentException("Override of key " + entry.getKey()
+                    + " must not be null.");
+            entries.put(keyOf(entry.getKey(), equivalence), entry.getValue());
+        }
+        for (Object key : removals) {
+            if (key == null) throw new IllegalArgumentException("Removals must not have null key.");
+            if (overrides.containsKey(key)) throw new IllegalArgumentException("Key " + key
+                    + " cannot be both overridden and removed.");
+            entries.put(keyOf(key, equivalence), TOMBSTONE);
+        }
+        final LookupException notFound = notFoundOf(shared);
+        final Lookup<Object> layer = equivalence == null ? Layouts.create(Layout.AUTO, entries, null, notFound)
+                : Layouts.create(equivalence, entries, null, notFound);
+        return new OverlayLookup<T>(shared, layer, notFound);
+    }
+
+    private static Object keyOf(final Object key, @CheckForNull final Equivalence equivalence) {
+        return equivalence == null ? key : new EquivalentKey(key, equivalence);
+    }
+
+    @CheckForNull
+    private static LookupException notFoundOf(final Lookup<?> lookup) {
+        if (lookup instanceof AbstractLookup) return ((AbstractLookup<?>) lookup).getNotFoundException();
+        if (lookup instanceof EmptyLookup) return ((EmptyLookup<?>) lookup).getNotFoundException();
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        final Object value = layer.find(key, null);
+        if (value == null) return base.find(key, null);
+        return value == TOMBSTONE ? null : (T) value;
+    }
+
+    /**
+     * Return the base lookup that is shared by the overlays.
+     */
+    Lookup<T> getBase() {
+        return base;
+    }
+}
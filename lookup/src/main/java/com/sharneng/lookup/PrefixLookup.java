@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A {@link Lookup} of which the keys are character sequences, and that can find the reference object of the longest key
+ * that is a prefix of a given text.
+ * <p>
+ * All methods in this interface must be thread safe.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            the type of the object to be looked up.
+ */
+public interface PrefixLookup<T> extends Lookup<T> {
+
+    /**
+     * Find and return the reference object of the longest key that is a prefix of the given text, or return a default
+     * value when no key is a prefix of the text.
+     * <p>
+     * The default value is implementation dependent and maybe null.
+     * 
+     * @param text
+     *            the text to match the keys against
+     * @return the reference object found or a default value if not found
+     */
+    @CheckForNull
+    T findLongestPrefix(@CheckForNull CharSequence text);
+
+    /**
+     * Find and return the reference object of the longest key that is a prefix of the given text, or return the
+     * specified default value when no key is a prefix of the text.
+     * 
+     * @param text
+     *            the text to match the keys against
+     * @param defaultValue
+     *            the default value, which can be {@code null}, to be returned if object is not found
+     * @return the reference object found or {@code defaultValue} if not found
+     */
+    @CheckForNull
+    T findLongestPrefix(@CheckForNull CharSequence text, @CheckForNull T defaultValue);
+}
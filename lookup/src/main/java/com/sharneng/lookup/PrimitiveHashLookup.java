@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup of integral keys of same class backed by an open addressing hash table of primitive keys with linear probing.
+ * The keys are kept unboxed in a {@code long} array that is at most half full, so a probe compares consecutive keys in
+ * the same cache lines without dereferencing or calling {@code equals}.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class PrimitiveHashLookup<T> extends AbstractIntegralLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final int shift;
+    private final int mask;
+    private final long[] keys;
+    private final Object[] values;
+
+    /**
+     * Create a primitive hash lookup. The keys must be integral of the same class, see {@link #isIntegral(Object[])}.
+     */
+    PrimitiveHashLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(keys[0].getClass(), defaultValue, notFoundException);
+        final int bits = Long.SIZE;
+        int capacity = 2;
+        while (capacity < keys.length * 2) capacity <<= 1;
+        this.shift = bits - Integer.numberOfTrailingZeros(capacity);
+        this.mask = capacity - 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            final long key = ((Number) keys[i]).longValue();
+            int slot = slot(key);
+            while (this.values[slot] != null) slot = (slot + 1) & mask;
+            this.keys[slot] = key;
+            this.values[slot] = values[i];
+        }
+    }
+
+    /**
+     * Create a primitive hash lookup from the hash table built by another instance. The capacity is the length of the
+     * arrays.
+     */
+    PrimitiveHashLookup(final Class<?> keyClass, final long[] keys, final Object[] values,
+            @CheckForNull T defaultValue, @CheckForNull final LookupException notFoundException) {
+        super(keyClass, defaultValue, notFoundException);
+        this.shift = Long.SIZE - Integer.numberOfTrailingZeros(values.length);
+        this.mask = values.length - 1;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    T lookup(final long key) {
+        final long[] keys = this.keys;
+        final Object[] values = this.values;
+        for (int slot = slot(key);; slot = (slot + 1) & mask) {
+            final Object value = values[slot];
+            if (value == null || keys[slot] == key) return (T) value;
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        return values.length;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keyOf(keys[slot]);
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Fibonacci hashing, the high bits of the product are well mixed from all bits of the key.
+     */
+    private int slot(final long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Collects intervals and builds a range lookup from them.
+ * <p>
+ * Bounds are inclusive. Overlapping intervals are resolved by the {@link Duplication} policy: {@code FAIL} rejects
+ * them, {@code FIRST} drops an interval that overlaps any one added before it, and {@code LAST} drops all earlier
+ * intervals that overlap a later one. When all bounds are integral numbers, the lookup is backed by primitive arrays.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+final class RangeBuilder<T> {
+    private static final class Range {
+        private final Object low;
+        private final Object high;
+        private final Object value;
+
+        private Range(final Object low, final Object high, final Object value) {
+            this.low = low;
+            this.high = high;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + low + ", " + high + "]";
+        }
+    }
+
+    private final Duplication duplication;
+    private final Object[] keys;
+    private final List<Range> ranges = new ArrayList<Range>();
+    private boolean integral = true;
+
+    /**
+     * @param duplication
+     *            policy to resolve overlapping intervals
+     * @param keys
+     *            keys of the outer levels to report in error, the last element is reserved for the interval
+     */
+    RangeBuilder(final Duplication duplication, final Object[] keys) {
+        this.duplication = duplication;
+        this.keys = keys;
+    }
+
+    void add(@CheckForNull final Object low, @CheckForNull final Object high, @CheckForNull final T value) {
+        if (!(low instanceof Comparable<?>) || !(high instanceof Comparable<?>)) throw new LookupBuildException(
+                "Range bounds must be non null Comparable but got [" + low + ", " + high + "] for object " + value);
+        integral = integral && Utils.isIntegral(low) && Utils.isIntegral(high);
+        ranges.add(new Range(low, high, value));
+    }
+
+    Lookup<T> build(@CheckForNull final T defaultValue, @CheckForNull final LookupException notFound) {
+        final Map<Object, Range> resolved;
+        try {
+            resolved = resolve();
+        } catch (ClassCastException e) {
+            throw new LookupBuildException("Range bounds are not mutually comparable", e);
+        }
+        final int size = resolved.size();
+        final Object[] values = new Object[size];
+        int i = 0;
+        if (integral) {
+            final long[] lows = new long[size], highs = new long[size];
+            for (Range r : resolved.values()) {
+                lows[i] = (Long) r.low;
+                highs[i] = (Long) r.high;
+                values[i++] = r.value;
+            }
+            return new LongRangeLookup<T>(lows, highs, values, defaultValue, notFound);
+        }
+        final Object[] lows = new Object[size], highs = new Object[size];
+        for (Range r : resolved.values()) {
+            lows[i] = r.low;
+            highs[i] = r.high;
+            values[i++] = r.value;
+        }
+        return new ComparableRangeLookup<T>(lows, highs, values, defaultValue, notFound);
+    }
+
+    private TreeMap<Object, Range> resolve() {
+        final TreeMap<Object, Range> accepted = new TreeMap<Object, Range>();
+        for (final Range added : ranges) {
+            final Range range = integral ? new Range(((Number) added.low).longValue(),
+                    ((Number) added.high).longValue(), added.value) : added;
+            if (Utils.compare(range.low, range.high) > 0) throw new LookupBuildException("Range low bound "
+                    + range.low + " is greater than high bound " + range.high + " for object " + range.value);
+            // accepted ranges never overlap, so the one with greatest low bound not after the high bound of the new
+            // range has the greatest high bound among all that can overlap.
+            final Iterator<Range> overlaps = accepted.headMap(range.high, true).descendingMap().values().iterator();
+            boolean keep = true;
+            while (keep && overlaps.hasNext()) {
+                final Range previous = overlaps.next();
+                if (Utils.compare(previous.high, range.low) < 0) break;
+                if (duplication == Duplication.FAIL) {
+                    keys[keys.length - 1] = range;
+                    throw new DuplicateKeyException(range.value, previous.value, keys);
+                }
+                if (duplication == Duplication.FIRST) keep = false;
+                else overlaps.remove();
+            }
+            if (keep) accepted.put(range.low, range);
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * The compact serial form of the lookups built by {@link LookupBuilder}, so a built lookup can be shipped to the
+ * workers instead of the source objects to build it again.
+ * <p>
+ * The whole tree of key levels is written in one pass. Each value is written with a tag byte. The nested levels of
+ * every layout, the range, temporal and prefix levels, the lists of the grouped levels and the {@link EmptyLookup}
+ * defaults are written inline, and a level already written is written again as a reference,
+ * so the shared default chains stay shared. The strings are written once to a dictionary and referenced by index
+ * afterwards, other objects are written by {@link ObjectOutput#writeObject(Object)}. Counts and references are written
+ * as variable length integers, and integral keys unboxed.
+ * <p>
+ * The arrays of the levels are restored as they are, without sorting or hashing. The exceptions are the
+ * {@link Layout#OPEN} and {@link Layout#HASH} layouts, which call {@link Object#hashCode()} of the keys again, because
+ * the hash codes of the keys are not necessarily the same in another process.
+ * <p>
+ * The levels of the {@link Layout#GENERATED} layout are not serializable, because their classes are defined at
+ * runtime. Neither are the lookups wrapped for the hot keys, which are tuned to the workload of the process.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class SerializedLookup implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final int VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int OBJECT = 1;
+    private static final int STRING = 2;
+    private static final int STRING_REF = 3;
+    private static final int LOOKUP_REF = 4;
+    private static final int EMPTY = 5;
+    private static final int HASH = 6;
+    private static final int LINEAR = 7;
+    private static final int OPEN = 8;
+    private static final int DENSE = 9;
+    private static final int PRIMITIVE = 10;
+    private static final int ENUM = 11;
+    private static final int SORTED = 12;
+    private static final int EYTZINGER = 13;
+    private static final int INTEGRAL_EYTZINGER = 14;
+    private static final int SLICE = 15;
+    private static final int LONG_RANGE = 16;
+    private static final int COMPARABLE_RANGE = 17;
+    private static final int TEMPORAL = 18;
+    private static final int TRIE = 19;
+
+    private static final Equivalence[] EQUIVALENCES = { null, Equivalences.natural(), Equivalences.identity(),
+            Equivalences.charSequences() };
+    private static final Class<?>[] INTEGRAL_CLASSES = { Integer.class, Long.class, Short.class, Byte.class };
+
+    /** Strings longer than this may exceed the limit of {@link ObjectOutput#writeUTF(String)}. */
+    private static final int MAX_UTF_LENGTH = 0xFFFF / 3;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+
+    @CheckForNull
+    private Object lookup;
+
+    /**
+     * Construct an empty instance to read into, as required by {@link Externalizable}.
+     */
+    public SerializedLookup() {
+    }
+
+    SerializedLookup(final Lookup<?> lookup) {
+        this.lookup = lookup;
+    }
+
+    @Override
+    public void writeExternal(final ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        new Writer(out).value(lookup);
+    }
+
+    @Override
+    public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+        final int version = in.readUnsignedByte();
+        if (version != VERSION) throw new InvalidObjectException("Unsupported serial form version " + version);
+        lookup = new Reader(in).value();
+    }
+
+    private Object readResolve() {
+        return lookup;
+    }
+
+    private static void writeVarInt(final ObjectOutput out, final int value) throws IOException {
+        int v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            out.writeByte((v & VARINT_MASK) | VARINT_MORE);
+            v >>>= VARINT_BITS;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(final ObjectInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0;; shift += VARINT_BITS) {
+            final int b = in.readUnsignedByte();
+            value |= (b & VARINT_MASK) << shift;
+            if ((b & VARINT_MORE) == 0) return value;
+        }
+    }
+
+    private static <T> int indexOf(final T[] array, @CheckForNull final T element) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == element) return i;
+        }
+        return -1;
+    }
+
+    private static final class Writer {
+        private final ObjectOutput out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+        private final Map<Object, Integer> lookups = new IdentityHashMap<Object, Integer>();
+
+        Writer(final ObjectOutput out) {
+            this.out = out;
+        }
+
+        void value(@CheckForNull final Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String) {
+                string((String) value);
+            } else if (value instanceof ArraySlice) {
+                out.writeByte(SLICE);
+                values(((ArraySlice<?>) value).toArray());
+            } else if (lookups.containsKey(value)) {
+                out.writeByte(LOOKUP_REF);
+                writeVarInt(out, lookups.get(value));
+            } else if (lookup(value)) {
+                lookups.put(value, lookups.size());
+            } else {
+                out.writeByte(OBJECT);
+                out.writeObject(value);
+            }
+        }
+
+        private void string(final String value) throws IOException {
+            final Integer index = strings.get(value);
+            if (index != null) {
+                out.writeByte(STRING_REF);
+                writeVarInt(out, index);
+            } else if (value.length() > MAX_UTF_LENGTH) {
+                out.writeByte(OBJECT);
+                out.writeObject(value);
+            } else {
+                strings.put(value, strings.size());
+                out.writeByte(STRING);
+                out.writeUTF(value);
+            }
+        }
+
+        /**
+         * Write the lookup if it is a key level or an empty lookup, otherwise return false.
+         */
+        private boolean lookup(final Object value) throws IOException {
+            if (value instanceof EmptyLookup) {
+                final EmptyLookup<?> empty = (EmptyLookup<?>) value;
+                out.writeByte(EMPTY);
+                value(empty.find(null));
+                out.writeBoolean(empty.isStackless());
+            } else if (value instanceof MapBasedLookup) {
+                final Map<?, ?> map = ((MapBasedLookup<?>) value).getMap();
+                header(HASH, (AbstractLookup<?>) value);
+                writeVarInt(out, map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    value(entry.getKey());
+                    value(entry.getValue());
+                }
+            } else if (value instanceof LinearLookup || value instanceof OpenHashLookup) {
+                final boolean open = value instanceof OpenHashLookup;
+                header(open ? OPEN : LINEAR, (AbstractLookup<?>) value);
+                if (open) equivalence(((OpenHashLookup<?>) value).getEquivalence());
+                entries((Slots) value);
+            } else if (value instanceof SortedLookup || value instanceof EytzingerLookup) {
+                header(value instanceof SortedLookup ? SORTED : EYTZINGER, (AbstractLookup<?>) value);
+                entries((Slots) value);
+            } else if (value instanceof DenseLookup) {
+                final Slots slots = (Slots) value;
+                header(DENSE, (AbstractLookup<?>) value);
+                integralClass(slots.keyAt(0));
+                out.writeLong(((Number) slots.keyAt(0)).longValue());
+                writeVarInt(out, slots.slotCount());
+                for (int i = 0; i < slots.slotCount(); i++) {
+                    value(slots.valueAt(i));
+                }
+            } else if (value instanceof EnumLookup) {
+                final Slots slots = (Slots) value;
+                header(ENUM, (AbstractLookup<?>) value);
+                out.writeObject(((Enum<?>) slots.keyAt(0)).getDeclaringClass());
+                writeVarInt(out, slots.slotCount());
+                for (int i = 0; i < slots.slotCount(); i++) {
+                    value(slots.valueAt(i));
+                }
+            } else if (value instanceof PrimitiveHashLookup || value instanceof IntegralEytzingerLookup) {
+                integral((Slots) value, value instanceof PrimitiveHashLookup ? PRIMITIVE : INTEGRAL_EYTZINGER);
+            } else {
+                return range(value);
+            }
+            return true;
+        }
+
+        /**
+         * Write the lookup if it is a range, temporal or prefix level, otherwise return false.
+         */
+        private boolean range(final Object value) throws IOException {
+            if (value instanceof LongRangeLookup) {
+                final LongRangeLookup<?> range = (LongRangeLookup<?>) value;
+                header(LONG_RANGE, range);
+                longs(range.getLows());
+                longs(range.getHighs());
+                values(range.getValues());
+            } else if (value instanceof ComparableRangeLookup) {
+                final ComparableRangeLookup<?> range = (ComparableRangeLookup<?>) value;
+                header(COMPARABLE_RANGE, range);
+                values(range.getLows());
+                values(range.getHighs());
+                values(range.getValues());
+            } else if (value instanceof TemporalLookup) {
+                final TemporalLookup<?> temporal = (TemporalLookup<?>) value;
+                header(TEMPORAL, temporal);
+                longs(temporal.getEffectives());
+                out.writeBoolean(temporal.getExpiries() != null);
+                if (temporal.getExpiries() != null) longs(temporal.getExpiries());
+                values(temporal.getValues());
+            } else if (value instanceof TrieLookup) {
+                final TrieLookup<?> trie = (TrieLookup<?>) value;
+                header(TRIE, trie);
+                ints(trie.getEdges());
+                out.writeObject(new String(trie.getFirstChars()));
+                ints(trie.getLabelEnds());
+                out.writeObject(new String(trie.getLabels()));
+                values(trie.getValues());
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private void values(final Object[] values) throws IOException {
+            writeVarInt(out, values.length);
+            for (Object v : values) {
+                value(v);
+            }
+        }
+
+        private void longs(final long[] longs) throws IOException {
+            writeVarInt(out, longs.length);
+            for (long l : longs) {
+                out.writeLong(l);
+            }
+        }
+
+        private void ints(final int[] ints) throws IOException {
+            writeVarInt(out, ints.length);
+            for (int i : ints) {
+                writeVarInt(out, i);
+            }
+        }
+
+        private void header(final int tag, final AbstractLookup<?> level) throws IOException {
+            out.writeByte(tag);
+            value(level.find(null));
+            out.writeBoolean(level.isStackless());
+        }
+
+        private void equivalence(@CheckForNull final Equivalence equivalence) throws IOException {
+            final int index = indexOf(EQUIVALENCES, equivalence);
+            out.writeByte(index < 0 ? EQUIVALENCES.length : index);
+            if (index < 0) out.writeObject(equivalence);
+        }
+
+        private void integralClass(final Object key) throws IOException {
+            out.writeByte(indexOf(INTEGRAL_CLASSES, key.getClass()));
+        }
+
+        /**
+         * Write the entries of the occupied slots in the order of the slots.
+         */
+        private void entries(final Slots slots) throws IOException {
+            int size = 0;
+            for (int i = 0; i < slots.slotCount(); i++) {
+                if (slots.valueAt(i) != null) size++;
+            }
+            writeVarInt(out, size);
+            for (int i = 0; i < slots.slotCount(); i++) {
+                final Object v = slots.valueAt(i);
+                if (v == null) continue;
+                value(slots.keyAt(i));
+                value(v);
+            }
+        }
+
+        /**
+         * Write the slots of the integral level with the keys unboxed, the empty slots are written as {@code null}.
+         */
+        private void integral(final Slots slots, final int tag) throws IOException {
+            header(tag, (AbstractLookup<?>) slots);
+            integralClass(slots.keyAt(0));
+            writeVarInt(out, slots.slotCount());
+            for (int i = 0; i < slots.slotCount(); i++) {
+                final Object v = slots.valueAt(i);
+                value(v);
+                if (v != null) out.writeLong(((Number) slots.keyAt(i)).longValue());
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final ObjectInput in;
+        private final List<String> strings = new ArrayList<String>();
+        private final List<Object> lookups = new ArrayList<Object>();
+
+        Reader(final ObjectInput in) {
+            this.in = in;
+        }
+
+        @CheckForNull
+        Object value() throws IOException, ClassNotFoundException {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+            case NULL:
+                return null;
+            case OBJECT:
+                return in.readObject();
+            case STRING:
+                final String string = in.readUTF();
+                strings.add(string);
+                return string;
+            case STRING_REF:
+                return strings.get(readVarInt(in));
+            case LOOKUP_REF:
+                return lookups.get(readVarInt(in));
+            case SLICE:
+                final Object[] elements = values();
+                return new ArraySlice<Object>(elements, 0, elements.length);
+            case EMPTY:
+                final Object defaultValue = value();
+                final boolean stackless = in.readBoolean();
+                final Object empty = new EmptyLookup<Object>(defaultValue, stackless ? StacklessLookupException.NOT_FOUND
+                        : null);
+                lookups.add(empty);
+                return empty;
+            default:
+                final Object level = level(tag);
+                lookups.add(level);
+                return level;
+            }
+        }
+
+        private AbstractLookup<Object> level(final int tag) throws IOException, ClassNotFoundException {
+            final Object defaultValue = value();
+            final LookupException notFound = in.readBoolean() ? StacklessLookupException.NOT_FOUND : null;
+            final AbstractLookup<Object> level;
+            switch (tag) {
+            case HASH:
+                final Object[][] map = entries();
+                final Map<Object, Object> entries = new HashMap<Object, Object>();
+                for (int i = 0; i < map[0].length; i++) {
+                    entries.put(map[0][i], map[1][i]);
+                }
+                level = new MapBasedLookup<Object>(entries, defaultValue, notFound);
+                break;
+            case LINEAR:
+                final Object[][] linear = entries();
+                level = new LinearLookup<Object>(linear[0], linear[1], defaultValue, notFound);
+                break;
+            case OPEN:
+                final Equivalence equivalence = equivalence();
+                final Object[][] open = entries();
+                level = new OpenHashLookup<Object>(open[0], null, open[1], defaultValue, notFound, equivalence);
+                break;
+            case SORTED:
+                final Object[][] sorted = entries();
+                level = new SortedLookup<Object>(sorted[0][0].getClass(), sorted[0], sorted[1], defaultValue, notFound);
+                break;
+            case EYTZINGER:
+                final Object[][] ranked = entries();
+                level = new EytzingerLookup<Object>(ranked[0][0].getClass(), ranked[0], ranked[1], defaultValue,
+                        notFound);
+                break;
+            case DENSE:
+                final Class<?> keyClass = INTEGRAL_CLASSES[in.readUnsignedByte()];
+                final long min = in.readLong();
+                level = new DenseLookup<Object>(keyClass, min, values(), defaultValue, notFound);
+                break;
+            case ENUM:
+                final Class<?> enumClass = (Class<?>) in.readObject();
+                level = new EnumLookup<Object>(enumClass, values(), defaultValue, notFound);
+                break;
+            case PRIMITIVE:
+            case INTEGRAL_EYTZINGER:
+                level = integral(tag, defaultValue, notFound);
+                break;
+            case LONG_RANGE:
+                level = new LongRangeLookup<Object>(longs(), longs(), values(), defaultValue, notFound);
+                break;
+            case COMPARABLE_RANGE:
+                level = new ComparableRangeLookup<Object>(values(), values(), values(), defaultValue, notFound);
+                break;
+            case TEMPORAL:
+                final long[] effectives = longs();
+                final long[] expiries = in.readBoolean() ? longs() : null;
+                level = new TemporalLookup<Object>(effectives, expiries, values(), defaultValue, notFound);
+                break;
+            case TRIE:
+                final int[] edges = ints();
+                final char[] firstChars = ((String) in.readObject()).toCharArray();
+                final int[] labelEnds = ints();
+                final char[] labels = ((String) in.readObject()).toCharArray();
+                level = new TrieLookup<Object>(edges, firstChars, labelEnds, labels, values(), defaultValue, notFound);
+                break;
+            default:
+                throw new InvalidObjectException("Unknown tag " + tag);
+            }
+            return level;
+        }
+
+        private Equivalence equivalence() throws IOException, ClassNotFoundException {
+            final int index = in.readUnsignedByte();
+            return index < EQUIVALENCES.length ? EQUIVALENCES[index] : (Equivalence) in.readObject();
+        }
+
+        private Object[][] entries() throws IOException, ClassNotFoundException {
+            final int size = readVarInt(in);
+            final Object[] keys = new Object[size];
+            final Object[] values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = value();
+                values[i] = value();
+            }
+            return new Object[][] { keys, values };
+        }
+
+        private Object[] values() throws IOException, ClassNotFoundException {
+            final Object[] values = new Object[readVarInt(in)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = value();
+            }
+            return values;
+        }
+
+        private long[] longs() throws IOException {
+            final long[] longs = new long[readVarInt(in)];
+            for (int i = 0; i < longs.length; i++) {
+                longs[i] = in.readLong();
+            }
+            return longs;
+        }
+
+        private int[] ints() throws IOException {
+            final int[] ints = new int[readVarInt(in)];
+            for (int i = 0; i < ints.length; i++) {
+                ints[i] = readVarInt(in);
+            }
+            return ints;
+        }
+
+        private AbstractLookup<Object> integral(final int tag, @CheckForNull final Object defaultValue,
+                @CheckForNull final LookupException notFound) throws IOException, ClassNotFoundException {
+            final Class<?> keyClass = INTEGRAL_CLASSES[in.readUnsignedByte()];
+            final int size = readVarInt(in);
+            final long[] keys = new long[size];
+            final Object[] values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = value();
+                if (values[i] != null) keys[i] = in.readLong();
+            }
+            if (tag == PRIMITIVE) {
+                return new PrimitiveHashLookup<Object>(keyClass, keys, values, defaultValue, notFound);
+            }
+            return new IntegralEytzingerLookup<Object>(keyClass, keys, values, defaultValue, notFound);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Implemented by the key levels that keep their entries in array slots, so that the entries can be scanned and a scan
+ * can be split by ranges of slots, see {@link LookupScan}.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+interface Slots {
+
+    /**
+     * Return the number of slots, which include the empty ones.
+     */
+    int slotCount();
+
+    /**
+     * Return the key in the slot. It is only called for the slot of which {@link #valueAt(int)} is not {@code null}.
+     */
+    Object keyAt(int slot);
+
+    /**
+     * Return the value in the slot, or {@code null} if the slot is empty.
+     */
+    @CheckForNull
+    Object valueAt(int slot);
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup of {@link Comparable} keys of same class backed by a sorted array and binary search.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class SortedLookup<T> extends AbstractLookup<T> implements Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> keyClass;
+    private final Object[] keys;
+    private final Object[] values;
+
+    /**
+     * Create a sorted lookup. The keys must be distinct strings or integral numbers of the same class, see
+     * {@link #isSortable(Object[])}.
+     */
+    SortedLookup(final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.keyClass = keys.length == 0 ? Void.class : keys[0].getClass();
+        final Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @SuppressWarnings("unchecked")
+            public int compare(Integer i1, Integer i2) {
+                return ((Comparable<Object>) keys[i1]).compareTo(keys[i2]);
+            }
+        });
+        this.keys = new Object[keys.length];
+        this.values = new Object[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            this.keys[i] = keys[order[i]];
+            this.values[i] = values[order[i]];
+        }
+    }
+
+    /**
+     * Create a sorted lookup from the keys that are already sorted.
+     */
+    SortedLookup(final Class<?> keyClass, final Object[] keys, final Object[] values, @CheckForNull T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.keyClass = keyClass;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        if (key.getClass() != keyClass) return null;
+        final int index = Arrays.binarySearch(keys, key);
+        return index < 0 ? null : (T) values[index];
+    }
+
+    @Override
+    public int slotCount() {
+        return keys.length;
+    }
+
+    @Override
+    public Object keyAt(final int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Check if the keys are all strings or all integral numbers of the same class. The natural ordering of other
+     * {@link Comparable} keys, e.g. {@link java.math.BigDecimal}, may not be consistent with equals, then the binary
+     * search can't tell apart the keys that compare equal.
+     */
+    static boolean isSortable(final Object[] keys) {
+        if (keys.length == 0 || !(keys[0] instanceof String || Utils.isIntegral(keys[0]))) return false;
+        final Class<?> keyClass = keys[0].getClass();
+        for (Object key : keys) {
+            if (key.getClass() != keyClass) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+/**
+ * The preallocated {@link LookupException} thrown by the lookups built with
+ * {@link com.sharneng.lookup.fluent.Selected#stacklessNotFound()} when a reference object is not found. It has no stack
+ * trace and its message doesn't tell the key, so throwing it costs neither stack walking nor allocation.
+ * <p>
+ * The same instance is thrown to all the callers, so it refuses to change its cause and stack trace. Java 6 has no way
+ * to disable the suppressed exceptions, and {@code addSuppressed} is final since Java 7, so the callers must not add
+ * suppressed exceptions to it, e.g. by throwing it out of a try-with-resources block whose resource fails to close.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class StacklessLookupException extends LookupException {
+    static final StacklessLookupException NOT_FOUND = new StacklessLookupException("Value not found");
+
+    private static final long serialVersionUID = 1L;
+
+    private StacklessLookupException(final String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * Refuse to change the cause of the shared instance.
+     * 
+     * @throws IllegalStateException
+     *             always
+     */
+    @Override
+    public synchronized Throwable initCause(final Throwable cause) {
+        throw new IllegalStateException("Cause of the shared " + getClass().getSimpleName() + " cannot be changed");
+    }
+
+    /**
+     * Ignore the stack trace, the shared instance has none.
+     */
+    @Override
+    public void setStackTrace(final StackTraceElement[] stackTrace) {
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Collects the versions of a reference object and builds a temporal lookup from them.
+ * <p>
+ * A version is effective from its effective time, inclusive, until its expiry time, exclusive. Without expiry time, a
+ * version is effective until the next version becomes effective. Versions with same effective time are duplicates and
+ * resolved by the {@link Duplication} policy. A version must expire by the time the next version becomes effective,
+ * as the lookup finds a point in time only in the latest version effective by then.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+final class TemporalBuilder<T> {
+    private static final class Version {
+        private final long effective;
+        private final long expiry;
+        private final Object value;
+
+        private Version(final long effective, final long expiry, final Object value) {
+            this.effective = effective;
+            this.expiry = expiry;
+            this.value = value;
+        }
+    }
+
+    private static final Comparator<Version> BY_EFFECTIVE = new Comparator<Version>() {
+        @Override
+        public int compare(final Version o1, final Version o2) {
+            return o1.effective < o2.effective ? -1 : (o1.effective == o2.effective ? 0 : 1);
+        }
+    };
+
+    private final Duplication duplication;
+    private final Object[] keys;
+    private final boolean expires;
+    private final List<Version> versions = new ArrayList<Version>();
+
+    /**
+     * @param duplication
+     *            policy to resolve versions of same effective time
+     * @param keys
+     *            keys of the outer levels to report in error, the last element is reserved for the effective time
+     * @param expires
+     *            whether each version comes with an expiry time
+     */
+    TemporalBuilder(final Duplication duplication, final Object[] keys, final boolean expires) {
+        this.duplication = duplication;
+        this.keys = keys;
+        this.expires = expires;
+    }
+
+    void add(@CheckForNull final Object effective, @CheckForNull final Object expiry, @CheckForNull final T value) {
+        if (!Utils.isTemporal(effective)) throw new LookupBuildException("Effective time must be Date, Calendar or"
+                + " epoch milliseconds but got " + effective + " for object " + value);
+        if (expiry != null && !Utils.isTemporal(expiry)) throw new LookupBuildException("Expiry time must be Date,"
+                + " Calendar or epoch milliseconds but got " + expiry + " for object " + value);
+        final long from = Utils.toEpochMillis(effective);
+        final long to = expiry == null ? Long.MAX_VALUE : Utils.toEpochMillis(expiry);
+        if (to <= from) throw new LookupBuildException("Expiry time " + expiry + " is not after effective time "
+                + effective + " for object " + value);
+        versions.add(new Version(from, to, value));
+    }
+
+    Lookup<T> build(@CheckForNull final T defaultValue, @CheckForNull final LookupException notFound) {
+        Collections.sort(versions, BY_EFFECTIVE); // stable, so duplicates stay in the order of the source data
+        final List<Version> resolved = new ArrayList<Version>(versions.size());
+        for (Version version : versions) {
+            final int last = resolved.size() - 1;
+            if (last < 0 || resolved.get(last).effective != version.effective) {
+                resolved.add(version);
+            } else if (duplication == Duplication.LAST) {
+                resolved.set(last, version);
+            } else if (duplication == Duplication.FAIL) {
+                keys[keys.length - 1] = new Date(version.effective);
+                throw new DuplicateKeyException(version.value, resolved.get(last).value, keys);
+            }
+        }
+        for (int i = 1; i < resolved.size(); i++) {
+            final Version previous = resolved.get(i - 1), version = resolved.get(i);
+            if (previous.expiry != Long.MAX_VALUE && previous.expiry > version.effective) {
+                throw new LookupBuildException("Version " + previous.value + " expiring at "
+                        + new Date(previous.expiry) + " overlaps version " + version.value + " effective at "
+                        + new Date(version.effective));
+            }
+        }
+        final int size = resolved.size();
+        final long[] effectives = new long[size];
+        final long[] expiries = expires ? new long[size] : null;
+        final Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            final Version version = resolved.get(i);
+            effectives[i] = version.effective;
+            if (expiries != null) expiries[i] = version.expiry;
+            values[i] = version.value;
+        }
+        return new TemporalLookup<T>(effectives, expiries, values, defaultValue, notFound);
+    }
+}
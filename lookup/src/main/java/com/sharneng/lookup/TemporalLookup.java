@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A lookup of the versions of a reference object that are effective over time. The key is a point in time given as
+ * {@link java.util.Date}, {@link java.util.Calendar} or epoch milliseconds. The effective times are stored in a sorted
+ * primitive array and resolved by a binary search.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class TemporalLookup<T> extends AbstractLookup<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long[] effectives;
+    @CheckForNull
+    private final long[] expiries;
+    private final Object[] values;
+
+    /**
+     * @param effectives
+     *            sorted epoch milliseconds when each version becomes effective
+     * @param expiries
+     *            epoch milliseconds, exclusive, when each version expires, or {@code null} when a version is effective
+     *            until the next one
+     * @param values
+     *            versions of the reference object
+     * @param defaultValue
+     *            the default value to be used by {@link #get(Object)} method.
+     * @param notFoundException
+     *            the exception to throw when not found, or {@code null} to create a new one each time
+     */
+    TemporalLookup(final long[] effectives, @CheckForNull final long[] expiries, final Object[] values,
+            @CheckForNull T defaultValue, @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.effectives = effectives;
+        this.expiries = expiries;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        if (!Utils.isTemporal(key)) return null;
+        final long asOf = Utils.toEpochMillis(key);
+        final int index = Utils.floorIndex(effectives, asOf);
+        if (index < 0 || (expiries != null && asOf >= expiries[index])) return null;
+        return (T) values[index];
+    }
+
+    long[] getEffectives() {
+        return effectives;
+    }
+
+    @CheckForNull
+    long[] getExpiries() {
+        return expiries;
+    }
+
+    Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
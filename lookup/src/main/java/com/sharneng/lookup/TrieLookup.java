@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A {@link PrefixLookup} backed by a compact radix trie.
+ * <p>
+ * The nodes of the trie are numbered in breadth first order, so that every node but the root is the target of exactly
+ * one edge and edge {@code e} leads to node {@code e + 1}. The edges of node {@code n} are
+ * {@code [edges[n], edges[n + 1])}, sorted by their first character. The rest characters of the edge labels are kept in
+ * one shared character array. Both exact and longest prefix matches walk the arrays without allocation.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+final class TrieLookup<T> extends AbstractLookup<T> implements PrefixLookup<T>, Slots, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] edges;
+    private final char[] firstChars;
+    private final int[] labelEnds;
+    private final char[] labels;
+    private final Object[] values;
+
+    TrieLookup(final int[] edges, final char[] firstChars, final int[] labelEnds, final char[] labels,
+            final Object[] values, @CheckForNull final T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        super(defaultValue, notFoundException);
+        this.edges = edges;
+        this.firstChars = firstChars;
+        this.labelEnds = labelEnds;
+        this.labels = labels;
+        this.values = values;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T lookup(final Object key) {
+        if (!(key instanceof CharSequence)) return null;
+        final CharSequence text = (CharSequence) key;
+        int node = 0, position = 0;
+        final int length = text.length();
+        while (position < length) {
+            final int edge = edgeOf(node, text.charAt(position));
+            if (edge < 0) return null;
+            position = match(edge, text, position + 1);
+            if (position < 0) return null;
+            node = edge + 1;
+        }
+        return (T) values[node];
+    }
+
+    @Override
+    public T findLongestPrefix(@CheckForNull final CharSequence text) {
+        return findLongestPrefix(text, getDefaultValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T findLongestPrefix(@CheckForNull final CharSequence text, @CheckForNull final T defaultValue) {
+        if (text == null) return defaultValue;
+        Object found = values[0];
+        int node = 0, position = 0;
+        final int length = text.length();
+        while (position < length) {
+            final int edge = edgeOf(node, text.charAt(position));
+            if (edge < 0) break;
+            position = match(edge, text, position + 1);
+            if (position < 0) break;
+            node = edge + 1;
+            if (values[node] != null) found = values[node];
+        }
+        return found == null ? defaultValue : (T) found;
+    }
+
+    @Override
+    public int slotCount() {
+        return values.length;
+    }
+
+    /**
+     * Spell the key of the node by walking up the edges to the root. The parent of node {@code e + 1} is the last node
+     * of which the edges start at or before edge {@code e}.
+     */
+    @Override
+    public Object keyAt(final int slot) {
+        final StringBuilder key = new StringBuilder();
+        for (int node = slot; node > 0;) {
+            final int edge = node - 1;
+            final int start = edge == 0 ? 0 : labelEnds[edge - 1];
+            for (int i = labelEnds[edge] - 1; i >= start; i--) {
+                key.append(labels[i]);
+            }
+            key.append(firstChars[edge]);
+            node = parentOf(edge);
+        }
+        return key.reverse().toString();
+    }
+
+    @Override
+    public Object valueAt(final int slot) {
+        return values[slot];
+    }
+
+    private int parentOf(final int edge) {
+        int low = 0, high = edges.length - 2;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (edges[mid] <= edge) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    private int edgeOf(final int node, final char c) {
+        int low = edges[node], high = edges[node + 1] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final char midChar = firstChars[mid];
+            if (midChar < c) low = mid + 1;
+            else if (midChar > c) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Match the rest of the edge label against the text from given position.
+     * 
+     * @return the position after the label, or -1 if the text doesn't match the whole label
+     */
+    private int match(final int edge, final CharSequence text, final int position) {
+        final int start = edge == 0 ? 0 : labelEnds[edge - 1], end = labelEnds[edge];
+        if (text.length() - position < end - start) return -1;
+        for (int i = start, j = position; i < end; i++, j++) {
+            if (labels[i] != text.charAt(j)) return -1;
+        }
+        return position + end - start;
+    }
+
+    /**
+     * Build a trie of the keys in given map.
+     * 
+     * @param map
+     *            the map of which all keys are {@link CharSequence}
+     * @param defaultValue
+     *            the default value to be used by the trie
+     * @param notFoundException
+     *            the exception to throw when not found, or {@code null} to create a new one each time
+     * @return the newly built trie
+     */
+    static <T> TrieLookup<T> build(final Map<?, ? extends T> map, @CheckForNull final T defaultValue,
+            @CheckForNull final LookupException notFoundException) {
+        final TreeMap<String, Object> sorted = new TreeMap<String, Object>();
+        for (Map.Entry<?, ? extends T> entry : map.entrySet()) {
+            final Object key = entry.getKey();
+            if (!(key instanceof CharSequence)) throw new LookupBuildException("Prefix key must be CharSequence but got "
+                    + key + " for object " + entry.getValue());
+            final Object previous = sorted.put(key.toString(), entry.getValue());
+            if (previous != null) throw new DuplicateKeyException(entry.getValue(), previous, key);
+        }
+        return new Flattener(sorted.keySet().toArray(new String[sorted.size()]), sorted.values().toArray())
+                .flatten(defaultValue, notFoundException);
+    }
+
+    /**
+     * Lays out the radix trie of the sorted keys in breadth first order. Each node covers a range of keys sharing the
+     * prefix of node's depth.
+     */
+    private static final class Flattener {
+        private final String[] keys;
+        private final Object[] sorted;
+        private final List<int[]> queue = new ArrayList<int[]>();
+        private final StringBuilder labels = new StringBuilder();
+
+        private Flattener(final String[] keys, final Object[] sorted) {
+            this.keys = keys;
+            this.sorted = sorted;
+        }
+
+        private <T> TrieLookup<T> flatten(@CheckForNull final T defaultValue,
+                @CheckForNull final LookupException notFoundException) {
+            queue.add(new int[] { 0, keys.length, 0 });
+            final List<Object> values = new ArrayList<Object>();
+            final List<Integer> edges = new ArrayList<Integer>();
+            final StringBuilder firstChars = new StringBuilder();
+            final List<Integer> labelEnds = new ArrayList<Integer>();
+            for (int n = 0; n < queue.size(); n++) {
+                final int[] node = queue.get(n);
+                int from = node[0];
+                final int to = node[1], depth = node[2];
+                edges.add(firstChars.length());
+                if (from < to && keys[from].length() == depth) {
+                    values.add(sorted[from++]);
+                } else {
+                    values.add(null);
+                }
+                while (from < to) {
+                    final char c = keys[from].charAt(depth);
+                    int end = from + 1;
+                    while (end < to && keys[end].charAt(depth) == c) {
+                        end++;
+                    }
+                    final int childDepth = commonPrefix(keys[from], keys[end - 1], depth + 1);
+                    firstChars.append(c);
+                    labels.append(keys[from], depth + 1, childDepth);
+                    labelEnds.add(labels.length());
+                    queue.add(new int[] { from, end, childDepth });
+                    from = end;
+                }
+            }
+            edges.add(firstChars.length());
+            return new TrieLookup<T>(toArray(edges), firstChars.toString().toCharArray(), toArray(labelEnds), labels
+                    .toString().toCharArray(), values.toArray(), defaultValue, notFoundException);
+        }
+
+        private static int commonPrefix(final String first, final String last, final int from) {
+            final int length = Math.min(first.length(), last.length());
+            int i = from;
+            while (i < length && first.charAt(i) == last.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        private static int[] toArray(final List<Integer> list) {
+            final int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+    }
+
+    int[] getEdges() {
+        return edges;
+    }
+
+    char[] getFirstChars() {
+        return firstChars;
+    }
+
+    int[] getLabelEnds() {
+        return labelEnds;
+    }
+
+    char[] getLabels() {
+        return labels;
+    }
+
+    Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * Replace this with the compact serial form, see {@link SerializedLookup}.
+     */
+    private Object writeReplace() {
+        return new SerializedLookup(this);
+    }
+}
@@ -15,6 +15,11 @@
  */
 package com.sharneng.lookup;
 
+import java.util.Calendar;
+import java.util.Date;
+
+import javax.annotation.CheckForNull;
+
 final class Utils {
     private static final Converter<?, ?> TO_SELF = new Converter<Object, Object>() {
         public Object convert(Object source) {
@@ -58,9 +63,59 @@ final class Utils {
         return new LookupException("Value not found for given key " + key);
     }
 
+    static LookupException notFoundException(@CheckForNull final LookupException preallocated, final Object key) {
+        return preallocated == null ? notFoundException(key) : preallocated;
+    }
+
     @SuppressWarnings("unchecked")
     static <T> Converter<T, T> toSelf() {
         return (Converter<T, T>) TO_SELF;
     }
 
+    static boolean isIntegral(@CheckForNull final Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    static boolean isTemporal(@CheckForNull final Object value) {
+        return value instanceof Date || value instanceof Calendar || isIntegral(value);
+    }
+
+    static long toEpochMillis(final Object value) {
+        if (value instanceof Date) return ((Date) value).getTime();
+        if (value instanceof Calendar) return ((Calendar) value).getTimeInMillis();
+        return ((Number) value).longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compare(final Object left, final Object right) {
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    /**
+     * Find the index of the last element in the sorted array that is less than or equal to the given key. The loop
+     * always halves the remaining range so that the comparison can be compiled into a conditional move instead of a
+     * branch.
+     */
+    static int floorIndex(final long[] sorted, final long key) {
+        int n = sorted.length;
+        if (n == 0 || sorted[0] > key) return -1;
+        int base = 0;
+        while (n > 1) {
+            final int half = n >>> 1;
+            base = sorted[base + half] <= key ? base + half : base;
+            n -= half;
+        }
+        return base;
+    }
+
+    static int floorIndex(final Object[] sorted, final Object key) {
+        int low = 0, high = sorted.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(sorted[mid], key) <= 0) low = mid + 1;
+            else high = mid - 1;
+        }
+        return high;
+    }
+
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Lookup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Binds a lookup to the records by the key computed from each record and the setter of the reference object found.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the records
+ * @param <T>
+ *            type of the reference objects
+ */
+final class Binding<E, T> {
+    final String name;
+    private final Converter<E, ?> keyConverter;
+    private volatile Lookup<T> lookup;
+    private final Setter<? super E, ? super T> setter;
+
+    Binding(final String name, final Converter<E, ?> keyConverter, final Lookup<T> lookup,
+            final Setter<? super E, ? super T> setter) {
+        this.name = name;
+        this.keyConverter = keyConverter;
+        this.lookup = lookup;
+        this.setter = setter;
+    }
+
+    /**
+     * Replace the lookup, the batches enriched after this call use the new lookup.
+     */
+    void swap(final Lookup<T> lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * Enrich the records of the batch using the current lookup from start to end. The missed records are set with the
+     * default value of the lookup, which is what it finds for the {@code null} key, when it is not {@code null}.
+     * 
+     * @param counters
+     *            the hits, misses and defaults of this binding in the run
+     */
+    @SuppressWarnings("unchecked")
+    void apply(final Object[] batch, final int size, final AtomicLong[] counters) {
+        final Lookup<T> lookup = this.lookup;
+        @CheckForNull
+        final T defaultValue = lookup.find(null);
+        long hits = 0, misses = 0;
+        for (int i = 0; i < size; i++) {
+            final E record = (E) batch[i];
+            final T value = lookup.find(keyConverter.convert(record), null);
+            if (value != null) {
+                hits++;
+                setter.set(record, value);
+            } else {
+                misses++;
+                if (defaultValue != null) setter.set(record, defaultValue);
+            }
+        }
+        counters[EnrichmentReport.HITS].addAndGet(hits);
+        counters[EnrichmentReport.MISSES].addAndGet(misses);
+        if (defaultValue != null) counters[EnrichmentReport.DEFAULTS].addAndGet(misses);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Enriches a stream of records with the reference objects found in many lookups. Each binding computes a key from the
+ * record, finds the reference object in its lookup and sets it to the record. When the reference object is not found,
+ * the default value of the lookup is set unless it is {@code null}.
+ * <p>
+ * The records are read by the calling thread into batches that are enriched in parallel. A batch is enriched one
+ * binding after another, so that the probes of one lookup are close together and its tables stay in the CPU cache. At
+ * most {@code parallelism} batches are in flight, so the records are not read much ahead of the enrichment.
+ * 
+ * <pre>
+ * EnrichmentReport report = new Enricher&lt;Trade&gt;().bind(&quot;currency&quot;, currencyCode, currencies, currencySetter)
+ *         .bind(&quot;book&quot;, bookId, books, bookSetter).enrich(trades.iterator(), 8);
+ * </pre>
+ * 
+ * An enricher can run many times, but it must not be changed while running.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the records
+ */
+public final class Enricher<E> {
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final List<Binding<E, ?>> bindings = new ArrayList<Binding<E, ?>>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Bind a lookup to the records.
+     * 
+     * @param name
+     *            the unique name of the binding in the report
+     * @param keyConverter
+     *            the converter to compute the key from the record
+     * @param lookup
+     *            the lookup to find the reference object
+     * @param setter
+     *            the setter to set the reference object to the record
+     * @param <T>
+     *            type of the reference object
+     * @return this instance for continuous fluent API call
+     */
+    public <T> Enricher<E> bind(final String name, final Converter<E, ?> keyConverter, final Lookup<T> lookup,
+            final Setter<? super E, ? super T> setter) {
+        if (name == null) throw new IllegalArgumentException("Argument name must not be null.");
+        if (keyConverter == null) throw new IllegalArgumentException("Argument keyConverter must not be null.");
+        if (lookup == null) throw new IllegalArgumentException("Argument lookup must not be null.");
+        if (setter == null) throw new IllegalArgumentException("Argument setter must not be null.");
+        for (Binding<E, ?> binding : bindings) {
+            if (binding.name.equals(name)) throw new IllegalArgumentException("Binding " + name + " already exists.");
+        }
+        bindings.add(new Binding<E, T>(name, keyConverter, lookup, setter));
+        return this;
+    }
+
+    /**
+     * Replace the lookup of a binding without stopping the running enrichment. The batches started after this call
+     * use the new lookup, and each batch uses one lookup from start to end. This is thread safe.
+     * 
+     * @param name
+     *            the name of the binding
+     * @param lookup
+     *            the new lookup, which must be of the same type of reference objects as the replaced one
+     * @param <T>
+     *            type of the reference object
+     * @return this instance for continuous fluent API call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Enricher<E> swap(final String name, final Lookup<T> lookup) {
+        if (lookup == null) throw new IllegalArgumentException("Argument lookup must not be null.");
+        for (Binding<E, ?> binding : bindings) {
+            if (binding.name.equals(name)) {
+                ((Binding<E, T>) binding).swap(lookup);
+                return this;
+            }
+        }
+        throw new IllegalArgumentException("Binding " + name + " doesn't exist.");
+    }
+
+    /**
+     * Set the number of records in a batch, the default is {@value #DEFAULT_BATCH_SIZE}.
+     * 
+     * @param batchSize
+     *            the number of records in a batch
+     * @return this instance for continuous fluent API call
+     */
+    public Enricher<E> batchSize(final int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Argument batchSize must be positive.");
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Binding<E, Object>[] getBindings() {
+        return bindings.toArray(new Binding[bindings.size()]);
+    }
+
+    /**
+     * Enrich the records using a thread pool of the given number of threads, which is shut down when done.
+     * 
+     * @param source
+     *            the records to enrich
+     * @param parallelism
+     *            the number of threads to enrich the records
+     * @return the statistics of the run
+     * @exception LookupException
+     *                if interrupted while waiting, or enriching a record failed with a checked exception. Runtime
+     *                exceptions and errors are thrown as is. The rest batches are skipped on failure.
+     */
+    public EnrichmentReport enrich(final Iterator<? extends E> source, final int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("Argument parallelism must be positive.");
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            return enrich(source, executor, parallelism);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Enrich the records using the executor.
+     * 
+     * @param source
+     *            the records to enrich
+     * @param executor
+     *            the executor to run the batches
+     * @param parallelism
+     *            the maximum number of batches submitted to the executor at a time
+     * @return the statistics of the run
+     * @exception LookupException
+     *                if interrupted while waiting, or enriching a record failed with a checked exception. Runtime
+     *                exceptions and errors are thrown as is. The rest batches are skipped on failure.
+     */
+    public EnrichmentReport enrich(final Iterator<? extends E> source, final ExecutorService executor,
+            final int parallelism) {
+        if (source == null) throw new IllegalArgumentException("Argument source must not be null.");
+        if (executor == null) throw new IllegalArgumentException("Argument executor must not be null.");
+        if (parallelism <= 0) throw new IllegalArgumentException("Argument parallelism must be positive.");
+        return new Run(source, executor, parallelism).run();
+    }
+
+    /**
+     * The state of one run of the enricher.
+     */
+    private final class Run {
+        private final Iterator<? extends E> source;
+        private final ExecutorService executor;
+        private final int parallelism;
+        private final Semaphore inFlight;
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private final Binding<E, Object>[] bound = getBindings();
+        private final AtomicLong[][] counters = EnrichmentReport.newCounters(bound.length);
+
+        Run(final Iterator<? extends E> source, final ExecutorService executor, final int parallelism) {
+            this.source = source;
+            this.executor = executor;
+            this.parallelism = parallelism;
+            this.inFlight = new Semaphore(parallelism);
+        }
+
+        EnrichmentReport run() {
+            final long start = System.nanoTime();
+            long records = 0;
+            try {
+                while (failure.get() == null && source.hasNext()) {
+                    final Object[] batch = new Object[batchSize];
+                    int size = 0;
+                    while (size < batch.length && source.hasNext()) {
+                        batch[size++] = source.next();
+                    }
+                    records += size;
+                    inFlight.acquire();
+                    submit(batch, size);
+                }
+                inFlight.acquire(parallelism);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LookupException("Interrupted while enriching", e);
+            }
+            final Throwable t = failure.get();
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            if (t != null) throw new LookupException(t);
+            return new EnrichmentReport(records, System.nanoTime() - start, bound, counters);
+        }
+
+        private void submit(final Object[] batch, final int size) {
+            try {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            for (int i = 0; i < bound.length && failure.get() == null; i++) {
+                                bound[i].apply(batch, size, counters[i]);
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A {@link Flow.Processor} that enriches the items passing through by the bindings of an {@link Enricher}.
+ * <p>
+ * The processor requests from upstream only what the downstream has requested, at most a batch at a time, and enriches
+ * the items of each request as one batch when they all arrived. So a large demand is served by full batches, while a
+ * small demand is not held up waiting for a batch to fill. The lookups can be replaced by
+ * {@link Enricher#swap(String, com.sharneng.lookup.Lookup)} while the stream is flowing, the next batch uses them.
+ * <p>
+ * The processor has one subscriber. Items are published in the order received.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the items
+ */
+public final class EnrichingProcessor<E> implements Flow.Processor<E, E> {
+    private final Binding<E, Object>[] bindings;
+    private final int batchSize;
+    private final AtomicLong[][] counters;
+
+    @CheckForNull
+    private Flow.Subscription upstream;
+    @CheckForNull
+    private Flow.Subscriber<? super E> downstream;
+    private long started;
+    private long records;
+    private long demand;
+    private long pending;
+    private Object[] batch;
+    private int batchLength;
+    private final ArrayDeque<Object> ready = new ArrayDeque<Object>();
+    private boolean emitting;
+    private boolean upstreamDone;
+    private boolean terminated;
+    private boolean cancelled;
+    @CheckForNull
+    private Throwable error;
+
+    /**
+     * Create a processor that enriches the items by the bindings of the enricher, in batches of its batch size. The
+     * bindings added to the enricher afterwards are not used.
+     * 
+     * @param enricher
+     *            the enricher of which the bindings enrich the items
+     */
+    public EnrichingProcessor(final Enricher<E> enricher) {
+        if (enricher == null) throw new IllegalArgumentException("Argument enricher must not be null.");
+        this.bindings = enricher.getBindings();
+        this.batchSize = enricher.getBatchSize();
+        this.counters = EnrichmentReport.newCounters(bindings.length);
+        this.batch = new Object[batchSize];
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super E> subscriber) {
+        if (subscriber == null) throw new NullPointerException("subscriber");
+        final boolean accepted;
+        synchronized (this) {
+            accepted = downstream == null;
+            if (accepted) downstream = subscriber;
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {
+                }
+
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Processor already has a subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+                EnrichingProcessor.this.request(n);
+            }
+
+            public void cancel() {
+                EnrichingProcessor.this.cancel();
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        if (subscription == null) throw new NullPointerException("subscription");
+        final boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null && !cancelled;
+            if (accepted) {
+                upstream = subscription;
+                started = System.nanoTime();
+            }
+        }
+        if (accepted) requestMore();
+        else subscription.cancel();
+    }
+
+    @Override
+    public void onNext(final E item) {
+        if (item == null) throw new NullPointerException("item");
+        final Object[] full;
+        final int length;
+        synchronized (this) {
+            if (cancelled || upstreamDone) return;
+            batch[batchLength++] = item;
+            pending--;
+            records++;
+            if (pending > 0) return;
+            full = batch;
+            length = batchLength;
+            batch = new Object[batchSize];
+            batchLength = 0;
+        }
+        enrich(full, length);
+        drain();
+        requestMore();
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        if (throwable == null) throw new NullPointerException("throwable");
+        synchronized (this) {
+            if (upstreamDone) return;
+            upstreamDone = true;
+            if (error == null) error = throwable;
+        }
+        flush();
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            if (upstreamDone) return;
+            upstreamDone = true;
+        }
+        flush();
+        drain();
+    }
+
+    /**
+     * Return the statistics of the items enriched so far.
+     * 
+     * @return the statistics since the upstream subscribed
+     */
+    public synchronized EnrichmentReport report() {
+        return new EnrichmentReport(records, started == 0 ? 0 : System.nanoTime() - started, bindings, counters);
+    }
+
+    private void request(final long n) {
+        synchronized (this) {
+            if (n <= 0) {
+                if (error == null) error = new IllegalArgumentException("Argument n must be positive.");
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+        }
+        if (n <= 0) cancelUpstream();
+        drain();
+        requestMore();
+    }
+
+    private void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            ready.clear();
+        }
+        cancelUpstream();
+    }
+
+    private void cancelUpstream() {
+        final Flow.Subscription subscription;
+        synchronized (this) {
+            subscription = upstream;
+        }
+        if (subscription != null) subscription.cancel();
+    }
+
+    /**
+     * Request the next batch from upstream when the previous one is all received and downstream has demand for more.
+     */
+    private void requestMore() {
+        final Flow.Subscription subscription;
+        final long n;
+        synchronized (this) {
+            if (upstream == null || upstreamDone || cancelled || error != null || pending > 0) return;
+            n = Math.min(demand - ready.size(), batchSize);
+            if (n <= 0) return;
+            pending = n;
+            subscription = upstream;
+        }
+        subscription.request(n);
+    }
+
+    /**
+     * Enrich the items received after the last full batch when the upstream terminates.
+     */
+    private void flush() {
+        final Object[] rest;
+        final int length;
+        synchronized (this) {
+            rest = batch;
+            length = batchLength;
+            batchLength = 0;
+        }
+        if (length > 0) enrich(rest, length);
+    }
+
+    private void enrich(final Object[] items, final int length) {
+        try {
+            for (int i = 0; i < bindings.length; i++) {
+                bindings[i].apply(items, length, counters[i]);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (error == null) error = e;
+            }
+            cancelUpstream();
+            return;
+        }
+        synchronized (this) {
+            if (cancelled) return;
+            for (int i = 0; i < length; i++) {
+                ready.add(items[i]);
+            }
+        }
+    }
+
+    /**
+     * Publish the enriched items as demanded and then the terminal signal. Only one thread publishes at a time, the
+     * others leave the items to it, so that the items are published in order even when the subscriber requests more
+     * from within {@code onNext}.
+     */
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        final Flow.Subscriber<? super E> subscriber;
+        synchronized (this) {
+            if (emitting || downstream == null) return;
+            emitting = true;
+            subscriber = downstream;
+        }
+        for (;;) {
+            Object item = null;
+            Throwable failure = null;
+            synchronized (this) {
+                if (cancelled || terminated) {
+                    emitting = false;
+                    return;
+                }
+                if (error != null && (ready.isEmpty() || demand == 0)) {
+                    terminated = true;
+                    failure = error;
+                } else if (!ready.isEmpty() && demand > 0) {
+                    item = ready.poll();
+                    demand--;
+                } else if (upstreamDone && ready.isEmpty()) {
+                    terminated = true;
+                } else {
+                    emitting = false;
+                    return;
+                }
+            }
+            if (failure != null) {
+                subscriber.onError(failure);
+                return;
+            }
+            if (item == null) {
+                subscriber.onComplete();
+                return;
+            }
+            subscriber.onNext((E) item);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statistics of one run of an {@link Enricher}.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class EnrichmentReport {
+    static final int HITS = 0;
+    static final int MISSES = 1;
+    static final int DEFAULTS = 2;
+    static final int COUNTERS = 3;
+
+    private final long records;
+    private final long elapsedNanos;
+    private final List<String> names;
+    private final long[][] counts;
+
+    EnrichmentReport(final long records, final long elapsedNanos, final Binding<?, ?>[] bindings,
+            final AtomicLong[][] counters) {
+        this.records = records;
+        this.elapsedNanos = elapsedNanos;
+        final String[] names = new String[bindings.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = bindings[i].name;
+        }
+        this.names = Collections.unmodifiableList(Arrays.asList(names));
+        this.counts = new long[counters.length][COUNTERS];
+        for (int i = 0; i < counters.length; i++) {
+            for (int j = 0; j < COUNTERS; j++) {
+                counts[i][j] = counters[i][j].get();
+            }
+        }
+    }
+
+    /**
+     * Create the counters of the hits, misses and defaults of the bindings.
+     */
+    static AtomicLong[][] newCounters(final int bindings) {
+        final AtomicLong[][] counters = new AtomicLong[bindings][COUNTERS];
+        for (int i = 0; i < bindings; i++) {
+            for (int j = 0; j < COUNTERS; j++) {
+                counters[i][j] = new AtomicLong();
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Return the number of records enriched.
+     * 
+     * @return the number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Return the time the run took, from reading the first record to finishing the last.
+     * 
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Return the number of records enriched per second.
+     * 
+     * @return the throughput of the run
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : records * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Return the names of the bindings in the order they are bound.
+     * 
+     * @return the unmodifiable list of the names
+     */
+    public List<String> getBindingNames() {
+        return names;
+    }
+
+    /**
+     * Return the number of records of which the lookup of the binding found the reference object.
+     * 
+     * @param binding
+     *            the name of the binding
+     * @return the number of hits
+     */
+    public long getHits(final String binding) {
+        return count(binding, HITS);
+    }
+
+    /**
+     * Return the number of records of which the lookup of the binding didn't find the reference object.
+     * 
+     * @param binding
+     *            the name of the binding
+     * @return the number of misses
+     */
+    public long getMisses(final String binding) {
+        return count(binding, MISSES);
+    }
+
+    /**
+     * Return the number of the missed records that are set with the default value of the lookup of the binding.
+     * 
+     * @param binding
+     *            the name of the binding
+     * @return the number of default value substitutions
+     */
+    public long getDefaults(final String binding) {
+        return count(binding, DEFAULTS);
+    }
+
+    private long count(final String binding, final int counter) {
+        final int index = names.indexOf(binding);
+        if (index < 0) throw new IllegalArgumentException("Binding " + binding + " doesn't exist.");
+        return counts[index][counter];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("Enriched ").append(records).append(" records in ").append(
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append("ms");
+        for (int i = 0; i < counts.length; i++) {
+            sb.append(", ").append(names.get(i)).append(": ").append(counts[i][HITS]).append(" hits ").append(
+                    counts[i][MISSES]).append(" misses ").append(counts[i][DEFAULTS]).append(" defaults");
+        }
+        return sb.toString();
+    }
+}
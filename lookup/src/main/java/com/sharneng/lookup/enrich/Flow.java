@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+/**
+ * The interfaces of reactive streams with backpressure, which mirror those nested in {@code java.util.concurrent.Flow}
+ * one to one. This library compiles for Java 6 and cannot use the Java 9 interfaces, but adapting to them takes only a
+ * delegating method for each method here.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * A producer of items that are received by the subscribers, see {@code java.util.concurrent.Flow.Publisher}.
+     * 
+     * @param <T>
+     *            type of the items
+     */
+    public interface Publisher<T> {
+
+        /**
+         * Add the subscriber, which then receives {@link Subscriber#onSubscribe(Subscription) onSubscribe} first.
+         * 
+         * @param subscriber
+         *            the subscriber to add
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items, see {@code java.util.concurrent.Flow.Subscriber}. The methods are called in sequence.
+     * 
+     * @param <T>
+     *            type of the items
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called before any other method of the subscription.
+         * 
+         * @param subscription
+         *            the subscription to request items and to cancel
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item, only as many times as requested.
+         * 
+         * @param item
+         *            the item
+         */
+        void onNext(T item);
+
+        /**
+         * Called once when the publisher fails, no method is called afterwards.
+         * 
+         * @param throwable
+         *            the cause of the failure
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called once when all items are sent, no method is called afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a publisher and a subscriber, see {@code java.util.concurrent.Flow.Subscription}.
+     */
+    public interface Subscription {
+
+        /**
+         * Add the number of items the subscriber is ready to receive.
+         * 
+         * @param n
+         *            the number of items, must be positive
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving items.
+         */
+        void cancel();
+    }
+
+    /**
+     * Both a subscriber and a publisher, see {@code java.util.concurrent.Flow.Processor}.
+     * 
+     * @param <T>
+     *            type of the items received
+     * @param <R>
+     *            type of the items published
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
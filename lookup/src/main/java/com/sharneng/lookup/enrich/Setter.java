@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Interface to set a value to a property of an object.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the object to set the value to
+ * @param <T>
+ *            type of the value
+ */
+public interface Setter<E, T> {
+
+    /**
+     * Set the value to the object.
+     * 
+     * @param target
+     *            the object to set the value to
+     * @param value
+     *            the value to set
+     */
+    void set(E target, @CheckForNull T value);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface to write an object to, and read it back from, an index file.
+ * <p>
+ * The key codec must be canonical: equal keys must be written to the same bytes, because the index compares the keys
+ * by their bytes. The codec must also read exactly the bytes it writes, because the keys of many levels are written one
+ * after another.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object
+ */
+public interface Codec<T> {
+
+    /**
+     * Write the object to the output.
+     * 
+     * @param value
+     *            the object to write, never {@code null}
+     * @param out
+     *            the output to write to
+     * @throws IOException
+     *             when an I/O error occurs
+     */
+    void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * Read back an object written by {@link #write(Object, DataOutput)}.
+     * 
+     * @param in
+     *            the input to read from
+     * @return the object read
+     * @throws IOException
+     *             when an I/O error occurs
+     */
+    T read(DataInput in) throws IOException;
+}
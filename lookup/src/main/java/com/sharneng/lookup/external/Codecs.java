@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Provides the common {@link Codec} implementations.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class Codecs {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Codec<String> STRINGS = new Codec<String>() {
+        @Override
+        public void write(final String value, final DataOutput out) throws IOException {
+            writeBytes(value.getBytes(UTF8), out);
+        }
+
+        @Override
+        public String read(final DataInput in) throws IOException {
+            return new String(readBytes(in), UTF8);
+        }
+    };
+
+    private static final Set<String> VALUE_CLASSES = new HashSet<String>();
+    static {
+        for (Class<?> c : new Class<?>[] { Number.class, Boolean.class, Character.class, Byte.class, Short.class,
+                Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, Date.class,
+                Enum.class, boolean[].class, char[].class, byte[].class, short[].class, int[].class, long[].class,
+                float[].class, double[].class }) {
+            VALUE_CLASSES.add(c.getName());
+        }
+    }
+
+    private static final Codec<Serializable> SERIALIZED = new SerializedCodec(VALUE_CLASSES);
+
+    /**
+     * The codec using the Java serialization, which only deserializes the objects of the accepted classes.
+     */
+    private static final class SerializedCodec implements Codec<Serializable> {
+        private final Set<String> accepted;
+
+        SerializedCodec(final Set<String> accepted) {
+            this.accepted = accepted;
+        }
+
+        @Override
+        public void write(final Serializable value, final DataOutput out) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(value);
+            objects.close();
+            writeBytes(bytes.toByteArray(), out);
+        }
+
+        @Override
+        public Serializable read(final DataInput in) throws IOException {
+            final ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(readBytes(in))) {
+                @Override
+                protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException,
+                        ClassNotFoundException {
+                    if (!accepted.contains(desc.getName())) throw new InvalidClassException(desc.getName(),
+                            "not accepted by the serialized codec");
+                    return super.resolveClass(desc);
+                }
+            };
+            try {
+                return (Serializable) objects.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e.getMessage(), e);
+            } finally {
+                objects.close();
+            }
+        }
+    }
+
+    private Codecs() {
+    }
+
+    /**
+     * Return the codec of strings, which writes the UTF-8 bytes of the string. It is canonical and good for keys.
+     * 
+     * @return the codec of strings
+     */
+    public static Codec<String> strings() {
+        return STRINGS;
+    }
+
+    /**
+     * Return the codec using the Java serialization. It is the codec of last resort for the values. It is canonical
+     * for the boxed primitives and strings, but not for all the objects, so be careful to use it for keys.
+     * <p>
+     * Only the strings, the boxed primitives, {@link BigInteger}, {@link BigDecimal}, {@link Date}, the enums and the
+     * arrays of primitives are deserialized, so that reading an index file never instantiates classes that are not
+     * expected in it. Use {@link #serialized(Class...)} for the objects of other classes.
+     * 
+     * @param <T>
+     *            type of the object
+     * @return the codec using the Java serialization
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> Codec<T> serialized() {
+        return (Codec<T>) SERIALIZED;
+    }
+
+    /**
+     * Return the codec using the Java serialization, which deserializes the objects of the given classes as well as
+     * those accepted by {@link #serialized()}.
+     * 
+     * @param classes
+     *            other classes of the serialized objects to read, including the classes of their fields
+     * @param <T>
+     *            type of the object
+     * @return the codec using the Java serialization
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Serializable> Codec<T> serialized(final Class<?>... classes) {
+        if (classes == null) throw new IllegalArgumentException("Argument classes must not be null.");
+        final Set<String> accepted = new HashSet<String>(VALUE_CLASSES);
+        for (Class<?> c : classes) {
+            if (c == null) throw new IllegalArgumentException("Argument classes must not contain null.");
+            accepted.add(c.getName());
+        }
+        return (Codec<T>) (Codec<?>) new SerializedCodec(accepted);
+    }
+
+    private static void writeBytes(final byte[] bytes, final DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * The index file mapped into memory. Each partition is mapped separately, so the file can be larger than what a single
+ * mapping can address. The mappings are only read by the absolute methods, so the index is safe to share by threads.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class DiskIndex {
+    /** The value returned by {@link #find(byte[])} for a record of an outer level. */
+    static final byte[] MARKER = new byte[0];
+
+    final Codec<Object> keyCodec;
+    final Codec<Object> valueCodec;
+    final int keyCount;
+    private final int partitionBits;
+    @CheckForNull
+    private volatile ByteBuffer[] regions;
+    private final int[] masks;
+    private final Lookup<?> root;
+
+    @SuppressWarnings("unchecked")
+    private DiskIndex(final RandomAccessFile file, final Codec<?> keyCodec, final Codec<?> valueCodec)
+            throws IOException {
+        this.keyCodec = (Codec<Object>) keyCodec;
+        this.valueCodec = (Codec<Object>) valueCodec;
+        if (file.readInt() != IndexFormat.MAGIC) throw new IOException("Not a lookup index file.");
+        final int version = file.readUnsignedByte();
+        if (version != IndexFormat.VERSION) throw new IOException("Unsupported index file version " + version + ".");
+        keyCount = file.readUnsignedByte();
+        partitionBits = file.readUnsignedByte();
+        final Object defaultValue = readDefault(file);
+        final int partitions = 1 << partitionBits;
+        final long[] offsets = new long[partitions];
+        final int[] lengths = new int[partitions];
+        masks = new int[partitions];
+        for (int i = 0; i < partitions; i++) {
+            offsets[i] = file.readLong();
+            lengths[i] = file.readInt();
+            masks[i] = file.readInt() - 1;
+        }
+        final FileChannel channel = file.getChannel();
+        final ByteBuffer[] mapped = new ByteBuffer[partitions];
+        for (int i = 0; i < partitions; i++) {
+            mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]);
+        }
+        regions = mapped;
+        Object chain = defaultValue;
+        for (int i = keyCount - 1; i > 0; i--) {
+            chain = new DiskLookup(this, null, chain);
+        }
+        root = new DiskLookup(this, new Object[0], chain);
+    }
+
+    static Lookup<?> open(final File file, final Codec<?> keyCodec, final Codec<?> valueCodec) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new DiskIndex(raf, keyCodec, valueCodec).root;
+        } finally {
+            raf.close();
+        }
+    }
+
+    @CheckForNull
+    private Object readDefault(final RandomAccessFile file) throws IOException {
+        final int length = file.readInt();
+        if (length == IndexFormat.MARKER) return null;
+        final byte[] bytes = new byte[length];
+        file.readFully(bytes);
+        return IndexFormat.decodeValue(valueCodec, bytes);
+    }
+
+    /**
+     * Find the record of the encoded keys.
+     * 
+     * @return the encoded value, {@link #MARKER} for a record of an outer level, or {@code null} if not found
+     */
+    @CheckForNull
+    byte[] find(final byte[] keys) {
+        final int hash = IndexFormat.hash(keys);
+        final int partition = IndexFormat.partitionOf(hash, partitionBits);
+        final ByteBuffer[] regions = this.regions;
+        if (regions == null) throw new LookupException("Index file is closed.");
+        final ByteBuffer region = regions[partition];
+        final int mask = masks[partition];
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            final int position = slot * IndexFormat.SLOT_BYTES;
+            final int offset = region.getInt(position + Integer.SIZE / Byte.SIZE);
+            if (offset == IndexFormat.EMPTY) return null;
+            if (region.getInt(position) == hash && matches(region, offset, keys)) {
+                return value(region, offset + Integer.SIZE / Byte.SIZE + keys.length);
+            }
+        }
+    }
+
+    private static boolean matches(final ByteBuffer region, final int offset, final byte[] keys) {
+        if (region.getInt(offset) != keys.length) return false;
+        final int start = offset + Integer.SIZE / Byte.SIZE;
+        for (int i = 0; i < keys.length; i++) {
+            if (region.get(start + i) != keys[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] value(final ByteBuffer region, final int offset) {
+        final int length = region.getInt(offset);
+        if (length == IndexFormat.MARKER) return MARKER;
+        final byte[] bytes = new byte[length];
+        final int start = offset + Integer.SIZE / Byte.SIZE;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = region.get(start + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop the mappings, so they are released as soon as they are garbage collected. Java has no way to unmap a file
+     * explicitly, which would also crash the threads still reading it.
+     */
+    void close() {
+        regions = null;
+    }
+
+    Object decode(final byte[] value) {
+        try {
+            return IndexFormat.decodeValue(valueCodec, value);
+        } catch (IOException e) {
+            throw new LookupException("Unable to read the value from the index file.", e);
+        }
+    }
+}
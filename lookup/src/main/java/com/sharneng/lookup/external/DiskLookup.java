@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import com.sharneng.lookup.AbstractLookup;
+import com.sharneng.lookup.LookupException;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * One level of a lookup served from a {@link DiskIndex}. The keys of the outer levels are kept as a prefix, and the
+ * full set of keys is encoded to probe the index at the last level. The inner lookup of a missing key never finds
+ * anything, so that the multi-key lookups behave the same as those built by the {@code LookupBuilder}.
+ * <p>
+ * Closing any level of the lookup closes the index, after which all the levels throw {@link LookupException}.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class DiskLookup extends AbstractLookup<Object> implements Closeable {
+    private final DiskIndex index;
+    @CheckForNull
+    private final Object[] prefix;
+
+    DiskLookup(final DiskIndex index, @CheckForNull final Object[] prefix, @CheckForNull final Object defaultValue) {
+        super(defaultValue);
+        this.index = index;
+        this.prefix = prefix;
+    }
+
+    @Override
+    @CheckForNull
+    protected Object lookup(final Object key) {
+        if (prefix == null) return null;
+        final int count = prefix.length + 1;
+        final Object[] keys = new Object[count];
+        System.arraycopy(prefix, 0, keys, 0, prefix.length);
+        keys[prefix.length] = key;
+        final byte[] encoded;
+        try {
+            encoded = IndexFormat.encodeKeys(index.keyCodec, keys, count);
+        } catch (ClassCastException e) {
+            return null;
+        } catch (IOException e) {
+            throw new LookupException("Unable to encode the key " + key + ".", e);
+        }
+        final byte[] value = index.find(encoded);
+        if (value == null) return null;
+        if (count == index.keyCount) return index.decode(value);
+        return new DiskLookup(index, keys, ((DiskLookup) getDefaultValue()).getDefaultValue());
+    }
+
+    @Override
+    public void close() {
+        index.close();
+    }
+}
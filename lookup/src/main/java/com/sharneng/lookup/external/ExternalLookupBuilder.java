@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.DuplicateKeyException;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupBuildException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.CheckForNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a lookup that resides in an index file on disk, for the sources larger than the heap. The lookup is served
+ * from the memory mapped index file, so only the pages of the keys being looked up are brought into memory by the
+ * operating system.
+ * <p>
+ * The source is read once. Each object is spilled as a record of the hash, the keys and the value, all encoded by the
+ * codecs, into the temporary file of the partition chosen by the hash. The partitions are then sorted by hash one at a
+ * time, so only the largest partition must fit in the heap. Choose more {@link #partitions(int) partitions} for the
+ * larger sources. The duplicated keys are resolved the same way as {@link com.sharneng.lookup.LookupBuilder}, and the
+ * multi-key lookup is a lookup of lookups as well. The objects with a {@code null} key or value are skipped.
+ * 
+ * <pre>
+ * Lookup&lt;?&gt; lookup = new ExternalLookupBuilder&lt;Trade, String&gt;(Codecs.strings(), bookName, Codecs.strings())
+ *         .by(region).by(bookId).useLastOnDuplicate().build(trades, new File(&quot;books.idx&quot;));
+ * </pre>
+ * 
+ * The index file can be opened again by {@link #open(File, Codec, Codec)} with the same codecs, by the same or another
+ * process.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the source objects
+ * @param <T>
+ *            type of the values
+ */
+public final class ExternalLookupBuilder<E, T> {
+    static final int DEFAULT_PARTITIONS = 64;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ExternalLookupBuilder.class);
+    private static final int BUFFER_SIZE = 8192;
+    private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
+    private final Codec<Object> keyCodec;
+    private final Converter<E, ? extends T> valueConverter;
+    private final Codec<T> valueCodec;
+    private final List<Converter<E, ?>> keyConverters = new ArrayList<Converter<E, ?>>();
+    private boolean firstOnDuplicate;
+    private boolean lastOnDuplicate;
+    private int partitionBits = Integer.numberOfTrailingZeros(DEFAULT_PARTITIONS);
+    @CheckForNull
+    private File tempDirectory;
+    @CheckForNull
+    private T defaultValue;
+
+    /**
+     * Construct a new builder.
+     * 
+     * @param keyCodec
+     *            the codec of the keys of all levels, which must be canonical
+     * @param valueConverter
+     *            the converter to compute the value from the source object
+     * @param valueCodec
+     *            the codec of the values
+     */
+    @SuppressWarnings("unchecked")
+    public ExternalLookupBuilder(final Codec<?> keyCodec, final Converter<E, ? extends T> valueConverter,
+            final Codec<T> valueCodec) {
+        if (keyCodec == null) throw new IllegalArgumentException("Argument keyCodec must not be null.");
+        if (valueConverter == null) throw new IllegalArgumentException("Argument valueConverter must not be null.");
+        if (valueCodec == null) throw new IllegalArgumentException("Argument valueCodec must not be null.");
+        this.keyCodec = (Codec<Object>) keyCodec;
+        this.valueConverter = valueConverter;
+        this.valueCodec = valueCodec;
+    }
+
+    /**
+     * Add a level of key. The first call is the outermost level.
+     * 
+     * @param keyConverter
+     *            the converter to compute the key from the source object
+     * @return this instance for continuous fluent API call
+     */
+    public ExternalLookupBuilder<E, T> by(final Converter<E, ?> keyConverter) {
+        if (keyConverter == null) throw new IllegalArgumentException("Argument keyConverter must not be null.");
+        keyConverters.add(keyConverter);
+        return this;
+    }
+
+    /**
+     * When same set of key resolve to two or more duplicated values, use first occurrence of the result.
+     * 
+     * @return this instance for continuous fluent API call
+     */
+    public ExternalLookupBuilder<E, T> useFirstOnDuplicate() {
+        firstOnDuplicate = true;
+        lastOnDuplicate = false;
+        return this;
+    }
+
+    /**
+     * When same set of key resolve to two or more duplicated values, use last occurrence of the result.
+     * 
+     * @return this instance for continuous fluent API call
+     */
+    public ExternalLookupBuilder<E, T> useLastOnDuplicate() {
+        firstOnDuplicate = false;
+        lastOnDuplicate = true;
+        return this;
+    }
+
+    /**
+     * Set the default value of the lookup, which is stored in the index file.
+     * 
+     * @param defaultValue
+     *            the default value
+     * @return this instance for continuous fluent API call
+     */
+    public ExternalLookupBuilder<E, T> defaultTo(@CheckForNull final T defaultValue) {
+        this.defaultValue = defaultValue;
+        return this;
+    }
+
+    /**
+     * Set the number of partitions, the default is {@value #DEFAULT_PARTITIONS}. The records of one partition are
+     * sorted in the heap, and one partition of the index file must be smaller than 2GB.
+     * 
+     * @param partitions
+     *            the number of partitions, a power of two
+     * @return this instance for continuous fluent API call
+     */
+    public ExternalLookupBuilder<E, T> partitions(final int partitions) {
+        if (partitions <= 0 || Integer.bitCount(partitions) != 1
+                || Integer.numberOfTrailingZeros(partitions) > IndexFormat.MAX_PARTITION_BITS) {
+            throw new IllegalArgumentException("Argument partitions must be a power of two no more than "
+                    + (1 << IndexFormat.MAX_PARTITION_BITS) + ".");
+        }
+        this.partitionBits = Integer.numberOfTrailingZeros(partitions);
+        return this;
+    }
+
+    /**
+     * Set the directory of the temporary files, the default is the directory of the index file.
+     * 
+     * @param directory
+     *            the directory of the temporary files
+     * @return this instance for continuous fluent API call
+     */
+    public ExternalLookupBuilder<E, T> tempDirectory(final File directory) {
+        if (directory == null) throw new IllegalArgumentException("Argument directory must not be null.");
+        this.tempDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Build the index file from the source objects and open it.
+     * 
+     * @param source
+     *            the source objects, which are read once
+     * @param index
+     *            the index file to write, which is replaced if exists. The new file is written aside in the same
+     *            directory and renamed over the old one, so the lookups still open on the old file keep reading it
+     * @return the lookup served from the index file, a lookup of lookups when there are many levels of key. It is
+     *         also {@link java.io.Closeable} to release the mapped file
+     * @throws IOException
+     *             when an I/O error occurs
+     */
+    public Lookup<?> build(final Iterator<? extends E> source, final File index) throws IOException {
+        if (source == null) throw new IllegalArgumentException("Argument source must not be null.");
+        if (index == null) throw new IllegalArgumentException("Argument index must not be null.");
+        if (keyConverters.isEmpty()) throw new IllegalStateException("At least one level of key must be added.");
+        final File directory = tempDirectory != null ? tempDirectory : index.getAbsoluteFile().getParentFile();
+        final File[] spills = new File[1 << partitionBits];
+        File written = null;
+        try {
+            for (int i = 0; i < spills.length; i++) {
+                spills[i] = File.createTempFile("lookup", ".spill", directory);
+            }
+            final long records = spill(source, spills);
+            written = File.createTempFile("lookup", ".index", index.getAbsoluteFile().getParentFile());
+            write(spills, written);
+            replace(written, index);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Built index file {} of {} records in {} partitions, {} bytes", new Object[] { index,
+                        records, spills.length, index.length() });
+            }
+        } finally {
+            for (File spill : spills) {
+                if (spill != null && !spill.delete() && spill.exists()) LOG.warn("Unable to delete {}", spill);
+            }
+            if (written != null && written.exists() && !written.delete()) LOG.warn("Unable to delete {}", written);
+        }
+        return open(index, keyCodec, valueCodec);
+    }
+
+    /**
+     * Open an index file built by {@link #build(Iterator, File)}.
+     * 
+     * @param index
+     *            the index file
+     * @param keyCodec
+     *            the codec of the keys used to build the index file
+     * @param valueCodec
+     *            the codec of the values used to build the index file
+     * @return the lookup served from the index file, a lookup of lookups when there are many levels of key. It is
+     *         also {@link java.io.Closeable} to release the mapped file
+     * @throws IOException
+     *             when an I/O error occurs or the file is not an index file
+     */
+    public static Lookup<?> open(final File index, final Codec<?> keyCodec, final Codec<?> valueCodec)
+            throws IOException {
+        if (index == null) throw new IllegalArgumentException("Argument index must not be null.");
+        if (keyCodec == null) throw new IllegalArgumentException("Argument keyCodec must not be null.");
+        if (valueCodec == null) throw new IllegalArgumentException("Argument valueCodec must not be null.");
+        return DiskIndex.open(index, keyCodec, valueCodec);
+    }
+
+    private long spill(final Iterator<? extends E> source, final File[] spills) throws IOException {
+        final DataOutputStream[] outs = new DataOutputStream[spills.length];
+        long records = 0;
+        try {
+            for (int i = 0; i < spills.length; i++) {
+                outs[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spills[i]), BUFFER_SIZE));
+            }
+            final Object[] keys = new Object[keyConverters.size()];
+            while (source.hasNext()) {
+                if (spill(source.next(), keys, outs)) records++;
+            }
+        } finally {
+            for (DataOutputStream out : outs) {
+                if (out != null) out.close();
+            }
+        }
+        return records;
+    }
+
+    private boolean spill(final E e, final Object[] keys, final DataOutputStream[] outs) throws IOException {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyConverters.get(i).convert(e);
+            if (keys[i] == null) return false;
+        }
+        final T value = valueConverter.convert(e);
+        if (value == null) return false;
+        for (int i = 1; i < keys.length; i++) {
+            spill(IndexFormat.encodeKeys(keyCodec, keys, i), null, outs);
+        }
+        spill(IndexFormat.encodeKeys(keyCodec, keys, keys.length), IndexFormat.encodeValue(valueCodec, value), outs);
+        return true;
+    }
+
+    private void spill(final byte[] keys, @CheckForNull final byte[] value, final DataOutputStream[] outs)
+            throws IOException {
+        final int hash = IndexFormat.hash(keys);
+        final DataOutputStream out = outs[IndexFormat.partitionOf(hash, partitionBits)];
+        out.writeInt(hash);
+        out.writeInt(keys.length);
+        out.write(keys);
+        if (value == null) {
+            out.writeInt(IndexFormat.MARKER);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    /**
+     * Rename the written file over the index file. The rename replaces the directory entry only, so the old file stays
+     * alive as long as it is mapped. Where the rename does not replace an existing file, the old file is deleted first.
+     */
+    private static void replace(final File written, final File index) throws IOException {
+        if (written.renameTo(index)) return;
+        if (index.delete() && written.renameTo(index)) return;
+        throw new IOException("Unable to rename " + written + " to " + index + ".");
+    }
+
+    private void write(final File[] spills, final File index) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(index, "rw");
+        try {
+            file.writeInt(IndexFormat.MAGIC);
+            file.writeByte(IndexFormat.VERSION);
+            file.writeByte(keyConverters.size());
+            file.writeByte(partitionBits);
+            if (defaultValue == null) {
+                file.writeInt(IndexFormat.MARKER);
+            } else {
+                final byte[] bytes = IndexFormat.encodeValue(valueCodec, defaultValue);
+                file.writeInt(bytes.length);
+                file.write(bytes);
+            }
+            final long directory = file.getFilePointer();
+            final ByteBuffer entries = ByteBuffer.allocate(spills.length * IndexFormat.DIRECTORY_BYTES);
+            file.write(entries.array());
+            for (File spill : spills) {
+                final List<Record> records = resolve(read(spill));
+                if (!spill.delete()) LOG.warn("Unable to delete {}", spill);
+                final int capacity = Math.max(1, Integer.highestOneBit(records.size()) << 2);
+                final byte[] region = region(records, capacity);
+                entries.putLong(file.getFilePointer()).putInt(region.length).putInt(capacity);
+                file.write(region);
+            }
+            file.seek(directory);
+            file.write(entries.array());
+        } finally {
+            file.close();
+        }
+    }
+
+    private static List<Record> read(final File spill) throws IOException {
+        final List<Record> records = new ArrayList<Record>();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spill),
+                BUFFER_SIZE));
+        try {
+            while (true) {
+                final int hash;
+                try {
+                    hash = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                final byte[] keys = new byte[in.readInt()];
+                in.readFully(keys);
+                final int length = in.readInt();
+                byte[] value = null;
+                if (length != IndexFormat.MARKER) {
+                    value = new byte[length];
+                    in.readFully(value);
+                }
+                records.add(new Record(hash, keys, value));
+            }
+        } finally {
+            in.close();
+        }
+        return records;
+    }
+
+    /**
+     * Sort the records by hash and resolve the duplicated keys. The sort is stable, so the records of the same keys
+     * stay in the order of the source.
+     */
+    private List<Record> resolve(final List<Record> records) throws IOException {
+        Collections.sort(records);
+        final List<Record> resolved = new ArrayList<Record>(records.size());
+        int run = 0;
+        for (Record record : records) {
+            if (run < resolved.size() && resolved.get(run).hash != record.hash) run = resolved.size();
+            final Record previous = findSame(resolved, run, record);
+            if (previous == null) {
+                resolved.add(record);
+            } else if (record.value != null) {
+                if (lastOnDuplicate) {
+                    previous.value = record.value;
+                } else if (!firstOnDuplicate) {
+                    throw new DuplicateKeyException(IndexFormat.decodeValue(valueCodec, record.value),
+                            IndexFormat.decodeValue(valueCodec, previous.value), IndexFormat.decodeKeys(keyCodec,
+                                    record.keys));
+                }
+            }
+        }
+        return resolved;
+    }
+
+    @CheckForNull
+    private static Record findSame(final List<Record> resolved, final int from, final Record record) {
+        for (int i = from; i < resolved.size(); i++) {
+            final Record candidate = resolved.get(i);
+            if (Arrays.equals(candidate.keys, record.keys)) return candidate;
+        }
+        return null;
+    }
+
+    private static byte[] region(final List<Record> records, final int capacity) {
+        long length = (long) capacity * IndexFormat.SLOT_BYTES;
+        for (Record record : records) {
+            length += INT_BYTES + record.keys.length + INT_BYTES + (record.value == null ? 0 : record.value.length);
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new LookupBuildException("Partition of " + length + " bytes exceeds the limit of "
+                    + Integer.MAX_VALUE + " bytes, use more partitions.");
+        }
+        final ByteBuffer region = ByteBuffer.allocate((int) length);
+        for (int i = 0; i < capacity; i++) {
+            region.putInt(0).putInt(IndexFormat.EMPTY);
+        }
+        final int mask = capacity - 1;
+        for (Record record : records) {
+            final int offset = region.position();
+            int slot = record.hash & mask;
+            while (region.getInt(slot * IndexFormat.SLOT_BYTES + INT_BYTES) != IndexFormat.EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            region.putInt(slot * IndexFormat.SLOT_BYTES, record.hash);
+            region.putInt(slot * IndexFormat.SLOT_BYTES + INT_BYTES, offset);
+            region.putInt(record.keys.length).put(record.keys);
+            if (record.value == null) {
+                region.putInt(IndexFormat.MARKER);
+            } else {
+                region.putInt(record.value.length).put(record.value);
+            }
+        }
+        return region.array();
+    }
+
+    private static final class Record implements Comparable<Record> {
+        final int hash;
+        final byte[] keys;
+        @CheckForNull
+        byte[] value;
+
+        Record(final int hash, final byte[] keys, @CheckForNull final byte[] value) {
+            this.hash = hash;
+            this.keys = keys;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(final Record o) {
+            return hash < o.hash ? -1 : (hash == o.hash ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Defines the format of the index file and the encoding of the keys.
+ * <p>
+ * The file starts with a header: the magic number, the version, the number of keys, the number of partition bits and
+ * the encoded default value. A directory follows with the offset, length and hash table capacity of each partition.
+ * Each partition is a region of an open addressing hash table followed by the records. A slot of the table holds the
+ * hash of the key and the offset of the record in the region. A record holds the length and the bytes of the encoded
+ * keys, then the length and the bytes of the encoded value. The records of the outer levels of a multi-key lookup mark
+ * the existence of the key prefix, and have no value.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class IndexFormat {
+    static final int MAGIC = 0x4C4B4958;
+    static final int VERSION = 1;
+    static final int SLOT_BYTES = 8;
+    static final int DIRECTORY_BYTES = 16;
+    static final int EMPTY = -1;
+    static final int MARKER = -1;
+    static final int MAX_PARTITION_BITS = 16;
+
+    private static final int C1 = 0x85ebca6b;
+    private static final int C2 = 0xc2b2ae35;
+    private static final int SHIFT1 = 16;
+    private static final int SHIFT2 = 13;
+    private static final int FNV_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private IndexFormat() {
+    }
+
+    static byte[] encodeKeys(final Codec<Object> codec, final Object[] keys, final int count) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(count);
+        for (int i = 0; i < count; i++) {
+            codec.write(keys[i], out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Object[] decodeKeys(final Codec<Object> codec, final byte[] encoded) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        final Object[] keys = new Object[in.readUnsignedByte()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = codec.read(in);
+        }
+        return keys;
+    }
+
+    static <T> byte[] encodeValue(final Codec<T> codec, final T value) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        codec.write(value, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static <T> T decodeValue(final Codec<T> codec, final byte[] encoded) throws IOException {
+        return codec.read(new DataInputStream(new ByteArrayInputStream(encoded)));
+    }
+
+    /**
+     * Hash the encoded keys. It depends only on the bytes, so it is stable across the processes that build and read
+     * the index file.
+     */
+    static int hash(final byte[] bytes) {
+        int h = FNV_BASIS;
+        for (byte b : bytes) {
+            h = (h ^ b) * FNV_PRIME;
+        }
+        h ^= h >>> SHIFT1;
+        h *= C1;
+        h ^= h >>> SHIFT2;
+        h *= C2;
+        h ^= h >>> SHIFT1;
+        return h;
+    }
+
+    static int partitionOf(final int hash, final int partitionBits) {
+        return partitionBits == 0 ? 0 : hash >>> (Integer.SIZE - partitionBits);
+    }
+}
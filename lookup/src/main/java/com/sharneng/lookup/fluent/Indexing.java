@@ -75,4 +75,85 @@ public interface Indexing<E, T> {
      * @return an instance of {@link Defined} that can be used to create the lookup
      */
     Defined<Lookup<?>> by(Converter<E, Object>... converters);
+
+    /**
+     * Index the source data by intervals, of which the inclusive bounds are specified by two expressions. The built
+     * lookup finds the reference object of the interval that contains the given key.
+     * <p>
+     * The bounds must be {@link Comparable}. When the bounds are all integral numbers, any integral number can be used
+     * as the key. Overlapping intervals are treated as duplicates: they fail the build by default,
+     * {@link Selected#useFirstOnDuplicate()} keeps the interval that comes first in the source data and
+     * {@link Selected#useLastOnDuplicate()} keeps the one that comes last.
+     * 
+     * @param lowExpression
+     *            the OGNL expression to compute the lower bound of the interval
+     * @param highExpression
+     *            the OGNL expression to compute the upper bound of the interval
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     */
+    Defined<Lookup<T>> byRange(String lowExpression, String highExpression);
+
+    /**
+     * Index the source data by intervals, of which the inclusive bounds are computed by two converters.
+     * 
+     * @param lowConverter
+     *            an instance of {@link Converter} that computes the lower bound of the interval
+     * @param highConverter
+     *            an instance of {@link Converter} that computes the upper bound of the interval
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     * @see #byRange(String, String)
+     */
+    Defined<Lookup<T>> byRange(Converter<E, Object> lowConverter, Converter<E, Object> highConverter);
+
+    /**
+     * Index the versions of the source data by the time they become effective, which is computed by the expression.
+     * The built lookup takes a point in time as key, given as {@link java.util.Date}, {@link java.util.Calendar} or
+     * epoch milliseconds, and finds the version effective at that time. A version is effective until the next version
+     * becomes effective.
+     * <p>
+     * Versions of same effective time are treated as duplicates.
+     * 
+     * @param effectiveExpression
+     *            the OGNL expression to compute the effective time of the version
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     */
+    Defined<Lookup<T>> asOf(String effectiveExpression);
+
+    /**
+     * Index the versions of the source data by the time they become effective and the time they expire, which are
+     * computed by the expressions. A version is effective from its effective time, inclusive, until its expiry time,
+     * exclusive, or until the next version becomes effective when the expiry time is {@code null}. The versions must not
+     * overlap, building the lookup fails when a version expires after the next version becomes effective.
+     * 
+     * @param effectiveExpression
+     *            the OGNL expression to compute the effective time of the version
+     * @param expiryExpression
+     *            the OGNL expression to compute the expiry time of the version
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     * @see #asOf(String)
+     */
+    Defined<Lookup<T>> asOf(String effectiveExpression, String expiryExpression);
+
+    /**
+     * Index the versions of the source data by the time they become effective, which is computed by the converter.
+     * 
+     * @param effectiveConverter
+     *            an instance of {@link Converter} that computes the effective time of the version
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     * @see #asOf(String)
+     */
+    Defined<Lookup<T>> asOf(Converter<E, Object> effectiveConverter);
+
+    /**
+     * Index the versions of the source data by the time they become effective and the time they expire, which are
+     * computed by the converters.
+     * 
+     * @param effectiveConverter
+     *            an instance of {@link Converter} that computes the effective time of the version
+     * @param expiryConverter
+     *            an instance of {@link Converter} that computes the expiry time of the version
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     * @see #asOf(String, String)
+     */
+    Defined<Lookup<T>> asOf(Converter<E, Object> effectiveConverter, Converter<E, Object> expiryConverter);
 }
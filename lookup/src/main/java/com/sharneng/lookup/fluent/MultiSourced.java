@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.fluent;
+
+/**
+ * Represent a stage of the fluent API that the source data is provided for building multiple
+ * {@link com.sharneng.lookup.Lookup} instances together.
+ * <p>
+ * All lookups declared by {@link #lookup()} are built in one pass over the source data. Each distinct expression or
+ * converter is evaluated only once per source element, and the selected values are shared by all the lookups.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <E>
+ *            type of the source data
+ */
+public interface MultiSourced<E> {
+
+    /**
+     * Declare another lookup to be built from the source data. The lookup is built together with all other declared
+     * lookups when {@link Defined#index()} of any of them, or {@link #index()}, is called the first time.
+     * 
+     * @return a fluent API interface to be continue declaring the lookup
+     * @exception IllegalStateException
+     *                if the lookups are already built
+     */
+    Sourced<E, E> lookup();
+
+    /**
+     * Build all declared lookups in one pass over the source data. Subsequent calls have no effect.
+     */
+    void index();
+}
@@ -15,6 +15,14 @@
  */
 package com.sharneng.lookup.fluent;
 
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Equivalence;
+import com.sharneng.lookup.Layout;
+import com.sharneng.lookup.PrefixLookup;
+
+import java.util.Comparator;
+import java.util.List;
+
 import javax.annotation.CheckForNull;
 
 /**
@@ -53,6 +61,91 @@ public interface Selected<E, T> extends Indexing<E, T> {
      */
     Selected<E, T> useLastOnDuplicate();
 
+    /**
+     * Choose the in-memory representation of the key levels of the built lookup. The default is {@link Layout#AUTO},
+     * which chooses for each level by analyzing its keys. The chosen layouts are reported by the debug log of
+     * {@code com.sharneng.lookup.LookupBuilder}, and {@link com.sharneng.lookup.Lookups#layoutOf(com.sharneng.lookup.Lookup)}
+     * tells the layout of a level.
+     * 
+     * @param layout
+     *            the representation of the key levels
+     * @return this instance for continuous fluent API call
+     */
+    Selected<E, T> layout(Layout layout);
+
+    /**
+     * Use the equivalence to hash and compare the keys of all key levels, both when building the lookup and when
+     * finding in it. The key levels are of {@link Layout#OPEN} layout regardless of the chosen layout. The default is
+     * {@link com.sharneng.lookup.Equivalences#natural()}.
+     * <p>
+     * The hash code of each key of the lookup is computed only once when building and kept with the key. Finding
+     * computes the hash code of the given key once, and compares only the keys of the same hash code.
+     * 
+     * @param equivalence
+     *            the strategy to hash and compare keys
+     * @return this instance for continuous fluent API call
+     */
+    Selected<E, T> keyEquivalence(Equivalence equivalence);
+
+    /**
+     * Make the built lookup throw a preallocated {@link com.sharneng.lookup.LookupException} without stack trace when
+     * {@code get} or {@code hunt} cannot find the reference object. The exception doesn't tell the key in its message.
+     * <p>
+     * This is for the callers that use the exception for control flow on frequent misses. Callers that can avoid the
+     * exception should use {@link com.sharneng.lookup.Lookups#tryFind(com.sharneng.lookup.Lookup, Object,
+     * com.sharneng.lookup.FindResult) tryFind} instead.
+     * 
+     * @return this instance for continuous fluent API call
+     */
+    Selected<E, T> stacklessNotFound();
+
+    /**
+     * Limit the estimated memory of the built lookup. The bytes of each key level are estimated as it is built, from
+     * its layout and number of entries, and the build fails with {@link com.sharneng.lookup.MemoryBudgetException} as
+     * soon as the total exceeds the budget. The entries are also counted while they are grouped, so the build fails
+     * before the intermediate maps of a level outgrow the budget. The keys and the reference objects are not counted.
+     * 
+     * @param bytes
+     *            the memory budget in bytes
+     * @return this instance for continuous fluent API call
+     * @see #compactOverBudget()
+     */
+    Selected<E, T> memoryBudget(long bytes);
+
+    /**
+     * When the {@link #memoryBudget(long) memory budget} is exceeded, build the lookup again using the compact
+     * {@link Layout#SORTED} layout, which keeps no empty slots, before failing. It has no effect when the layout is
+     * already {@link Layout#SORTED} or a key equivalence is set.
+     * <p>
+     * The sorted layout matches the keys by {@code compareTo} instead of {@code equals}, which differ for keys such as
+     * {@link java.math.BigDecimal}. So only the levels of which all keys are {@link String} or integral are built
+     * again using the sorted layout, the other levels keep their layout and the same matching of keys.
+     * 
+     * @return this instance for continuous fluent API call
+     */
+    Selected<E, T> compactOverBudget();
+
+    /**
+     * Index only the source data that the OGNL expression evaluates to {@code true} for. The expression is evaluated
+     * once for each source object in the pass that builds the lookup, before any key or value is computed, so a
+     * rejected object costs one evaluation and no copy. When called more than once, all the conditions must be met.
+     * 
+     * @param expression
+     *            the OGNL expression to compute the {@link Boolean} condition from the source data
+     * @return this instance for continuous fluent API call
+     */
+    Selected<E, T> where(String expression);
+
+    /**
+     * Index only the source data that the converter computes {@link Boolean#TRUE} for.
+     * 
+     * @param condition
+     *            the converter to compute the condition from the source data
+     * @return this instance for continuous fluent API call
+     * @see #where(String)
+     */
+    Selected<E, T> where(Converter<E, Boolean> condition);
+
     /**
      * Set the default value to be returned when the referenced value is not found in the built lookup.
      * 
@@ -61,4 +154,48 @@ public interface Selected<E, T> extends Indexing<E, T> {
      * @return this instance for continuous fluent API call
      */
     Selected<E, T> defaultTo(@CheckForNull T defaultValue);
+
+    /**
+     * Keep all the values resolved by same set of keys instead of treating them as duplicates. The built lookup returns
+     * an immutable list of the values in the order of the source data.
+     * <p>
+     * The values of all the lists are kept in one contiguous array. Any default value set before is discarded.
+     * 
+     * @return this instance for continuous fluent API call
+     */
+    Selected<E, List<T>> grouped();
+
+    /**
+     * Keep all the values resolved by same set of keys instead of treating them as duplicates. The built lookup returns
+     * an immutable list of the values sorted by the given comparator.
+     * 
+     * @param comparator
+     *            the comparator to sort the values of each list
+     * @return this instance for continuous fluent API call
+     * @see #grouped()
+     */
+    Selected<E, List<T>> grouped(Comparator<? super T> comparator);
+
+    /**
+     * Index the source data by the character sequence computed by the expression, so that the built lookup can also
+     * find the reference object of the longest key that is a prefix of a given text.
+     * <p>
+     * A prefix lookup has only one level of index.
+     * 
+     * @param expression
+     *            the OGNL expression to compute the {@link CharSequence} key from the source data
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     */
+    Defined<PrefixLookup<T>> byPrefix(String expression);
+
+    /**
+     * Index the source data by the character sequence computed by the converter, so that the built lookup can also
+     * find the reference object of the longest key that is a prefix of a given text.
+     * 
+     * @param converter
+     *            an instance of {@link Converter} that computes the {@link CharSequence} key from the source data
+     * @return an instance of {@link Defined} that can be used to create the lookup
+     * @see #byPrefix(String)
+     */
+    Defined<PrefixLookup<T>> byPrefix(Converter<E, Object> converter);
 }
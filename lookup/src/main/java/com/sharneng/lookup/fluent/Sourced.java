@@ -16,6 +16,8 @@
 package com.sharneng.lookup.fluent;
 
 import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Equivalence;
+import com.sharneng.lookup.Layout;
 
 /**
  * Represent a stage of the fluent API that the source data is provided for building a
@@ -45,6 +47,41 @@ public interface Sourced<E, T> extends Selected<E, T> {
      */
     Sourced<E, T> useLastOnDuplicate();
 
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> layout(Layout layout);
+
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> keyEquivalence(Equivalence equivalence);
+
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> stacklessNotFound();
+
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> memoryBudget(long bytes);
+
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> compactOverBudget();
+
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> where(String expression);
+
+    /**
+     * {@inheritDoc}
+     */
+    Sourced<E, T> where(Converter<E, Boolean> condition);
+
     /**
      * Specifies the expression to compute a value from the source data, the computed value will be those returned from
      * the built lookup.
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.trace;
+
+/**
+ * The result of replaying a {@link Trace} against a lookup.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class ReplayResult {
+    private final int calls;
+    private final int hits;
+    private final long nanos;
+
+    ReplayResult(final int calls, final int hits, final long nanos) {
+        this.calls = calls;
+        this.hits = hits;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return the number of calls replayed
+     */
+    public int getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return the number of calls that found the reference object
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the ratio of the calls that found the reference object, 0 if no call is replayed
+     */
+    public double getHitRatio() {
+        return calls == 0 ? 0 : (double) hits / calls;
+    }
+
+    /**
+     * @return the time taken by the replay in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the average time of a call in nanoseconds, 0 if no call is replayed
+     */
+    public double getNanosPerCall() {
+        return calls == 0 ? 0 : (double) nanos / calls;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayResult{calls=" + calls + ", hits=" + hits + ", nanos=" + nanos + "}";
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.trace;
+
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * A trace recorded by {@link TraceRecorder}, loaded in memory to be replayed against lookups.
+ * <p>
+ * Replaying a trace calls the same methods with the same keys in the same order as recorded, so lookups built with
+ * different options can be compared on the real key skew and hit ratio. Calls recorded as {@code get} and {@code hunt}
+ * are replayed as such, and their not found exceptions are counted as misses. Calls of {@code get} with a default value
+ * are replayed with a default value that is counted as a miss. Calls of {@code find} are replayed with a {@code null}
+ * default value, so that the default value of the lookup is not counted as a hit. Keys that could not be recorded or
+ * read back are skipped.
+ * <p>
+ * Keys other than strings and integral numbers are recorded in Java serialized form. Only the keys of the common value
+ * classes and of the classes given to {@link #read(InputStream, Class...)} are deserialized, the others are skipped.
+ * <p>
+ * {@link #run(Lookup)} has no overhead other than the calls, which makes it suitable as the body of a JMH benchmark
+ * method:
+ * 
+ * <pre>
+ * &#064;Benchmark
+ * public int replay() {
+ *     return trace.run(lookup);
+ * }
+ * </pre>
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class Trace {
+    private static final Object MISSING = new Object();
+    private static final Set<String> VALUE_CLASSES = new HashSet<String>();
+    static {
+        for (Class<?> c : new Class<?>[] { Number.class, Boolean.class, Character.class, Byte.class, Short.class,
+                Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, Date.class,
+                Enum.class, boolean[].class, char[].class, byte[].class, short[].class, int[].class, long[].class,
+                float[].class, double[].class }) {
+            VALUE_CLASSES.add(c.getName());
+        }
+    }
+
+    private final byte[] ops;
+    private final Object[] keys;
+    private final int skipped;
+
+    private Trace(final byte[] ops, final Object[] keys, final int skipped) {
+        this.ops = ops;
+        this.keys = keys;
+        this.skipped = skipped;
+    }
+
+    /**
+     * Read a trace from the input stream. Serialized keys are deserialized only when they are of the common value
+     * classes, which are the boxed primitives, {@link BigInteger}, {@link BigDecimal} and {@link Date}, or of the key
+     * classes given. The keys of other classes are skipped, so that reading a trace never instantiates classes that
+     * are not expected as keys.
+     * 
+     * @param in
+     *            the stream to read the trace from, it is not closed by this method
+     * @param keyClasses
+     *            other classes of the serialized keys to read, including the classes of their fields
+     * @return the trace read
+     * @throws IOException
+     *             if failed to read the stream or the stream is not a trace
+     */
+    public static Trace read(final InputStream in, final Class<?>... keyClasses) throws IOException {
+        if (in == null) throw new IllegalArgumentException("Argument in must not be null.");
+        if (keyClasses == null) throw new IllegalArgumentException("Argument keyClasses must not be null.");
+        final Set<String> accepted = new HashSet<String>(VALUE_CLASSES);
+        for (Class<?> c : keyClasses) {
+            if (c == null) throw new IllegalArgumentException("Argument keyClasses must not contain null.");
+            accepted.add(c.getName());
+        }
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != TraceFormat.MAGIC) throw new IOException("Not a lookup trace");
+        final int version = data.readUnsignedByte();
+        if (version < 1 || version > TraceFormat.VERSION) {
+            throw new IOException("Unsupported lookup trace version " + version);
+        }
+
+        final List<String> dictionary = new ArrayList<String>();
+        byte[] ops = new byte[TraceFormat.MAX_DICTIONARY];
+        Object[] keys = new Object[TraceFormat.MAX_DICTIONARY];
+        int size = 0, skipped = 0;
+        for (int tag = data.read(); tag >= 0; tag = data.read()) {
+            final Object key;
+            switch (tag & TraceFormat.TYPE_MASK) {
+            case TraceFormat.NULL:
+                key = null;
+                break;
+            case TraceFormat.INT:
+                key = (int) TraceFormat.readVarLong(data);
+                break;
+            case TraceFormat.LONG:
+                key = TraceFormat.readVarLong(data);
+                break;
+            case TraceFormat.SHORT:
+                key = (short) TraceFormat.readVarLong(data);
+                break;
+            case TraceFormat.BYTE:
+                key = (byte) TraceFormat.readVarLong(data);
+                break;
+            case TraceFormat.STRING:
+                final String s = new String(readBytes(data), TraceFormat.UTF8);
+                if (dictionary.size() < TraceFormat.MAX_DICTIONARY) dictionary.add(s);
+                key = s;
+                break;
+            case TraceFormat.STRING_REF:
+                key = dictionary.get((int) TraceFormat.readVarLong(data));
+                break;
+            case TraceFormat.SERIALIZED:
+                key = deserialize(readBytes(data), accepted);
+                if (key == null) {
+                    skipped++;
+                    continue;
+                }
+                break;
+            case TraceFormat.UNKNOWN:
+                skipped++;
+                continue;
+            default:
+                throw new IOException("Corrupted lookup trace, unknown tag " + tag);
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            ops[size] = (byte) (tag >>> TraceFormat.OP_SHIFT);
+            keys[size++] = key;
+        }
+        return new Trace(Arrays.copyOf(ops, size), Arrays.copyOf(keys, size), skipped);
+    }
+
+    /**
+     * Return the number of calls in the trace.
+     * 
+     * @return the number of calls that can be replayed
+     */
+    public int size() {
+        return ops.length;
+    }
+
+    /**
+     * Return the operation of the call at the index, one of the operations in {@link TraceFormat}.
+     */
+    int op(final int index) {
+        return ops[index];
+    }
+
+    /**
+     * Return the number of recorded calls that are skipped because their keys could not be recorded or read back.
+     * 
+     * @return the number of calls skipped
+     */
+    public int skipped() {
+        return skipped;
+    }
+
+    /**
+     * Replay the trace against the lookup.
+     * 
+     * @param lookup
+     *            the lookup to replay the trace against
+     * @return the number of calls that found the reference object
+     */
+    public int run(final Lookup<?> lookup) {
+        if (lookup == null) throw new IllegalArgumentException("Argument lookup must not be null.");
+        final byte[] ops = this.ops;
+        final Object[] keys = this.keys;
+        @SuppressWarnings("unchecked")
+        final Lookup<Object> objects = (Lookup<Object>) lookup;
+        int hits = 0;
+        for (int i = 0; i < ops.length; i++) {
+            final Object key = keys[i];
+            switch (ops[i]) {
+            case TraceFormat.HAS:
+                if (lookup.has(key)) hits++;
+                break;
+            case TraceFormat.GET:
+                try {
+                    if (lookup.get(key) != null) hits++;
+                } catch (LookupException e) {
+                    continue;
+                }
+                break;
+            case TraceFormat.GET_DEFAULT:
+                if (objects.get(key, MISSING) != MISSING) hits++;
+                break;
+            case TraceFormat.HUNT:
+                try {
+                    lookup.hunt(key);
+                    hits++;
+                } catch (LookupException e) {
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                break;
+            default:
+                if (lookup.find(key, null) != null) hits++;
+                break;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Replay the trace against the lookup and measure the time taken.
+     * 
+     * @param lookup
+     *            the lookup to replay the trace against
+     * @return the result of the replay
+     */
+    public ReplayResult replay(final Lookup<?> lookup) {
+        final long start = System.nanoTime();
+        final int hits = run(lookup);
+        return new ReplayResult(ops.length, hits, System.nanoTime() - start);
+    }
+
+    private static byte[] readBytes(final DataInputStream data) throws IOException {
+        final long length = TraceFormat.readVarLong(data);
+        if (length < 0 || length > Integer.MAX_VALUE) throw new IOException("Corrupted lookup trace, length " + length);
+        final byte[] bytes = new byte[(int) length];
+        data.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Deserialize the key, or return null if its class is not available or not accepted.
+     */
+    @CheckForNull
+    private static Object deserialize(final byte[] bytes, final Set<String> accepted) throws IOException {
+        try {
+            return new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+                @Override
+                protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException,
+                        ClassNotFoundException {
+                    if (!accepted.contains(desc.getName())) throw new InvalidClassException(desc.getName(),
+                            "not accepted as key of lookup trace");
+                    return super.resolveClass(desc);
+                }
+            }.readObject();
+        } catch (InvalidClassException e) {
+            return null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Constants and codec of the trace file format.
+ * <p>
+ * A trace starts with the {@link #MAGIC} number and the {@link #VERSION}. Each record is a tag byte, of which the high
+ * four bits are the operation and the low four bits are the type of the key, followed by the key. Integral keys are
+ * zigzag variable length encoded. Strings are UTF-8 encoded the first time they are seen and referenced by index
+ * afterwards. Other {@link Serializable} keys are Java serialized, and keys that cannot be serialized are recorded as
+ * {@link #UNKNOWN} without value.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+final class TraceFormat {
+    static final int MAGIC = 0x4C4B5452; // LKTR
+    static final int VERSION = 2;
+
+    static final int FIND = 0;
+    static final int GET = 1;
+    static final int HAS = 2;
+    static final int HUNT = 3;
+    static final int FIND_DEFAULT = 4; // since version 2
+    static final int GET_DEFAULT = 5; // since version 2
+
+    static final int NULL = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int SHORT = 3;
+    static final int BYTE = 4;
+    static final int STRING = 5;
+    static final int STRING_REF = 6;
+    static final int SERIALIZED = 7;
+    static final int UNKNOWN = 8;
+
+    static final int OP_SHIFT = 4;
+    static final int TYPE_MASK = 0x0F;
+    static final int MAX_DICTIONARY = 1 << 16;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int MORE = 0x80;
+    private static final int SEVEN = 7;
+
+    private TraceFormat() {
+    }
+
+    static int typeOf(final Object key) {
+        if (key == null) return NULL;
+        if (key instanceof Integer) return INT;
+        if (key instanceof Long) return LONG;
+        if (key instanceof Short) return SHORT;
+        if (key instanceof Byte) return BYTE;
+        if (key instanceof String) return STRING;
+        return key instanceof Serializable ? SERIALIZED : UNKNOWN;
+    }
+
+    @CheckForNull
+    static byte[] serialize(final Object key) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(key);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long v = (value << 1) ^ (value >> (Long.SIZE - 1));
+        while ((v & ~SEVEN_BITS) != 0) {
+            out.writeByte((int) (v & SEVEN_BITS) | MORE);
+            v >>>= SEVEN;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(final DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0;; shift += SEVEN) {
+            final int b = in.readUnsignedByte();
+            v |= (long) (b & SEVEN_BITS) << shift;
+            if ((b & MORE) == 0) break;
+        }
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.trace;
+
+import com.sharneng.lookup.Lookup;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Records the keys passed to the {@code find}, {@code get}, {@code has} and {@code hunt} methods of lookups into a
+ * compact binary trace, which can be replayed by {@link Trace}.
+ * <p>
+ * One in every {@code sampleInterval} calls of each thread is recorded, so the recorder can stay on a production lookup
+ * with little overhead. The sampled calls are queued and written to the stream by a daemon thread, so the lookups never
+ * wait for the keys to be serialized. Calls sampled while {@value #QUEUE_CAPACITY} calls are already waiting are
+ * dropped and counted by {@link #dropped()}. The recorder is thread safe. The methods of the wrapped lookups never
+ * throw because of the trace, the first {@link IOException} stops the recording and is thrown by {@link #flush()} or
+ * {@link #close()}.
+ * 
+ * <pre>
+ * TraceRecorder recorder = new TraceRecorder(new FileOutputStream(&quot;codes.trace&quot;), 100);
+ * Lookup&lt;CountyCode&gt; lookup = recorder.wrap(Lookups.from(codes).by(&quot;code&quot;).index());
+ * ...
+ * recorder.close();
+ * </pre>
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public final class TraceRecorder implements Closeable, Flushable {
+    /**
+     * The maximum number of sampled calls waiting to be written.
+     */
+    public static final int QUEUE_CAPACITY = 8192;
+
+    /**
+     * A sampled call waiting to be written.
+     */
+    private static final class Call {
+        private final int op;
+        @CheckForNull
+        private final Object key;
+
+        Call(final int op, @CheckForNull final Object key) {
+            this.op = op;
+            this.key = key;
+        }
+    }
+
+    private final DataOutputStream out;
+    private final int sampleInterval;
+    private final ThreadLocal<int[]> ticks = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+    private final BlockingQueue<Call> queue = new ArrayBlockingQueue<Call>(QUEUE_CAPACITY);
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final Thread writer;
+    private long handled;
+    private long recorded;
+    @CheckForNull
+    private IOException failure;
+    private volatile boolean closed;
+    private boolean streamClosed;
+
+    /**
+     * Create a recorder that writes the trace to the output stream.
+     * 
+     * @param out
+     *            the stream to write the trace to, it is closed when the recorder is closed
+     * @param sampleInterval
+     *            record one in every {@code sampleInterval} calls, 1 to record every call
+     * @throws IOException
+     *             if failed to write the header of the trace
+     */
+    public TraceRecorder(final OutputStream out, final int sampleInterval) throws IOException {
+        if (out == null) throw new IllegalArgumentException("Argument out must not be null.");
+        if (sampleInterval <= 0) throw new IllegalArgumentException("Argument sampleInterval must be positive.");
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.sampleInterval = sampleInterval;
+        this.out.writeInt(TraceFormat.MAGIC);
+        this.out.writeByte(TraceFormat.VERSION);
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                writeQueued();
+            }
+        }, "lookup-trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Wrap the lookup so that the keys passed to it are recorded. Only the keys passed to the returned lookup are
+     * recorded, not those passed to the lookups it returns.
+     * 
+     * @param lookup
+     *            the lookup to record
+     * @param <T>
+     *            type of the reference object to be looked up
+     * @return the lookup that records the keys and delegates to the given lookup
+     */
+    public <T> Lookup<T> wrap(final Lookup<T> lookup) {
+        if (lookup == null) throw new IllegalArgumentException("Argument lookup must not be null.");
+        return new TracingLookup<T>(lookup, this);
+    }
+
+    /**
+     * Return the number of calls recorded so far.
+     * 
+     * @return the number of calls recorded
+     */
+    public synchronized long recorded() {
+        return recorded;
+    }
+
+    /**
+     * Return the number of sampled calls dropped because too many calls were waiting to be written.
+     * 
+     * @return the number of calls dropped
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Write the calls sampled so far and flush the stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        final long target = queued.get();
+        synchronized (this) {
+            drain();
+            try {
+                while (handled < target) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while flushing the trace");
+            }
+            if (failure != null) throw failure;
+            if (!streamClosed) out.flush();
+        }
+    }
+
+    /**
+     * Write the calls sampled so far, stop the writer thread and close the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the trace");
+        }
+        synchronized (this) {
+            drain();
+            streamClosed = true;
+            out.close();
+            if (failure != null) throw failure;
+        }
+    }
+
+    void record(final int op, @CheckForNull final Object key) {
+        if (sampleInterval > 1 && ++ticks.get()[0] % sampleInterval != 0) return;
+        if (closed) return;
+        if (queue.offer(new Call(op, key))) queued.incrementAndGet();
+        else dropped.incrementAndGet();
+    }
+
+    private void writeQueued() {
+        try {
+            while (true) {
+                final Call call = queue.take();
+                synchronized (this) {
+                    write(call);
+                }
+            }
+        } catch (InterruptedException e) {
+            return; // closing
+        }
+    }
+
+    /**
+     * Write the calls in the queue, must hold the lock.
+     */
+    private void drain() {
+        for (Call call = queue.poll(); call != null; call = queue.poll()) {
+            write(call);
+        }
+    }
+
+    /**
+     * Write the call unless the recording stopped, must hold the lock.
+     */
+    private void write(final Call call) {
+        handled++;
+        notifyAll();
+        if (streamClosed || failure != null) return;
+        try {
+            write(call.op, call.key);
+            recorded++;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void write(final int op, @CheckForNull final Object key) throws IOException {
+        int type = TraceFormat.typeOf(key);
+        byte[] bytes = null;
+        Integer index = null;
+        if (type == TraceFormat.STRING) {
+            index = dictionary.get(key);
+            if (index != null) type = TraceFormat.STRING_REF;
+            else bytes = ((String) key).getBytes(TraceFormat.UTF8);
+        } else if (type == TraceFormat.SERIALIZED) {
+            bytes = TraceFormat.serialize(key);
+            if (bytes == null) type = TraceFormat.UNKNOWN;
+        }
+
+        out.writeByte(op << TraceFormat.OP_SHIFT | type);
+        switch (type) {
+        case TraceFormat.INT:
+        case TraceFormat.LONG:
+        case TraceFormat.SHORT:
+        case TraceFormat.BYTE:
+            TraceFormat.writeVarLong(out, ((Number) key).longValue());
+            break;
+        case TraceFormat.STRING:
+            TraceFormat.writeVarLong(out, bytes.length);
+            out.write(bytes);
+            if (dictionary.size() < TraceFormat.MAX_DICTIONARY) dictionary.put((String) key, dictionary.size());
+            break;
+        case TraceFormat.STRING_REF:
+            TraceFormat.writeVarLong(out, index);
+            break;
+        case TraceFormat.SERIALIZED:
+            TraceFormat.writeVarLong(out, bytes.length);
+            out.write(bytes);
+            break;
+        default:
+            break;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.trace;
+
+import com.sharneng.lookup.Lookup;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Lookup that records the keys passed to it and delegates to another lookup.
+ * 
+ * @author Kenneth Xu
+ * 
+ * @param <T>
+ *            type of the object to lookup
+ */
+class TracingLookup<T> implements Lookup<T> {
+    private final Lookup<T> lookup;
+    private final TraceRecorder recorder;
+
+    TracingLookup(final Lookup<T> lookup, final TraceRecorder recorder) {
+        this.lookup = lookup;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public boolean has(@CheckForNull final Object key) {
+        recorder.record(TraceFormat.HAS, key);
+        return lookup.has(key);
+    }
+
+    @Override
+    public T find(@CheckForNull final Object key) {
+        recorder.record(TraceFormat.FIND, key);
+        return lookup.find(key);
+    }
+
+    @Override
+    public T find(@CheckForNull final Object key, @CheckForNull final T defaultValue) {
+        recorder.record(TraceFormat.FIND_DEFAULT, key);
+        return lookup.find(key, defaultValue);
+    }
+
+    @Override
+    public T get(@CheckForNull final Object key) {
+        recorder.record(TraceFormat.GET, key);
+        return lookup.get(key);
+    }
+
+    @Override
+    public T get(@CheckForNull final Object key, final T defaultValue) {
+        recorder.record(TraceFormat.GET_DEFAULT, key);
+        return lookup.get(key, defaultValue);
+    }
+
+    @Override
+    public T hunt(final Object key) {
+        recorder.record(TraceFormat.HUNT, key);
+        return lookup.hunt(key);
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Contains the classes to record the keys passed to a {@link com.sharneng.lookup.Lookup} into a compact binary trace,
+ * and to replay the trace against other lookups.
+ * 
+ * @author Kenneth Xu
+ */
+@com.sharneng.annotation.NonnullByDefault
+package com.sharneng.lookup.trace;
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+import com.sharneng.lookup.testdata.Model.Base;
+import com.sharneng.lookup.testdata.Model.Sub;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ExpressionCacheTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Before
+    public void setup() {
+        ExpressionCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ExpressionCache.setMaximumSize(1024);
+    }
+
+    @Test
+    public void repeatedBuild_hitsCache() {
+        Lookups.from(CountyCode.codes).by("state").by("county").index();
+        long misses = ExpressionCache.missCount();
+        long hits = ExpressionCache.hitCount();
+
+        Lookups.from(CountyCode.codes).by("state").by("county").index();
+
+        assertThat(ExpressionCache.missCount(), is(misses));
+        assertThat(ExpressionCache.hitCount(), greaterThan(hits));
+        assertThat(ExpressionCache.size(), is(4));
+    }
+
+    @Test
+    public void convert_resolvesGettersPerSourceClass() {
+        OgnlConverter<Base, String> sut = new OgnlConverter<Base, String>(String.class, "propertyA");
+
+        assertThat(sut.convert(new Base()), is("Base.A"));
+        assertThat(sut.convert(new Sub()), is("Sub.A"));
+        assertThat(sut.convert(new Base()), is("Base.A"));
+    }
+
+    @Test
+    public void convert_resolvesPropertyPath() {
+        OgnlConverter<CountyCode, Boolean> sut = new OgnlConverter<CountyCode, Boolean>(Boolean.class,
+                "county . empty");
+
+        assertThat(sut.convert(new CountyCode(1, "NJ", "Mercer")), is(false));
+        assertThat(sut.convert(new CountyCode(1, "NJ", "")), is(true));
+    }
+
+    @Test
+    public void convert_chokes_onNullInPropertyPath() {
+        OgnlConverter<CountyCode, Boolean> sut = new OgnlConverter<CountyCode, Boolean>(Boolean.class,
+                "county.empty");
+        sut.convert(CountyCode.code100);
+        exception.expect(LookupBuildException.class);
+
+        sut.convert(CountyCode.DEFAULT);
+    }
+
+    @Test
+    public void convert_evaluatesOtherExpressions() {
+        OgnlConverter<CountyCode, String> sut = new OgnlConverter<CountyCode, String>(String.class,
+                "state + '/' + county");
+
+        assertThat(sut.convert(CountyCode.code100), is("NJ/Mercer"));
+    }
+
+    @Test
+    public void setMaximumSize_evictsLeastRecentlyUsed() {
+        ExpressionCache.setMaximumSize(2);
+
+        new OgnlConverter<Object, Object>(Object.class, "a");
+        new OgnlConverter<Object, Object>(Object.class, "b");
+        new OgnlConverter<Object, Object>(Object.class, "a");
+        new OgnlConverter<Object, Object>(Object.class, "c");
+        new OgnlConverter<Object, Object>(Object.class, "a");
+
+        assertThat(ExpressionCache.size(), is(2));
+        assertThat(ExpressionCache.hitCount(), is(2L));
+        assertThat(ExpressionCache.missCount(), is(3L));
+    }
+
+    @Test
+    public void setMaximumSize_chokes_onNegativeSize() {
+        exception.expect(IllegalArgumentException.class);
+
+        ExpressionCache.setMaximumSize(-1);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+
+public class HotKeyLookupTest {
+    private static final int SIZE = 10000;
+    private static final List<String> keys = new ArrayList<String>();
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            keys.add("key" + i);
+        }
+    }
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static final Executor SAME_THREAD = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static HotKeyLookup<String> newLookup(int capacity) {
+        return new HotKeyLookup<String>(Lookups.from(keys).defaultTo("none").by("toString()").index(), capacity,
+                SAME_THREAD);
+    }
+
+    @Test
+    public void hotKeys_arePromoted_andFoundSameAsLookup() {
+        HotKeyLookup<String> lookup = newLookup(8);
+        Random random = new Random(1);
+
+        for (int i = 0; i < HotKeyLookup.SAMPLE_INTERVAL * HotKeyLookup.WINDOW * 2; i++) {
+            String key = random.nextInt(4) == 0 ? keys.get(random.nextInt(SIZE)) : keys.get(random.nextInt(4));
+            assertThat(lookup.get(key), is(key));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(lookup.isHot(keys.get(i)), is(true));
+        }
+        assertThat(lookup.hotSize(), lessThanOrEqualTo(8));
+        assertThat(lookup.find("key1"), is("key1"));
+        assertThat(lookup.find("missing"), is("none"));
+        assertThat(lookup.find("missing", "other"), is("other"));
+        assertThat(lookup.get("key2", "other"), is("key2"));
+        assertThat(lookup.has("key3"), is(true));
+        assertThat(lookup.has("missing"), is(false));
+        assertThat(lookup.hunt("key0"), is("key0"));
+    }
+
+    @Test
+    public void cooledKeys_areDemoted() {
+        HotKeyLookup<String> lookup = newLookup(8);
+        for (int i = 0; i < HotKeyLookup.SAMPLE_INTERVAL * HotKeyLookup.WINDOW; i++) {
+            lookup.find(keys.get(i % 3));
+        }
+        assertThat(lookup.hotSize(), is(3));
+
+        Random random = new Random(1);
+        for (int i = 0; i < HotKeyLookup.SAMPLE_INTERVAL * HotKeyLookup.WINDOW; i++) {
+            lookup.find(keys.get(3 + random.nextInt(SIZE - 3)));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThat(lookup.isHot(keys.get(i)), is(false));
+        }
+    }
+
+    @Test
+    public void missingKeys_areNotPromoted() {
+        HotKeyLookup<String> lookup = newLookup(8);
+        for (int i = 0; i < HotKeyLookup.SAMPLE_INTERVAL * HotKeyLookup.WINDOW; i++) {
+            lookup.find("missing");
+        }
+
+        assertThat(lookup.hotSize(), is(0));
+        assertThat(lookup.find("missing"), is("none"));
+    }
+
+    @Test
+    public void hotKeys_arePromotedInBackground() throws InterruptedException {
+        HotKeyLookup<String> lookup = (HotKeyLookup<String>) Lookups.withHotKeys(Lookups.from(keys).by("toString()")
+                .index(), 8);
+        for (int i = 0; i < HotKeyLookup.SAMPLE_INTERVAL * HotKeyLookup.WINDOW; i++) {
+            lookup.find(keys.get(i % 3));
+        }
+
+        for (int i = 0; i < 100 && lookup.hotSize() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(lookup.hotSize(), is(3));
+        assertThat(lookup.isHot(keys.get(0)), is(true));
+    }
+
+    @Test
+    public void hunt_chokesOnNull() {
+        exception.expect(IllegalArgumentException.class);
+
+        newLookup(8).hunt(null);
+    }
+
+    @Test
+    public void withHotKeys_chokesOnNonPositiveCapacity() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("capacity");
+
+        Lookups.withHotKeys(Lookups.from(keys).by("toString()").index(), 0);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class LookupBuilderEnumTest {
+    public enum Status {
+        NEW, OPEN {
+            @Override
+            public String toString() {
+                return "open";
+            }
+        },
+        CLOSED, ARCHIVED
+    }
+
+    public enum Region {
+        EAST, WEST
+    }
+
+    public static class Order {
+        private final Region region;
+        private final Status status;
+
+        public Order(Region region, Status status) {
+            this.region = region;
+            this.status = status;
+        }
+
+        public Region getRegion() {
+            return region;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+    }
+
+    private static final Order eastNew = new Order(Region.EAST, Status.NEW);
+    private static final Order eastOpen = new Order(Region.EAST, Status.OPEN);
+    private static final Order westOpen = new Order(Region.WEST, Status.OPEN);
+    private static final Order westClosed = new Order(Region.WEST, Status.CLOSED);
+    private static final List<Order> orders = Arrays.asList(eastNew, eastOpen, westOpen, westClosed);
+
+    @Test
+    public void enumKeys_useEnumLayout() {
+        Lookup<Order> lookup = Lookups.from(orders.subList(0, 2)).by("status").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.ENUM));
+        assertThat(lookup.get(Status.NEW), sameInstance(eastNew));
+        assertThat(lookup.get(Status.OPEN), sameInstance(eastOpen));
+        assertThat(lookup.find(Status.CLOSED), nullValue());
+        assertThat(lookup.find(Status.ARCHIVED), nullValue());
+        assertThat(lookup.find(Region.EAST), nullValue());
+        assertThat(lookup.find("NEW"), nullValue());
+        assertThat(lookup.find(0), nullValue());
+    }
+
+    @Test
+    public void enumKeys_useEnumLayout_atEveryLevel() {
+        Lookup<Lookup<Order>> lookup = Lookups.from(orders).defaultTo(eastNew).by("region").by("status").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.ENUM));
+        assertThat(Lookups.layoutOf(lookup.get(Region.WEST)), is(Layout.ENUM));
+        assertThat(lookup.get(Region.WEST).get(Status.CLOSED), sameInstance(westClosed));
+        assertThat(lookup.get(Region.WEST).get(Status.OPEN), sameInstance(westOpen));
+        assertThat(lookup.get(Region.EAST).get(Status.OPEN), sameInstance(eastOpen));
+        assertThat(lookup.get(Region.EAST).get(Status.CLOSED), sameInstance(eastNew));
+    }
+
+    @Test
+    public void enumKeys_ofMixedTypes_useOtherLayout() {
+        Lookup<Object> lookup = Lookups.from(Arrays.<Object> asList(Status.NEW, Region.EAST)).by(
+                Utils.<Object> toSelf()).index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.LINEAR));
+        assertThat(lookup.get(Region.EAST), is((Object) Region.EAST));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LookupBuilderEquivalenceTest {
+    private static final Equivalence IGNORE_CASE = new Equivalence() {
+        public int hash(Object key) {
+            return key.toString().toUpperCase().hashCode();
+        }
+
+        public boolean equivalent(Object a, Object b) {
+            return a.toString().equalsIgnoreCase(b.toString());
+        }
+    };
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void keyEquivalence_isUsedAtEveryLevel() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).keyEquivalence(IGNORE_CASE).by("state")
+                .by("county").index();
+
+        for (CountyCode code : CountyCode.codes) {
+            assertThat(lookup.get(code.getState().toLowerCase()).get(code.getCounty().toUpperCase()),
+                    sameInstance(code));
+        }
+        assertThat(Lookups.layoutOf(lookup), is(Layout.OPEN));
+        assertThat(lookup.find("xx").find("Mercer"), nullValue());
+    }
+
+    @Test
+    public void keyEquivalence_isUsedToFindDuplicates() {
+        exception.expect(DuplicateKeyException.class);
+        exception.expectMessage("mercer");
+
+        Lookups.from(Arrays.asList("Mercer", "mercer")).keyEquivalence(IGNORE_CASE).by("toString()").index();
+    }
+
+    @Test
+    public void keyEquivalence_hashesEachBuiltKeyOnce() {
+        final AtomicInteger hashes = new AtomicInteger();
+        Equivalence counting = new Equivalence() {
+            public int hash(Object key) {
+                hashes.incrementAndGet();
+                return key.hashCode();
+            }
+
+            public boolean equivalent(Object a, Object b) {
+                return a.equals(b);
+            }
+        };
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).keyEquivalence(counting).by(
+                new Converter<CountyCode, Object>() {
+                    public Object convert(CountyCode source) {
+                        return source;
+                    }
+                }).index();
+        assertThat(hashes.get(), is(CountyCode.codes.size()));
+
+        assertThat(lookup.get(CountyCode.codes.get(5)), sameInstance(CountyCode.codes.get(5)));
+        assertThat(hashes.get(), is(CountyCode.codes.size() + 1));
+    }
+
+    @Test
+    public void charSequences_findsByContent() {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("Aa", "BB", "polygenelubricants", ""))
+                .keyEquivalence(Equivalences.charSequences()).by("toString()").index();
+
+        assertThat(lookup.get(new StringBuilder("Aa")), is("Aa"));
+        assertThat(lookup.get("BB"), is("BB"));
+        assertThat(lookup.get(new StringBuilder("polygenelubricants")), is("polygenelubricants"));
+        assertThat(lookup.get(""), is(""));
+        assertThat(lookup.find("AaB"), nullValue());
+        assertThat(lookup.find(1), nullValue());
+    }
+
+    @Test
+    public void charSequences_hashesByMurmur3() {
+        assertThat(Equivalences.charSequences().hash("Aa"), not(equalTo(Equivalences.charSequences().hash("BB"))));
+        assertThat(Equivalences.charSequences().hash(new StringBuilder("abc")), is(Equivalences.charSequences().hash(
+                "abc")));
+        assertThat(Equivalences.charSequences().hash(7), is(7));
+    }
+
+    @Test
+    public void identity_findsSameInstanceOnly() {
+        String key = new String("NJ");
+        Lookup<String> lookup = Lookups.from(Arrays.asList(key)).keyEquivalence(Equivalences.identity()).by(
+                "toString()").index();
+
+        assertThat(lookup.get(key), sameInstance(key));
+        assertThat(lookup.find(new String("NJ")), nullValue());
+    }
+
+    @Test
+    public void natural_keepsLayout() {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("NJ")).keyEquivalence(Equivalences.natural()).by(
+                "toString()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.LINEAR));
+    }
+
+    @Test
+    public void keyEquivalence_chokesOnNull() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("equivalence");
+
+        Lookups.from(CountyCode.codes).keyEquivalence(null);
+    }
+}
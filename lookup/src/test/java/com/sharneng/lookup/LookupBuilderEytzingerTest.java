@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class LookupBuilderEytzingerTest {
+    private static final int MAX_SIZE = 40;
+    private static final int STEP = 3;
+
+    private static List<Integer> range(int from, int to, int step) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = from; i < to; i += step) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    @Test
+    public void eytzinger_findsEveryKey_ofEverySize() {
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            List<Integer> keys = range(0, size * STEP, STEP);
+            Lookup<Integer> integral = Lookups.from(keys).layout(Layout.EYTZINGER).by("intValue()").index();
+            Lookup<Integer> strings = Lookups.from(keys).layout(Layout.EYTZINGER).by("toString()").index();
+            assertThat(Lookups.layoutOf(integral), is(Layout.EYTZINGER));
+            assertThat(Lookups.layoutOf(strings), is(Layout.EYTZINGER));
+            for (int i = -1; i <= size * STEP; i++) {
+                Integer expected = i >= 0 && i % STEP == 0 && i < size * STEP ? i : null;
+                assertThat("size " + size, integral.find(i), equalTo(expected));
+                assertThat("size " + size, strings.find(String.valueOf(i)), equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void eytzinger_keepsIntegralKeysUnboxed() {
+        Lookup<Integer> lookup = Lookups.from(range(0, 3000, STEP)).layout(Layout.EYTZINGER).by("intValue()").index();
+
+        assertThat(lookup, instanceOf(IntegralLookup.class));
+        assertThat(((IntegralLookup<Integer>) lookup).find(2997L), is(2997));
+        assertThat(((IntegralLookup<Integer>) lookup).find(2998L), nullValue());
+        assertThat(lookup.find(2997L), nullValue());
+        assertThat(lookup.find("2997"), nullValue());
+    }
+
+    @Test
+    public void eytzinger_scansInAscendingOrder() {
+        List<Integer> keys = range(0, 300, STEP);
+        List<Integer> shuffled = new ArrayList<Integer>(keys);
+        Collections.reverse(shuffled);
+        Lookup<Integer> lookup = Lookups.from(shuffled).layout(Layout.EYTZINGER).by("intValue()").index();
+
+        List<Object> scanned = new ArrayList<Object>();
+        for (Map.Entry<Object, Integer> entry : Lookups.scan(lookup)) {
+            scanned.add(entry.getKey());
+        }
+        assertThat(scanned, equalTo((List<Object>) new ArrayList<Object>(keys)));
+    }
+
+    @Test
+    public void positions_invertLayout_ofEverySize() {
+        for (int n = 0; n <= MAX_SIZE; n++) {
+            int[] order = EytzingerLookup.layout(n);
+            int[] positions = EytzingerLookup.positions(n);
+            assertThat(positions.length, is(n));
+            for (int k = 1; k <= n; k++) {
+                assertThat("size " + n, positions[order[k]], is(k));
+            }
+        }
+    }
+
+    @Test
+    public void eytzinger_takesLessMemoryThanHash() {
+        List<Integer> keys = range(0, 3000, STEP);
+        Lookup<Integer> eytzinger = Lookups.from(keys).layout(Layout.EYTZINGER).by("toString()").index();
+        Lookup<Integer> hash = Lookups.from(keys).layout(Layout.HASH).by("toString()").index();
+
+        assertThat(Layouts.estimateBytes(eytzinger, keys.size()) * 2, lessThan(Layouts.estimateBytes(hash, keys
+                .size())));
+    }
+
+    @Test
+    public void eytzinger_fallsBack_forMixedKeys() {
+        Lookup<Object> lookup = Lookups.from(Arrays.<Object> asList(1, 2L, 3)).layout(Layout.EYTZINGER).by(
+                Utils.<Object> toSelf()).index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.LINEAR));
+    }
+
+    @Test
+    public void eytzinger_appliesToNestedLevels() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).layout(Layout.EYTZINGER).by("state").by(
+                "county").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.EYTZINGER));
+        assertThat(lookup.get("Mississippi").get("Greene").getCode(), is(28041));
+        assertThat(lookup.get("Alabama").find("Greenee"), nullValue());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LookupBuilderGeneratedTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void generated_findsSameAsHash() {
+        Lookup<Lookup<CountyCode>> hash = Lookups.from(CountyCode.codes).by("state").by("county").index();
+        Lookup<Lookup<CountyCode>> generated = Lookups.from(CountyCode.codes).layout(Layout.GENERATED).by("state")
+                .by("county").index();
+
+        for (CountyCode code : CountyCode.codes) {
+            assertThat(generated.get(code.getState()).get(code.getCounty()), sameInstance(hash.get(code.getState())
+                    .get(code.getCounty())));
+        }
+        assertThat(generated.find("XX").find("Mercer"), nullValue());
+        assertThat(generated.find("NJ").find("NoSuchCounty"), nullValue());
+        assertThat(generated.find("NJ").has(1), is(false));
+    }
+
+    @Test
+    public void generated_usesGeneratedClass_whenSmall() throws Exception {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("USD", "EUR", "JPY")).layout(Layout.GENERATED)
+                .by("toString()").index();
+
+        assertThat(lookup.getClass().getName(), startsWith(GeneratedLookups.PACKAGE));
+        assertThat(lookup.getClass().getDeclaredField("k0").getType(), equalTo((Object) String.class));
+        assertThat(lookup.get("EUR"), is("EUR"));
+        assertThat(lookup.find(new StringBuilder("EUR")), nullValue());
+    }
+
+    @Test
+    public void generated_handlesHashCollisionsAndNegativeHashCodes() {
+        List<Object> keys = Arrays.<Object> asList("Aa", "BB", "polygenelubricants", -1L, 0, Integer.MIN_VALUE);
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+
+        Lookup<Object> lookup = Lookups.from(keys).defaultTo("none").layout(Layout.GENERATED).by("toString()")
+                .index();
+        Lookup<Object> byValue = Lookups.from(keys).layout(Layout.GENERATED).by(Utils.<Object> toSelf()).index();
+
+        assertThat(lookup.getClass().getName(), startsWith(GeneratedLookups.PACKAGE));
+        for (Object key : keys) {
+            assertThat(lookup.get(key.toString()), is(key));
+            assertThat(byValue.get(key), is(key));
+        }
+        assertThat(lookup.get("Ab"), is((Object) "none"));
+        assertThat(byValue.find(-1), nullValue());
+    }
+
+    @Test
+    public void generated_fallsBackToHash_whenLarge() {
+        List<Integer> keys = new ArrayList<Integer>();
+        for (int i = 0; i <= GeneratedLookups.MAX_SIZE; i++) {
+            keys.add(i);
+        }
+
+        Lookup<Integer> lookup = Lookups.from(keys).layout(Layout.GENERATED).by("intValue()").index();
+
+        assertThat(lookup, instanceOf(MapBasedLookup.class));
+        assertThat(lookup.get(GeneratedLookups.MAX_SIZE), is(GeneratedLookups.MAX_SIZE));
+    }
+
+    @Test
+    public void layout_chokesOnNull() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("layout");
+
+        Lookups.from(CountyCode.codes).layout(null);
+    }
+}
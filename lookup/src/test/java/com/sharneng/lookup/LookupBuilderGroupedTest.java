@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.Band;
+import com.sharneng.lookup.testdata.CountyCode;
+import com.sharneng.lookup.testdata.Rate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class LookupBuilderGroupedTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void grouped_keepsAllValuesInSourceOrder() {
+        Lookup<List<CountyCode>> lookup = Lookups.from(CountyCode.codes).grouped().by("state").index();
+
+        List<CountyCode> counties = lookup.get("Mississippi");
+        assertThat(counties.size(), is(82));
+        assertThat(counties.get(0).getCounty(), is("Adams"));
+        assertThat(counties.get(81).getCounty(), is("Yazoo"));
+        assertThat(lookup.find("No State"), nullValue());
+    }
+
+    @Test
+    public void grouped_sortsValues_withComparator() {
+        Lookup<List<String>> lookup = Lookups.from(CountyCode.codes).select(String.class, "county")
+                .grouped(Collections.reverseOrder(new Comparator<String>() {
+                    public int compare(String o1, String o2) {
+                        return o1.compareTo(o2);
+                    }
+                })).by("state").index();
+
+        List<String> counties = lookup.get("Mississippi");
+        assertThat(counties.get(0), is("Yazoo"));
+        assertThat(counties.get(81), is("Adams"));
+    }
+
+    @Test
+    public void grouped_allowsDuplicatedKeys_inMultipleLevels() {
+        Lookup<Lookup<List<CountyCode>>> lookup = Lookups.from(CountyCode.dupCodes).grouped().by("state")
+                .by("county").index();
+
+        assertThat(lookup.get("NJ").get("Mercer"), equalTo(Arrays.asList(CountyCode.code100, CountyCode.code200)));
+    }
+
+    @Test
+    public void grouped_returnsDefault_whenNotFound() {
+        List<CountyCode> none = Collections.emptyList();
+        Lookup<List<CountyCode>> lookup = Lookups.from(CountyCode.codes).grouped().defaultTo(none).by("state")
+                .index();
+
+        assertThat(lookup.get("No State"), is(none));
+    }
+
+    @Test
+    public void grouped_returnsImmutableList() {
+        Lookup<List<CountyCode>> lookup = Lookups.from(CountyCode.codes).grouped().by("state").index();
+        exception.expect(UnsupportedOperationException.class);
+
+        lookup.get("Alabama").add(CountyCode.DEFAULT);
+    }
+
+    @Test
+    public void grouped_supportsRangesAndVersions() {
+        Lookup<List<Band>> ranges = Lookups.from(Band.bands).grouped().byRange("low", "high").index();
+        Lookup<List<Rate>> versions = Lookups.from(Rate.dupRates).grouped().asOf("effective").index();
+
+        assertThat(ranges.get(150), equalTo(Arrays.asList(Band.bandB)));
+        assertThat(versions.get(10 * Rate.DAY), equalTo(Arrays.asList(Rate.usd2, Rate.usd2Again)));
+    }
+}
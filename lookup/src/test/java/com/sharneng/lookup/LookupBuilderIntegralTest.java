@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LookupBuilderIntegralTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static List<Long> sparse(int count) {
+        List<Long> list = new ArrayList<Long>();
+        for (long i = 0; i < count; i++) {
+            list.add(i * i * 7919 - 100000);
+        }
+        return list;
+    }
+
+    @Test
+    public void primitive_findsByValue() {
+        List<Long> keys = sparse(1000);
+        IntegralLookup<Long> lookup = (IntegralLookup<Long>) Lookups.from(keys).defaultTo(-1L).by("longValue()")
+                .index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.PRIMITIVE));
+        for (Long key : keys) {
+            assertThat(lookup.find(key.longValue()), is(key));
+            assertThat(lookup.get(key), is(key));
+        }
+        assertThat(lookup.find(-99999L), is(-1L));
+        assertThat(lookup.find(-99999L, null), nullValue());
+        assertThat(lookup.find(Integer.valueOf(-100000)), is(-1L));
+    }
+
+    @Test
+    public void dense_findsByValue() {
+        IntegralLookup<CountyCode> lookup = (IntegralLookup<CountyCode>) Lookups.from(CountyCode.codes.subList(0, 20))
+                .layout(Layout.DENSE).by("code").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.DENSE));
+        for (CountyCode code : CountyCode.codes.subList(0, 20)) {
+            assertThat(lookup.find((long) code.getCode()), sameInstance(code));
+        }
+        assertThat(lookup.find(Long.MIN_VALUE), nullValue());
+        assertThat(lookup.find(Long.MAX_VALUE), nullValue());
+    }
+
+    @Test
+    public void findAll_findsManyKeys() {
+        List<Long> keys = sparse(100);
+        IntegralLookup<Long> lookup = (IntegralLookup<Long>) Lookups.from(keys).defaultTo(-1L).by("longValue()")
+                .index();
+        Long[] results = new Long[4];
+
+        assertThat(lookup.findAll(new long[] { keys.get(3), 1, keys.get(99), keys.get(0) }, results), is(3));
+        assertThat(results, equalTo(new Long[] { keys.get(3), -1L, keys.get(99), keys.get(0) }));
+
+        assertThat(lookup.findAll(new int[] { -100000, 0 }, results), is(1));
+        assertThat(results[0], is(-100000L));
+        assertThat(results[1], is(-1L));
+    }
+
+    @Test
+    public void findAll_chokesOnNullKeys() {
+        IntegralLookup<Long> lookup = (IntegralLookup<Long>) Lookups.from(sparse(100)).by("longValue()").index();
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("keys");
+
+        lookup.findAll((long[]) null, new Long[0]);
+    }
+}
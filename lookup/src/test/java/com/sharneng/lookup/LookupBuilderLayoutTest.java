@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LookupBuilderLayoutTest {
+
+    private static List<Integer> range(int from, int to, int step) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = from; i < to; i += step) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static List<String> longStrings(int count) {
+        List<String> list = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            list.add("a key that is long enough to be compared rather than hashed " + i);
+        }
+        return list;
+    }
+
+    @Test
+    public void auto_choosesLinear_forTinyLevel() {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("USD", "EUR", "JPY")).by("toString()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.LINEAR));
+        assertThat(lookup.get("JPY"), is("JPY"));
+        assertThat(lookup.find("GBP"), nullValue());
+    }
+
+    @Test
+    public void auto_choosesDense_forContiguousIntegers() {
+        Lookup<Integer> lookup = Lookups.from(range(-50, 50, 1)).by("intValue()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.DENSE));
+        assertThat(lookup.get(-50), is(-50));
+        assertThat(lookup.get(49), is(49));
+        assertThat(lookup.find(50), nullValue());
+        assertThat(lookup.find(-51), nullValue());
+        assertThat(lookup.find(3L), nullValue());
+        assertThat(lookup.find("3"), nullValue());
+    }
+
+    @Test
+    public void auto_choosesPrimitive_forSparseIntegers() {
+        Lookup<Integer> lookup = Lookups.from(range(0, 3000, 3)).by("intValue()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.PRIMITIVE));
+        assertThat(lookup.get(2997), is(2997));
+        assertThat(lookup.find(2998), nullValue());
+    }
+
+    @Test
+    public void auto_choosesOpen_forOtherKeys() {
+        Lookup<Integer> lookup = Lookups.from(range(0, 3000, 3)).by("toString()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.OPEN));
+        assertThat(lookup.get("2997"), is(2997));
+        assertThat(lookup.find("2998"), nullValue());
+        assertThat(lookup.find(2997), nullValue());
+    }
+
+    @Test
+    public void auto_choosesSorted_forLongStrings() {
+        List<String> keys = longStrings(20);
+        Lookup<String> lookup = Lookups.from(keys).by("toString()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.SORTED));
+        for (String key : keys) {
+            assertThat(lookup.get(new String(key)), sameInstance(key));
+        }
+        assertThat(lookup.find("a key"), nullValue());
+        assertThat(lookup.find(1), nullValue());
+    }
+
+    @Test
+    public void auto_appliesToEveryLevel() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).by("state").by("code").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(notNullValue()));
+        for (CountyCode code : CountyCode.codes) {
+            assertThat(Lookups.layoutOf(lookup.get(code.getState())), is(notNullValue()));
+        }
+    }
+
+    @Test
+    public void everyLayout_findsSameAsHash() {
+        Lookup<Lookup<CountyCode>> hash = Lookups.from(CountyCode.codes).layout(Layout.HASH).by("state").by("code")
+                .index();
+        for (Layout layout : Layout.values()) {
+            Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).layout(layout).by("state").by("code")
+                    .index();
+            for (CountyCode code : CountyCode.codes) {
+                assertThat(layout.name(), lookup.get(code.getState()).get(code.getCode()), sameInstance(hash.get(
+                        code.getState()).get(code.getCode())));
+                assertThat(layout.name(), lookup.get(code.getState()).find(-1), nullValue());
+            }
+            assertThat(layout.name(), lookup.find("XX").find(1), nullValue());
+        }
+    }
+
+    @Test
+    public void layout_isUsed_whenItApplies() {
+        List<Integer> keys = range(0, 300, 3);
+
+        assertThat(Lookups.layoutOf(Lookups.from(keys).layout(Layout.LINEAR).by("intValue()").index()),
+                is(Layout.LINEAR));
+        assertThat(Lookups.layoutOf(Lookups.from(keys).layout(Layout.DENSE).by("intValue()").index()),
+                is(Layout.DENSE));
+        assertThat(Lookups.layoutOf(Lookups.from(keys).layout(Layout.SORTED).by("intValue()").index()),
+                is(Layout.SORTED));
+        assertThat(Lookups.layoutOf(Lookups.from(keys).layout(Layout.HASH).by("intValue()").index()),
+                is(Layout.HASH));
+        assertThat(Lookups.layoutOf(Lookups.from(keys).layout(Layout.GENERATED).by("intValue()").index()),
+                is(Layout.HASH));
+    }
+
+    @Test
+    public void layout_fallsBackToAuto_whenItDoesNotApply() {
+        List<Integer> keys = range(0, 100000, 1000);
+
+        assertThat(Lookups.layoutOf(Lookups.from(keys).layout(Layout.DENSE).by("intValue()").index()),
+                is(Layout.PRIMITIVE));
+        assertThat(Lookups.layoutOf(Lookups.from(Arrays.<Object> asList(1, 2L, 3)).layout(Layout.SORTED).by(
+                Utils.<Object> toSelf()).index()), is(Layout.LINEAR));
+    }
+
+    @Test
+    public void sortedLayouts_fallBackToAuto_forKeysOtherThanStringOrIntegral() {
+        List<BigDecimal> keys = new ArrayList<BigDecimal>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(new BigDecimal(i).setScale(1));
+            keys.add(new BigDecimal(i).setScale(2));
+        }
+        for (Layout layout : Arrays.asList(Layout.SORTED, Layout.EYTZINGER)) {
+            Lookup<BigDecimal> lookup = Lookups.from(keys).layout(layout).by("#this").index();
+
+            assertThat(Lookups.layoutOf(lookup), is(Layout.OPEN));
+            for (BigDecimal key : keys) {
+                assertThat(lookup.get(key).scale(), is(key.scale()));
+            }
+        }
+    }
+
+    @Test
+    public void layoutOf_returnsNull_whenNotKeyLevel() {
+        assertThat(Lookups.layoutOf(Lookups.from(CountyCode.codes).byRange("code", "code").index()), nullValue());
+        assertThat(Lookups.layoutOf(null), nullValue());
+    }
+}
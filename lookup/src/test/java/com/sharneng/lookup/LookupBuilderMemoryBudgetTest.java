@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LookupBuilderMemoryBudgetTest {
+    private static final int COUNT = 1000;
+    private static final long LARGE = 1L << 30;
+    private static final long BETWEEN_SORTED_AND_OPEN = 16000;
+    private static final long TINY = 1000;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < COUNT; i++) {
+            keys.add("key" + i);
+        }
+        return keys;
+    }
+
+    @Test
+    public void memoryBudget_buildsWithinBudget() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).memoryBudget(LARGE).by("state").by(
+                "county").index();
+
+        assertThat(lookup.get("Mississippi").get("Greene").getCode(), is(28041));
+    }
+
+    @Test
+    public void memoryBudget_failsFast_withSizeStats() {
+        try {
+            Lookups.from(keys()).memoryBudget(BETWEEN_SORTED_AND_OPEN).by("toString()").index();
+            fail("expected MemoryBudgetException");
+        } catch (MemoryBudgetException e) {
+            assertThat(e.getBudgetBytes(), is(BETWEEN_SORTED_AND_OPEN));
+            assertThat(e.getEstimatedBytes(), greaterThan(BETWEEN_SORTED_AND_OPEN));
+            assertThat(e.getLevels(), is(1));
+            assertThat(e.getEntries(), is((long) COUNT));
+            assertThat(e.getMessage(), containsString("memory budget"));
+        }
+    }
+
+    @Test
+    public void memoryBudget_failsOnNestedLevels_beforeAllAreBuilt() {
+        try {
+            Lookups.from(CountyCode.codes).memoryBudget(TINY).by("state").by("county").index();
+            fail("expected MemoryBudgetException");
+        } catch (MemoryBudgetException e) {
+            assertThat(e.getEntries(), lessThan((long) CountyCode.codes.size()));
+        }
+    }
+
+    @Test
+    public void memoryBudget_failsWhileGrouping_beforeLevelIsBuilt() {
+        try {
+            Lookups.from(keys()).memoryBudget(TINY).by("toString()").index();
+            fail("expected MemoryBudgetException");
+        } catch (MemoryBudgetException e) {
+            assertThat(e.getLevels(), is(0));
+            assertThat(e.getEntries(), lessThan((long) COUNT));
+            assertThat(e.getEstimatedBytes(), greaterThan(TINY));
+        }
+    }
+
+    @Test
+    public void compactOverBudget_buildsAgainUsingSortedLayout() {
+        Lookup<String> lookup = Lookups.from(keys()).memoryBudget(BETWEEN_SORTED_AND_OPEN).compactOverBudget().by(
+                "toString()").index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.SORTED));
+        assertThat(lookup.get("key42"), is("key42"));
+        assertThat(Lookups.layoutOf(Lookups.from(keys()).by("toString()").index()), is(Layout.OPEN));
+    }
+
+    @Test
+    public void compactOverBudget_keepsLayout_forKeysOtherThanStringOrIntegral() {
+        List<BigDecimal> keys = new ArrayList<BigDecimal>();
+        for (int i = 0; i < COUNT; i++) {
+            keys.add(new BigDecimal(i).setScale(1));
+        }
+
+        exception.expect(MemoryBudgetException.class);
+        Lookups.from(keys).memoryBudget(BETWEEN_SORTED_AND_OPEN).compactOverBudget().by("abs()").index();
+    }
+
+    @Test
+    public void compactOverBudget_fails_whenStillOverBudget() {
+        exception.expect(MemoryBudgetException.class);
+
+        Lookups.from(keys()).memoryBudget(TINY).compactOverBudget().by("toString()").index();
+    }
+
+    @Test
+    public void memoryBudget_chokes_onNonPositiveBytes() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("bytes");
+
+        Lookups.from(keys()).memoryBudget(0);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LookupBuilderPrefixTest {
+    private static final List<String> prefixes = Arrays.asList("1", "1201", "1201555", "1212", "44", "4420", "");
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static PrefixLookup<String> newPrefixLookup() {
+        return Lookups.from(prefixes).byPrefix("toString()").index();
+    }
+
+    @Test
+    public void findLongestPrefix_returnsLongestMatch() {
+        PrefixLookup<String> lookup = newPrefixLookup();
+
+        assertThat(lookup.findLongestPrefix("12015551234"), is("1201555"));
+        assertThat(lookup.findLongestPrefix("12015561234"), is("1201"));
+        assertThat(lookup.findLongestPrefix("1201"), is("1201"));
+        assertThat(lookup.findLongestPrefix("120"), is("1"));
+        assertThat(lookup.findLongestPrefix(new StringBuilder("1212000")), is("1212"));
+        assertThat(lookup.findLongestPrefix("4420"), is("4420"));
+        assertThat(lookup.findLongestPrefix("449"), is("44"));
+        assertThat(lookup.findLongestPrefix("33"), is(""));
+    }
+
+    @Test
+    public void findLongestPrefix_returnsDefault_whenNoMatch() {
+        PrefixLookup<String> lookup = Lookups.from(prefixes.subList(0, 6)).defaultTo("none").byPrefix("toString()")
+                .index();
+
+        assertThat(lookup.findLongestPrefix("33"), is("none"));
+        assertThat(lookup.findLongestPrefix(""), is("none"));
+        assertThat(lookup.findLongestPrefix(null), is("none"));
+        assertThat(lookup.findLongestPrefix("33", "other"), is("other"));
+        assertThat(lookup.findLongestPrefix("4", null), nullValue());
+    }
+
+    @Test
+    public void find_matchesExactKeyOnly() {
+        PrefixLookup<String> lookup = newPrefixLookup();
+
+        assertThat(lookup.find("1201"), is("1201"));
+        assertThat(lookup.find(new StringBuilder("4420")), is("4420"));
+        assertThat(lookup.find(""), is(""));
+        assertThat(lookup.find("120"), nullValue());
+        assertThat(lookup.find("12015"), nullValue());
+        assertThat(lookup.find("44201"), nullValue());
+        assertThat(lookup.find(44), nullValue());
+        assertThat(lookup.has("1212"), is(true));
+    }
+
+    @Test
+    public void byPrefix_findsAllKeysOfLargeSource() {
+        List<String> keys = new ArrayList<String>();
+        for (CountyCode code : CountyCode.codes) {
+            keys.add(code.getState() + code.getCounty());
+        }
+        PrefixLookup<CountyCode> lookup = Lookups.from(CountyCode.codes).byPrefix("state + county").index();
+
+        for (int i = 0; i < keys.size(); i++) {
+            assertThat(lookup.get(keys.get(i)), is(CountyCode.codes.get(i)));
+        }
+        assertThat(lookup.findLongestPrefix("MississippiGreeneCounty").getCode(), is(28041));
+    }
+
+    @Test
+    public void byPrefix_chokes_onNonCharSequenceKey() {
+        exception.expect(LookupBuildException.class);
+
+        Lookups.from(CountyCode.codes).byPrefix("code").index();
+    }
+
+    @Test
+    public void byPrefix_chokes_onDuplicateKey() {
+        exception.expect(DuplicateKeyException.class);
+
+        Lookups.from(CountyCode.codes).byPrefix("state").index();
+    }
+}
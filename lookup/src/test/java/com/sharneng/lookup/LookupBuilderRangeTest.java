@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.Band;
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+
+public class LookupBuilderRangeTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void byRange_findsContainingInterval_forIntegralBounds() {
+        Lookup<Band> lookup = Lookups.from(Band.bands).byRange("low", "high").index();
+
+        assertThat(lookup.find(0), is(Band.bandA));
+        assertThat(lookup.find(99), is(Band.bandA));
+        assertThat(lookup.find(100L), is(Band.bandB));
+        assertThat(lookup.find((short) 250), is(Band.bandB));
+        assertThat(lookup.find(999), is(Band.bandC));
+        assertThat(lookup.find(-1), nullValue());
+        assertThat(lookup.find(1000), nullValue());
+        assertThat(lookup.find("100"), nullValue());
+        assertThat(lookup.has(500), is(true));
+    }
+
+    @Test
+    public void byRange_findsContainingInterval_forComparableBounds() {
+        Lookup<String> lookup = Lookups.from(Band.bands).select(String.class, "name").byRange("from", "to").index();
+
+        assertThat(lookup.find("00000"), is("A"));
+        assertThat(lookup.find("19999"), is("A"));
+        assertThat(lookup.find("20000"), is("B"));
+        assertThat(lookup.find("8"), is("C"));
+        assertThat(lookup.find("999999"), nullValue());
+        assertThat(lookup.find(20000), nullValue());
+    }
+
+    @Test
+    public void byRange_returnsDefault_whenNotFound() {
+        Lookup<Band> lookup = Lookups.from(Band.bands).defaultTo(Band.wide).byRange("low", "high").index();
+
+        assertThat(lookup.find(-1), is(Band.wide));
+        assertThat(lookup.get(2000), is(Band.wide));
+    }
+
+    @Test
+    public void byRange_canBeLastLevelOfMultipleKeys() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).by("state").byRange("code", "code")
+                .index();
+
+        assertThat(lookup.get("Mississippi").get(28041).getCounty(), is("Greene"));
+        assertThat(lookup.get("Mississippi").find(1081), nullValue());
+    }
+
+    @Test
+    public void byRange_chokes_onOverlapping() {
+        exception.expect(DuplicateKeyException.class);
+        exception.expectMessage("[50, 149]");
+
+        Lookups.from(Band.overlapping).byRange("low", "high").index();
+    }
+
+    @Test
+    public void byRange_keepsFirst_whenUseFirstOnDuplicate() {
+        Lookup<Band> lookup = Lookups.from(Band.overlapping).useFirstOnDuplicate().byRange("low", "high").index();
+
+        assertThat(lookup.find(50), is(Band.bandA));
+        assertThat(lookup.find(120), is(Band.bandB));
+    }
+
+    @Test
+    public void byRange_keepsLast_whenUseLastOnDuplicate() {
+        Lookup<Band> lookup = Lookups.from(Band.overlapping).useLastOnDuplicate().byRange("low", "high").index();
+
+        assertThat(lookup.find(10), nullValue());
+        assertThat(lookup.find(50), is(Band.wide));
+        assertThat(lookup.find(120), is(Band.wide));
+        assertThat(lookup.find(150), nullValue());
+        assertThat(lookup.find(500), is(Band.bandC));
+    }
+
+    @Test
+    public void byRange_chokes_onReversedBounds() {
+        exception.expect(LookupBuildException.class);
+
+        Lookups.from(Band.bands).byRange("high", "low").index();
+    }
+
+    @Test
+    public void byRange_chokes_onNullBound() {
+        exception.expect(LookupBuildException.class);
+
+        Lookups.from(Arrays.asList(new Band(0, 1, "N", null, "1"))).byRange("from", "to").index();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class LookupBuilderStacklessTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void stacklessNotFound_throwsSameInstanceWithoutStackTrace() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).stacklessNotFound().by("state")
+                .by("county").index();
+
+        LookupException first = getException(lookup.get("Alabama"), "XX");
+        LookupException second = getException(lookup.get("Alabama"), "YY");
+        assertThat(first, sameInstance(second));
+        assertThat(first.getStackTrace().length, is(0));
+        assertThat(first.getMessage(), not(containsString("XX")));
+        assertThat(getException(lookup.get("XX"), "Mercer"), sameInstance(first));
+    }
+
+    @Test
+    public void stacklessNotFound_refusesChanges_byCallers() {
+        LookupException shared = getException(Lookups.from(CountyCode.codes).stacklessNotFound().by("code").index(),
+                -1);
+        shared.setStackTrace(new Throwable().getStackTrace());
+        try {
+            shared.initCause(new RuntimeException());
+            throw new AssertionError("expected IllegalStateException from initCause");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), containsString("cannot be changed"));
+        }
+
+        assertThat(shared.getCause(), nullValue());
+        assertThat(shared.getStackTrace().length, is(0));
+    }
+
+    @Test
+    public void stacklessNotFound_appliesToHunt() {
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).useFirstOnDuplicate().stacklessNotFound().by(
+                "state").index();
+
+        exception.expect(sameInstance(StacklessLookupException.NOT_FOUND));
+        lookup.hunt("XX");
+    }
+
+    @Test
+    public void stacklessNotFound_appliesToGeneratedAndRangeLevels() {
+        Lookup<CountyCode> generated = Lookups.from(CountyCode.codes.subList(0, 10)).stacklessNotFound().layout(
+                Layout.GENERATED).by("code").index();
+        Lookup<CountyCode> range = Lookups.from(CountyCode.codes).stacklessNotFound().byRange("code", "code").index();
+
+        assertThat(getException(generated, -1), sameInstance((LookupException) StacklessLookupException.NOT_FOUND));
+        assertThat(getException(range, -1), sameInstance((LookupException) StacklessLookupException.NOT_FOUND));
+    }
+
+    @Test
+    public void get_includesKeyInMessageByDefault() {
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).useFirstOnDuplicate().by("state").index();
+
+        LookupException e = getException(lookup, "XX");
+        assertThat(e, not(sameInstance((LookupException) StacklessLookupException.NOT_FOUND)));
+        assertThat(e.getMessage(), containsString("XX"));
+    }
+
+    @Test
+    public void tryFind_reportsFoundAndNotFound() {
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).useFirstOnDuplicate()
+                .defaultTo(CountyCode.codes.get(0)).by("state").index();
+        FindResult<Object> result = new FindResult<Object>();
+
+        assertThat(Lookups.tryFind(lookup, "Alabama", result), is(true));
+        assertThat(result.isFound(), is(true));
+        assertThat(result.getValue(), sameInstance((Object) lookup.get("Alabama")));
+
+        assertThat(Lookups.tryFind(lookup, "XX", result), is(false));
+        assertThat(result.isFound(), is(false));
+        assertThat(result.getValue(), nullValue());
+    }
+
+    @Test
+    public void tryFind_chokes_onNullResult() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("result");
+
+        Lookups.tryFind(Lookups.create(null, CountyCode.codes, "state", "county"), "XX", null);
+    }
+
+    private static LookupException getException(Lookup<?> lookup, Object key) {
+        try {
+            lookup.get(key);
+        } catch (LookupException e) {
+            return e;
+        }
+        throw new AssertionError("expected LookupException for " + key);
+    }
+}
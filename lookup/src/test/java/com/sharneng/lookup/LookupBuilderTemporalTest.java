@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+import com.sharneng.lookup.testdata.Rate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+
+public class LookupBuilderTemporalTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void asOf_findsLatestEffectiveVersion() {
+        Lookup<Lookup<Rate>> lookup = Lookups.from(Rate.rates).by("currency").asOf("effective").index();
+
+        Lookup<Rate> usd = lookup.get("USD");
+        assertThat(usd.find(new Date(0)), is(Rate.usd1));
+        assertThat(usd.find(10 * Rate.DAY - 1), is(Rate.usd1));
+        assertThat(usd.find(10 * Rate.DAY), is(Rate.usd2));
+        assertThat(usd.find(25 * Rate.DAY), is(Rate.usd2));
+        assertThat(usd.find(100 * Rate.DAY), is(Rate.usd3));
+        assertThat(usd.find(-1), nullValue());
+        assertThat(usd.find("today"), nullValue());
+    }
+
+    @Test
+    public void asOf_honorsExpiry() {
+        Lookup<Lookup<Rate>> lookup = Lookups.from(Rate.rates).by("currency").asOf("effective", "expiry").index();
+
+        Lookup<Rate> usd = lookup.get("USD");
+        assertThat(usd.find(20 * Rate.DAY - 1), is(Rate.usd2));
+        assertThat(usd.find(20 * Rate.DAY), nullValue());
+        assertThat(usd.find(30 * Rate.DAY), is(Rate.usd3));
+        assertThat(usd.find(1000 * Rate.DAY), is(Rate.usd3));
+        assertThat(lookup.get("EUR").find(4 * Rate.DAY), nullValue());
+        assertThat(lookup.get("EUR").find(15 * Rate.DAY), nullValue());
+    }
+
+    @Test
+    public void asOf_acceptsCalendarKey() {
+        Lookup<Double> lookup = Lookups.from(Rate.rates).select(Double.class, "rate").asOf("effective").index();
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(6 * Rate.DAY);
+
+        assertThat(lookup.find(calendar), is(0.8));
+    }
+
+    @Test
+    public void asOf_chokes_onDuplicateEffectiveTime() {
+        exception.expect(DuplicateKeyException.class);
+        exception.expectMessage("USD");
+
+        Lookups.from(Rate.dupRates).by("currency").asOf("effective").index();
+    }
+
+    @Test
+    public void asOf_takesLast_whenUseLastOnDuplicate() {
+        Lookup<Rate> lookup = Lookups.from(Rate.dupRates).useLastOnDuplicate().asOf("effective").index();
+
+        assertThat(lookup.find(10 * Rate.DAY), is(Rate.usd2Again));
+    }
+
+    @Test
+    public void asOf_takesFirst_whenUseFirstOnDuplicate() {
+        Lookup<Rate> lookup = Lookups.from(Rate.dupRates).useFirstOnDuplicate().asOf("effective").index();
+
+        assertThat(lookup.find(10 * Rate.DAY), is(Rate.usd2));
+    }
+
+    @Test
+    public void asOf_chokes_onNonTemporalEffective() {
+        exception.expect(LookupBuildException.class);
+
+        Lookups.from(Rate.rates).asOf("currency").index();
+    }
+
+    @Test
+    public void asOf_chokes_onExpiryBeforeEffective() {
+        exception.expect(LookupBuildException.class);
+
+        Lookups.from(Rate.rates).asOf("expiry", "effective").index();
+    }
+
+    @Test
+    public void asOf_chokes_onOverlappingVersions() {
+        exception.expect(LookupBuildException.class);
+        exception.expectMessage("overlaps");
+
+        Lookups.from(Arrays.asList(new Rate("USD", 1.0, 0, 20 * Rate.DAY), new Rate("USD", 1.1, 10 * Rate.DAY, null)))
+                .asOf("effective", "expiry").index();
+    }
+
+    @Test
+    public void asOf_keepsExpiry_whenEffectiveIsNull() {
+        LookupBuilder<Rate, Rate> builder = new LookupBuilder<Rate, Rate>(Rate.rates);
+        try {
+            builder.asOf(null, new OgnlConverter<Rate, Object>(Object.class, "expiry"));
+            fail("should have thrown IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("effectiveConverter"));
+        }
+
+        Lookup<Rate> lookup = builder.asOf("effective").index();
+        assertThat(lookup.find(25 * Rate.DAY), is(Rate.usd2));
+    }
+}
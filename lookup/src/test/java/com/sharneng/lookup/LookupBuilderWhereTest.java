@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.fluent.Defined;
+import com.sharneng.lookup.fluent.MultiSourced;
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.List;
+
+public class LookupBuilderWhereTest {
+    private static final int MISSISSIPPI_COUNTIES = 82;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static class InState implements Converter<CountyCode, Boolean> {
+        private final String state;
+        private int count;
+
+        InState(String state) {
+            this.state = state;
+        }
+
+        public Boolean convert(CountyCode source) {
+            count++;
+            return state.equals(source.getState());
+        }
+    }
+
+    @Test
+    public void where_indexesOnlyAcceptedSource() {
+        InState condition = new InState("Mississippi");
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).where(condition).by("code").index();
+
+        assertThat(lookup.get(28041).getCounty(), is("Greene"));
+        assertThat(lookup.find(1001), nullValue());
+        assertThat(condition.count, is(CountyCode.codes.size()));
+    }
+
+    @Test
+    public void where_evaluatesOncePerSource_forNestedLevels() {
+        InState condition = new InState("Mississippi");
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).where(condition).by("state").by("county")
+                .index();
+
+        assertThat(lookup.get("Mississippi").get("Greene").getCode(), is(28041));
+        assertThat(lookup.find("Alabama").find("Autauga"), nullValue());
+        assertThat(condition.count, is(CountyCode.codes.size()));
+    }
+
+    @Test
+    public void where_evaluatesOncePerSource_forRangeAndGroupedLevels() {
+        InState condition = new InState("Mississippi");
+        Lookup<CountyCode> range = Lookups.from(CountyCode.codes).where(condition).byRange("code", "code").index();
+
+        assertThat(range.get(28041).getCounty(), is("Greene"));
+        assertThat(range.find(1001), nullValue());
+        assertThat(condition.count, is(CountyCode.codes.size()));
+
+        condition = new InState("Mississippi");
+        Lookup<List<CountyCode>> grouped = Lookups.from(CountyCode.codes).where(condition).grouped().by("state")
+                .index();
+
+        assertThat(grouped.get("Mississippi").size(), is(MISSISSIPPI_COUNTIES));
+        assertThat(grouped.find("Alabama"), nullValue());
+        assertThat(condition.count, is(CountyCode.codes.size()));
+    }
+
+    @Test
+    public void where_requiresAllConditions() {
+        Lookup<List<CountyCode>> lookup = Lookups.from(CountyCode.codes).where("state == 'Mississippi'").where(
+                "county.startsWith('G')").grouped().by("state").index();
+
+        assertThat(lookup.get("Mississippi").size(), is(lessThan(MISSISSIPPI_COUNTIES)));
+        for (CountyCode code : lookup.get("Mississippi")) {
+            assertThat(code.getCounty(), startsWith("G"));
+        }
+    }
+
+    @Test
+    public void where_treatsNullAsFalse() {
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).where(new Converter<CountyCode, Boolean>() {
+            public Boolean convert(CountyCode source) {
+                return null;
+            }
+        }).by("code").index();
+
+        assertThat(lookup.find(28041), nullValue());
+    }
+
+    @Test
+    public void where_appliesToMultiLookupBuilder() {
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        Defined<Lookup<CountyCode>> all = codes.lookup().by("code");
+        Defined<Lookup<CountyCode>> mississippi = codes.lookup().where("state == 'Mississippi'").byRange("code",
+                "code");
+
+        assertThat(all.index().get(1001).getCounty(), is("Autauga"));
+        assertThat(mississippi.index().get(28041).getCounty(), is("Greene"));
+        assertThat(mississippi.index().find(1001), nullValue());
+    }
+
+    @Test
+    public void where_skipsKeyConversion_ofRejectedSource_inMultiLookupBuilder() {
+        InState condition = new InState("Mississippi");
+        final int[] converted = new int[1];
+        Converter<CountyCode, Object> county = new Converter<CountyCode, Object>() {
+            public Object convert(CountyCode source) {
+                converted[0]++;
+                return source.getCounty();
+            }
+        };
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        Defined<Lookup<CountyCode>> mississippi = codes.lookup().where(condition).by(county);
+
+        assertThat(mississippi.index().get("Greene").getCode(), is(28041));
+        assertThat(condition.count, is(CountyCode.codes.size()));
+        assertThat(converted[0], is(MISSISSIPPI_COUNTIES));
+    }
+
+    @Test
+    public void where_chokes_onNullCondition() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("condition");
+
+        Lookups.from(CountyCode.codes).where((Converter<CountyCode, Boolean>) null);
+    }
+}
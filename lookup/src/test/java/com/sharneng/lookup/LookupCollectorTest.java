@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LookupCollectorTest {
+    private static final int PARTS = 4;
+
+    private static final Converter<CountyCode, Object> code = new Converter<CountyCode, Object>() {
+        public Object convert(CountyCode source) {
+            return source.getCode();
+        }
+    };
+    private static final Converter<CountyCode, Object> state = new Converter<CountyCode, Object>() {
+        public Object convert(CountyCode source) {
+            return source.getState();
+        }
+    };
+    private static final Converter<CountyCode, Object> county = new Converter<CountyCode, Object>() {
+        public Object convert(CountyCode source) {
+            return source.getCounty();
+        }
+    };
+    private static final Converter<CountyCode, CountyCode> self = Utils.toSelf();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    /**
+     * Collect as a parallel stream does: accumulate the parts in threads and combine them in the encounter order.
+     */
+    private static <R> R collect(final LookupCollector<CountyCode, CountyCode, R> collector,
+            final List<CountyCode> source) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PARTS);
+        try {
+            List<Future<LookupCollector.Partial<CountyCode>>> futures;
+            futures = new ArrayList<Future<LookupCollector.Partial<CountyCode>>>();
+            for (int i = 0; i < PARTS; i++) {
+                final List<CountyCode> part = source.subList(source.size() * i / PARTS, source.size() * (i + 1)
+                        / PARTS);
+                futures.add(executor.submit(new Callable<LookupCollector.Partial<CountyCode>>() {
+                    public LookupCollector.Partial<CountyCode> call() {
+                        LookupCollector.Partial<CountyCode> partial = collector.newPartial();
+                        for (CountyCode e : part) {
+                            collector.accumulate(partial, e);
+                        }
+                        return partial;
+                    }
+                }));
+            }
+            LookupCollector.Partial<CountyCode> result = futures.get(0).get();
+            for (int i = 1; i < PARTS; i++) {
+                result = collector.combine(result, futures.get(i).get());
+            }
+            return collector.finish(result);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void toLookup_buildsSingleKeyLookup() throws Exception {
+        Lookup<CountyCode> lookup = collect(Lookups.toLookup(code, self), CountyCode.codes);
+
+        for (CountyCode c : CountyCode.codes) {
+            assertThat(lookup.get(c.getCode()), sameInstance(c));
+        }
+        assertThat(lookup.find(-1), nullValue());
+    }
+
+    @Test
+    public void toLookup_buildsNestedLookup() throws Exception {
+        Lookup<Lookup<CountyCode>> lookup = collect(Lookups.toLookup(state, county, self).defaultTo(
+                CountyCode.DEFAULT), CountyCode.codes);
+
+        for (CountyCode c : CountyCode.codes) {
+            assertThat(lookup.get(c.getState()).get(c.getCounty()), sameInstance(c));
+        }
+        assertThat(lookup.get("XX").get("Mercer"), sameInstance(CountyCode.DEFAULT));
+        assertThat(lookup.get("Alabama").get("XX"), sameInstance(CountyCode.DEFAULT));
+    }
+
+    @Test
+    public void combine_honorsEncounterOrder_onDuplicate() throws Exception {
+        List<CountyCode> source = new ArrayList<CountyCode>(CountyCode.codes);
+        CountyCode first = new CountyCode(1, "A", "first"), last = new CountyCode(1, "A", "last");
+        source.set(0, first);
+        source.set(source.size() - 1, last);
+
+        assertThat(collect(Lookups.toLookup(code, self).useFirstOnDuplicate(), source).get(1), sameInstance(first));
+        assertThat(collect(Lookups.toLookup(code, self).useLastOnDuplicate(), source).get(1), sameInstance(last));
+
+        exception.expect(DuplicateKeyException.class);
+        exception.expectMessage("Duplicated key 1 ");
+        collect(Lookups.toLookup(code, self), source);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void accumulate_detectsDuplicateInSamePartial() {
+        LookupCollector<CountyCode, CountyCode, Lookup<?>> collector = Lookups.toLookup(
+                Arrays.asList(state, county).toArray(new Converter[0]), self);
+        LookupCollector.Partial<CountyCode> partial = collector.newPartial();
+        collector.accumulate(partial, CountyCode.code100);
+
+        exception.expect(DuplicateKeyException.class);
+        exception.expectMessage("NJ, Mercer");
+        collector.accumulate(partial, CountyCode.code200);
+    }
+
+    @Test
+    public void toLookup_chokes_onNullValueConverter() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("valueConverter");
+
+        Lookups.toLookup(code, null);
+    }
+}
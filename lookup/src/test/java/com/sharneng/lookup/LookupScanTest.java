@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class LookupScanTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static List<Integer> range(int from, int to, int step) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = from; i < to; i += step) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static <T> Set<Object> keysOf(LookupScan<T> scan) {
+        Set<Object> keys = new HashSet<Object>();
+        for (Map.Entry<Object, T> entry : scan) {
+            assertThat(keys.add(entry.getKey()), is(true));
+            assertThat((Object) entry.getValue(), equalTo(entry.getKey()));
+        }
+        return keys;
+    }
+
+    @Test
+    public void scan_listsEveryEntry_ofEveryLayout() {
+        List<Integer> sparse = range(0, 3000, 7);
+        Set<Object> expected = new HashSet<Object>(sparse);
+        for (Layout layout : Arrays.asList(Layout.HASH, Layout.LINEAR, Layout.PRIMITIVE, Layout.OPEN, Layout.SORTED,
+                Layout.EYTZINGER)) {
+            Lookup<Integer> lookup = Lookups.from(sparse).layout(layout).by("intValue()").index();
+            assertThat(layout.toString(), keysOf(Lookups.scan(lookup)), equalTo(expected));
+        }
+
+        List<Integer> dense = range(-50, 50, 1);
+        assertThat(keysOf(Lookups.scan(Lookups.from(dense).by("intValue()").index())), equalTo(
+                (Set<Object>) new HashSet<Object>(dense)));
+
+        List<Integer> small = range(0, 10, 1);
+        Lookup<Integer> generated = Lookups.from(small).layout(Layout.GENERATED).by("intValue()").index();
+        assertThat(Lookups.layoutOf(generated), is(Layout.GENERATED));
+        assertThat(keysOf(Lookups.scan(generated)), equalTo((Set<Object>) new HashSet<Object>(small)));
+    }
+
+    @Test
+    public void scan_listsEnumKeys() {
+        List<Object> units = Arrays.<Object> asList(TimeUnit.SECONDS, TimeUnit.DAYS);
+        Lookup<Object> lookup = Lookups.from(units).by(Utils.<Object> toSelf()).index();
+
+        assertThat(Lookups.layoutOf(lookup), is(Layout.ENUM));
+        assertThat(keysOf(Lookups.scan(lookup)), equalTo((Set<Object>) new HashSet<Object>(units)));
+    }
+
+    @Test
+    public void scan_spellsPrefixKeys() {
+        List<String> prefixes = Arrays.asList("1", "1201", "1201555", "1212", "44", "4420", "");
+        PrefixLookup<String> lookup = Lookups.from(prefixes).byPrefix("toString()").index();
+
+        assertThat(keysOf(Lookups.scan(lookup)), equalTo((Set<Object>) new HashSet<Object>(prefixes)));
+    }
+
+    @Test
+    public void scan_yieldsKeyTuples_ofNestedLevels() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.create(null, CountyCode.codes, "state", "county");
+
+        LookupScan<CountyCode> scan = Lookups.scan(lookup, 2);
+        int count = 0;
+        for (Map.Entry<Object, CountyCode> entry : scan) {
+            CountyCode code = entry.getValue();
+            assertThat(entry.getKey(), equalTo((Object) Arrays.asList(code.getState(), code.getCounty())));
+            count++;
+        }
+        assertThat(count, is(CountyCode.codes.size()));
+
+        Set<Object> states = new HashSet<Object>();
+        for (Object state : Lookups.scan(lookup).keys()) {
+            states.add(state);
+        }
+        for (CountyCode code : CountyCode.codes) {
+            assertThat(states, hasItem((Object) code.getState()));
+        }
+    }
+
+    @Test
+    public void split_coversScanWithoutOverlap() {
+        List<Integer> keys = range(0, 3000, 7);
+        Lookup<Integer> lookup = Lookups.from(keys).by("intValue()").index();
+        LookupScan<Integer> scan = Lookups.scan(lookup);
+
+        List<Integer> values = new ArrayList<Integer>();
+        for (LookupScan<Integer> part : scan.split(5)) {
+            for (Integer value : part.values()) {
+                values.add(value);
+            }
+        }
+        assertThat(values.size(), is(keys.size()));
+        assertThat(new HashSet<Integer>(values), equalTo(new HashSet<Integer>(keys)));
+
+        int size = scan.estimateSize();
+        LookupScan<Integer> prefix = scan.trySplit();
+        assertThat(prefix.estimateSize() + scan.estimateSize(), is(size));
+        Set<Object> all = keysOf(prefix);
+        all.addAll(keysOf(scan));
+        assertThat(all, equalTo((Set<Object>) new HashSet<Object>(keys)));
+    }
+
+    @Test
+    public void scan_listsNestedHashLevels_whenIteratedAgainAndSplit() {
+        Lookup<Lookup<CountyCode>> lookup = Lookups.from(CountyCode.codes).layout(Layout.HASH).by("state").by(
+                "county").index();
+        LookupScan<CountyCode> scan = Lookups.scan(lookup, 2);
+        Set<CountyCode> expected = new HashSet<CountyCode>(CountyCode.codes);
+
+        assertThat(valuesOf(scan), equalTo(expected));
+        assertThat(valuesOf(scan), equalTo(expected));
+        Set<CountyCode> all = new HashSet<CountyCode>();
+        for (LookupScan<CountyCode> part : scan.split(3)) {
+            all.addAll(valuesOf(part));
+        }
+        assertThat(all, equalTo(expected));
+    }
+
+    private static <T> Set<T> valuesOf(LookupScan<T> scan) {
+        Set<T> values = new HashSet<T>();
+        for (T value : scan.values()) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    @Test
+    public void trySplit_returnsNull_whenTooSmall() {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("USD")).by("toString()").index();
+
+        assertThat(Lookups.scan(lookup).trySplit(), nullValue());
+    }
+
+    @Test
+    public void scan_chokes_onTooManyKeyLevels() {
+        Lookup<Integer> lookup = Lookups.from(range(0, 10, 1)).by("intValue()").index();
+
+        exception.expect(UnsupportedOperationException.class);
+        exception.expectMessage("fewer key levels");
+        Lookups.scan(lookup, 2).iterator().hasNext();
+    }
+
+    @Test
+    public void scan_chokes_onNonPositiveKeyCount() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("keyCount");
+
+        Lookups.scan(Lookups.from(range(0, 10, 1)).by("intValue()").index(), 0);
+    }
+}
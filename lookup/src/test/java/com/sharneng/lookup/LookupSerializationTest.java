@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+import com.sharneng.lookup.testdata.Band;
+import com.sharneng.lookup.testdata.CountyCode;
+import com.sharneng.lookup.testdata.Rate;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class LookupSerializationTest {
+    private static final int STEP = 7;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T object) throws Exception {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(object)));
+        try {
+            return (T) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<Integer> range(int from, int to, int step) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = from; i < to; i += step) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    @Test
+    public void everyLayout_roundTripsNestedLookup() throws Exception {
+        for (Layout layout : Layout.values()) {
+            if (layout == Layout.GENERATED) continue;
+            Lookup<Lookup<String>> lookup = Lookups.from(CountyCode.codes).select(String.class, "county").layout(
+                    layout).defaultTo("none").by("state").by("code").index();
+
+            Lookup<Lookup<String>> copy = roundTrip(lookup);
+
+            assertThat(layout.name(), Lookups.layoutOf(copy), is(Lookups.layoutOf(lookup)));
+            for (CountyCode c : CountyCode.codes) {
+                assertThat(layout.name(), Lookups.layoutOf(copy.get(c.getState())), is(Lookups.layoutOf(lookup
+                        .get(c.getState()))));
+                assertThat(layout.name(), copy.get(c.getState()).get(c.getCode()), equalTo(c.getCounty()));
+            }
+            assertThat(layout.name(), copy.get("Alabama").get(-1), is("none"));
+            assertThat(layout.name(), copy.get("XX").get(1001), is("none"));
+            assertThat(layout.name(), copy.has("XX"), is(false));
+        }
+    }
+
+    @Test
+    public void integralLayouts_keepIntegralLookup() throws Exception {
+        for (Layout layout : Arrays.asList(Layout.DENSE, Layout.PRIMITIVE, Layout.EYTZINGER)) {
+            List<Integer> keys = range(-100, 3000, layout == Layout.DENSE ? 1 : STEP);
+            Lookup<Integer> lookup = Lookups.from(keys).layout(layout).by("intValue()").index();
+
+            Lookup<Integer> copy = roundTrip(lookup);
+
+            assertThat(Lookups.layoutOf(copy), is(layout));
+            assertThat(copy, instanceOf(IntegralLookup.class));
+            for (Integer key : keys) {
+                assertThat(((IntegralLookup<Integer>) copy).find(key.longValue()), equalTo(key));
+            }
+            assertThat(copy.find(3000), nullValue());
+            assertThat(copy.find(-99L), nullValue());
+        }
+    }
+
+    @Test
+    public void enumLayout_roundTrips() throws Exception {
+        List<Object> units = Arrays.<Object> asList(TimeUnit.SECONDS, TimeUnit.DAYS);
+        Lookup<Object> lookup = Lookups.from(units).by(Utils.<Object> toSelf()).index();
+
+        Lookup<Object> copy = roundTrip(lookup);
+
+        assertThat(Lookups.layoutOf(copy), is(Layout.ENUM));
+        assertThat(copy.get(TimeUnit.DAYS), is((Object) TimeUnit.DAYS));
+        assertThat(copy.find(TimeUnit.HOURS), nullValue());
+    }
+
+    @Test
+    public void equivalence_isKept() throws Exception {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("USD", "EUR", "JPY", "GBP", "CHF", "CAD", "AUD", "NZD",
+                "SEK", "NOK")).keyEquivalence(Equivalences.charSequences()).by("toString()").index();
+
+        Lookup<String> copy = roundTrip(lookup);
+
+        assertThat(copy.get(new StringBuilder("JPY")), is("JPY"));
+    }
+
+    @Test
+    public void stacklessNotFound_isKept() throws Exception {
+        Lookup<Lookup<String>> copy = roundTrip(Lookups.from(CountyCode.codes).select(String.class, "county")
+                .stacklessNotFound().by("state").by("code").index());
+
+        try {
+            copy.get("Alabama").get(-1);
+            fail("Expected LookupException");
+        } catch (LookupException e) {
+            assertThat(e, sameInstance((LookupException) StacklessLookupException.NOT_FOUND));
+        }
+        try {
+            copy.get("XX").get(1001);
+            fail("Expected LookupException");
+        } catch (LookupException e) {
+            assertThat(e, sameInstance((LookupException) StacklessLookupException.NOT_FOUND));
+        }
+    }
+
+    @Test
+    public void strings_areShared() throws Exception {
+        Lookup<Lookup<String>> copy = roundTrip(Lookups.from(CountyCode.codes).select(String.class, "state")
+                .defaultTo(new String("none")).by("state").by("code").index());
+
+        assertThat(copy.get("Alabama").get(1001), sameInstance(copy.get("Alabama").get(1003)));
+        assertThat(copy.get("Alabama").find(-1), sameInstance(copy.get("Mississippi").find(-1)));
+    }
+
+    @Test
+    public void serialForm_isSmallerThanNestedHashMaps() throws Exception {
+        Map<String, Map<Integer, String>> maps = new HashMap<String, Map<Integer, String>>();
+        for (CountyCode c : CountyCode.codes) {
+            if (!maps.containsKey(c.getState())) maps.put(c.getState(), new HashMap<Integer, String>());
+            maps.get(c.getState()).put(c.getCode(), c.getCounty());
+        }
+        Lookup<Lookup<String>> lookup = Lookups.from(CountyCode.codes).select(String.class, "county").by("state").by(
+                "code").index();
+
+        assertThat(serialize(lookup).length, lessThan(serialize(maps).length));
+    }
+
+    @Test
+    public void rangeLevels_roundTrip() throws Exception {
+        Lookup<String> integral = roundTrip(Lookups.from(Band.bands).select(String.class, "name").defaultTo("none")
+                .byRange("low", "high").index());
+        Lookup<String> comparable = roundTrip(Lookups.from(Band.bands).select(String.class, "name").byRange("from",
+                "to").index());
+        Lookup<Lookup<String>> nested = roundTrip(Lookups.from(CountyCode.codes).select(String.class, "county").by(
+                "state").byRange("code", "code").index());
+
+        assertThat(integral.find(99), is("A"));
+        assertThat(integral.find(100L), is("B"));
+        assertThat(integral.find(1000), is("none"));
+        assertThat(comparable.find("20000"), is("B"));
+        assertThat(comparable.find("999999"), nullValue());
+        assertThat(nested.get("Mississippi").get(28041), is("Greene"));
+        assertThat(nested.get("Mississippi").find(1081), nullValue());
+    }
+
+    @Test
+    public void temporalLevels_roundTrip() throws Exception {
+        Lookup<Lookup<Double>> lookup = roundTrip(Lookups.from(Rate.rates).select(Double.class, "rate").by(
+                "currency").asOf("effective", "expiry").index());
+        Lookup<Double> untilNext = roundTrip(Lookups.from(Rate.rates).select(Double.class, "rate").asOf(
+                "effective").index());
+
+        assertThat(lookup.get("USD").find(20 * Rate.DAY - 1), is(1.1));
+        assertThat(lookup.get("USD").find(20 * Rate.DAY), nullValue());
+        assertThat(lookup.get("USD").find(1000 * Rate.DAY), is(1.2));
+        assertThat(lookup.get("EUR").find(4 * Rate.DAY), nullValue());
+        assertThat(untilNext.find(6 * Rate.DAY), is(0.8));
+    }
+
+    @Test
+    public void prefixLevel_roundTrips() throws Exception {
+        PrefixLookup<String> lookup = roundTrip(Lookups.from(Arrays.asList("1", "1201", "1201555", "44", ""))
+                .byPrefix("toString()").index());
+
+        assertThat(lookup.findLongestPrefix("12015551234"), is("1201555"));
+        assertThat(lookup.findLongestPrefix("120"), is("1"));
+        assertThat(lookup.findLongestPrefix("33"), is(""));
+        assertThat(lookup.get("44"), is("44"));
+        assertThat(lookup.find("4"), nullValue());
+    }
+
+    @Test
+    public void groupedLevels_roundTrip() throws Exception {
+        Lookup<List<String>> lookup = Lookups.from(CountyCode.codes).select(String.class, "county").grouped().by(
+                "state").index();
+
+        Lookup<List<String>> copy = roundTrip(lookup);
+
+        assertThat(copy.get("Mississippi").size(), is(82));
+        assertThat(copy.get("Mississippi"), equalTo(lookup.get("Mississippi")));
+        assertThat(roundTrip(lookup.get("Alabama")), equalTo(lookup.get("Alabama")));
+    }
+
+    @Test
+    public void generatedLayout_isNotSerializable() throws Exception {
+        Lookup<String> lookup = Lookups.from(Arrays.asList("USD", "EUR", "JPY")).layout(Layout.GENERATED).by(
+                "toString()").index();
+        assertThat(Lookups.layoutOf(lookup), is(Layout.GENERATED));
+
+        exception.expect(NotSerializableException.class);
+        serialize(lookup);
+    }
+}
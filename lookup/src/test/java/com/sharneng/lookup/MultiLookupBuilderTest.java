@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.fluent.Defined;
+import com.sharneng.lookup.fluent.MultiSourced;
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class MultiLookupBuilderTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static class CountingConverter implements Converter<CountyCode, Object> {
+        private int count;
+
+        public Object convert(CountyCode source) {
+            count++;
+            return source.getState();
+        }
+    }
+
+    @Test
+    public void index_buildsAllLookups() {
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        Defined<Lookup<CountyCode>> byCode = codes.lookup().by("code");
+        Defined<Lookup<Lookup<CountyCode>>> byStateCounty = codes.lookup().by("state").by("county");
+        Defined<Lookup<List<String>>> countiesByState = codes.lookup().select(String.class, "county").grouped()
+                .by("state");
+        Defined<Lookup<CountyCode>> byRange = codes.lookup().byRange("code", "code");
+
+        assertThat(byCode.index().get(28041).getCounty(), is("Greene"));
+        assertThat(byStateCounty.index().get("Mississippi").get("Greene").getCode(), is(28041));
+        assertThat(countiesByState.index().get("Mississippi").size(), is(82));
+        assertThat(byRange.index().get(28041).getCounty(), is("Greene"));
+        assertThat(byCode.index(), sameInstance(byCode.index()));
+    }
+
+    @Test
+    public void index_evaluatesEachConverterOncePerElement() {
+        CountingConverter state = new CountingConverter();
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        Defined<Lookup<Lookup<CountyCode>>> byStateCounty = codes.lookup().by(state).by("county");
+        Defined<Lookup<List<CountyCode>>> byState = codes.lookup().grouped().by(state);
+
+        codes.index();
+
+        assertThat(state.count, is(CountyCode.codes.size()));
+        assertThat(byStateCounty.index().get("Alabama").get("Lee").getCode(), is(1081));
+        assertThat(byState.index().get("Alabama").size(), is(CountyCode.codes.size() - 82));
+        assertThat(state.count, is(CountyCode.codes.size()));
+    }
+
+    @Test
+    public void index_sharesSelectedValues() {
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        Converter<CountyCode, String> county = new Converter<CountyCode, String>() {
+            public String convert(CountyCode source) {
+                return new String(source.getCounty());
+            }
+        };
+        Defined<Lookup<String>> byCode = codes.lookup().select(county).by("code");
+        Defined<Lookup<Lookup<String>>> byStateCode = codes.lookup().select(county).by("state").by("code");
+
+        assertThat(byCode.index().get(1081), sameInstance(byStateCode.index().get("Alabama").get(1081)));
+    }
+
+    @Test
+    public void index_skipsConvertersOfLookup_forRejectedElements() {
+        Converter<String, Object> length = new Converter<String, Object>() {
+            public Object convert(String source) {
+                return source.length();
+            }
+        };
+        MultiSourced<String> names = Lookups.fromAll(Arrays.asList("a", null, "bb"));
+        Defined<Lookup<String>> byLength = names.lookup().where("#this != null").by(length);
+        Defined<Lookup<String>> all = names.lookup().by("#this");
+
+        assertThat(byLength.index().get(2), is("bb"));
+        assertThat(byLength.index().find(0), nullValue());
+        assertThat(all.index().get("a"), is("a"));
+    }
+
+    @Test
+    public void index_reportsDuplicateKeys() {
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        Defined<Lookup<CountyCode>> byState = codes.lookup().by("state");
+        exception.expect(DuplicateKeyException.class);
+
+        byState.index();
+    }
+
+    @Test
+    public void lookup_chokes_afterIndexed() {
+        MultiSourced<CountyCode> codes = Lookups.fromAll(CountyCode.codes);
+        codes.lookup().by("code");
+        codes.index();
+        exception.expect(IllegalStateException.class);
+
+        codes.lookup();
+    }
+}
@@ -17,7 +17,9 @@ package com.sharneng.lookup;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
 
 import com.sharneng.lookup.testdata.Model.Base;
 
@@ -79,4 +81,26 @@ public class OgnlConverterTest {
         sut.convert(base);
     }
 
+    @Test
+    public void convert_wrapsExceptionFromGetter_sameAsOgnl() throws Exception {
+        LookupBuildException chained = convertException(new OgnlConverter<Base, String>(String.class, "exception"));
+        LookupBuildException evaluated = convertException(new OgnlConverter<Base, String>(String.class,
+                "(exception)"));
+
+        assertThat(chained.getCause(), instanceOf(evaluated.getCause().getClass()));
+        assertThat(chained.getMessage(), equalTo(evaluated.getMessage()));
+        assertThat(chained.getCause().getCause(), instanceOf(Exception.class));
+        assertThat(chained.getCause().getCause().getClass(), equalTo((Object) evaluated.getCause().getCause()
+                .getClass()));
+    }
+
+    private LookupBuildException convertException(OgnlConverter<Base, String> sut) {
+        try {
+            sut.convert(base);
+        } catch (LookupBuildException e) {
+            return e;
+        }
+        fail("should have thrown LookupBuildException");
+        return null;
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OverlayLookupTest {
+    private static final CountyCode MERCER = new CountyCode(34021, "New Jersey", "Mercer");
+    private static final CountyCode GREENE = new CountyCode(28041, "Mississippi", "Greene County");
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final Lookup<CountyCode> base = Lookups.from(CountyCode.codes).defaultTo(CountyCode.DEFAULT).by("code")
+            .index();
+
+    private static Map<Object, CountyCode> overrides(CountyCode... codes) {
+        Map<Object, CountyCode> map = new HashMap<Object, CountyCode>();
+        for (CountyCode code : codes) {
+            map.put(code.getCode(), code);
+        }
+        return map;
+    }
+
+    @Test
+    public void overlay_overridesAddsAndRemoves() {
+        Lookup<CountyCode> overlay = Lookups.overlay(base, overrides(GREENE, MERCER), Arrays.asList(1001));
+
+        assertThat(overlay.get(28041), sameInstance(GREENE));
+        assertThat(overlay.get(34021), sameInstance(MERCER));
+        assertThat(overlay.has(1001), is(false));
+        assertThat(overlay.find(1001, null), nullValue());
+        assertThat(overlay.get(1001), sameInstance(CountyCode.DEFAULT));
+        assertThat(overlay.get(1003), sameInstance(base.get(1003)));
+        assertThat(base.get(1001).getCounty(), is("Autauga"));
+        assertThat(base.get(28041).getCounty(), is("Greene"));
+    }
+
+    @Test
+    public void overlay_usesDefaultOfBase() {
+        Lookup<CountyCode> overlay = Lookups.overlay(base, overrides(), null);
+
+        assertThat(overlay.find(-1), sameInstance(CountyCode.DEFAULT));
+        assertThat(overlay.find(null), sameInstance(CountyCode.DEFAULT));
+    }
+
+    @Test
+    public void overlay_ofOverlay_mergesLayersOnSharedBase() {
+        Lookup<CountyCode> first = Lookups.overlay(base, overrides(GREENE), Arrays.asList(1001));
+        CountyCode autauga = new CountyCode(1001, "Alabama", "Autauga County");
+        Lookup<CountyCode> second = Lookups.overlay(first, overrides(autauga), Arrays.asList(28041));
+
+        assertThat(((OverlayLookup<CountyCode>) second).getBase(), sameInstance(base));
+        assertThat(second.get(1001), sameInstance(autauga));
+        assertThat(second.has(28041), is(false));
+        assertThat(first.get(28041), sameInstance(GREENE));
+        assertThat(first.has(1001), is(false));
+    }
+
+    @Test
+    public void overlay_worksOnNestedLookup() {
+        Lookup<Lookup<CountyCode>> nested = Lookups.create(null, CountyCode.codes, "state", "county");
+        Map<Object, Lookup<CountyCode>> states = new HashMap<Object, Lookup<CountyCode>>();
+        states.put("New Jersey", Lookups.create(Collections.singletonMap("Mercer", MERCER), null));
+        Lookup<Lookup<CountyCode>> overlay = Lookups.overlay(nested, states, Arrays.asList("Alabama"));
+
+        assertThat(overlay.get("New Jersey").get("Mercer"), sameInstance(MERCER));
+        assertThat(overlay.find("Alabama").find("Autauga"), nullValue());
+        assertThat(overlay.get("Mississippi").get("Greene").getCode(), is(28041));
+    }
+
+    @Test
+    public void overlay_matchesKeys_byEquivalenceOfBase() {
+        Lookup<String> names = Lookups.from(Arrays.asList("NJ", "MS", "AL")).keyEquivalence(
+                Equivalences.charSequences()).by("toString()").index();
+        Lookup<String> overlay = Lookups.overlay(names, Collections.singletonMap("NJ", "New Jersey"), Arrays
+                .asList("AL"));
+        overlay = Lookups.overlay(overlay, Collections.singletonMap("MS", "Mississippi"), null);
+
+        assertThat(overlay.get(new StringBuilder("NJ")), is("New Jersey"));
+        assertThat(overlay.get(new StringBuilder("MS")), is("Mississippi"));
+        assertThat(overlay.find(new StringBuilder("AL")), nullValue());
+    }
+
+    @Test
+    public void overlay_throwsNotFoundException_ofBase() {
+        Lookup<CountyCode> stackless = Lookups.from(CountyCode.codes).stacklessNotFound().by("code").index();
+        Lookup<CountyCode> overlay = Lookups.overlay(stackless, overrides(MERCER), Arrays.asList(1001));
+        exception.expect(sameInstance((LookupException) StacklessLookupException.NOT_FOUND));
+
+        overlay.get(1001);
+    }
+
+    @Test
+    public void overlay_chokes_onKeyOverriddenAndRemoved() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("28041");
+
+        Lookups.overlay(base, overrides(GREENE), Arrays.asList(28041));
+    }
+
+    @Test
+    public void overlay_chokes_onNullBase() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("base");
+
+        Lookups.overlay(null, overrides(GREENE), null);
+    }
+}
@@ -44,4 +44,16 @@ public class UtilsTest {
         assertThat(Utils.countingSuffix(39), is("th"));
         assertThat(Utils.countingSuffix(10), is("th"));
     }
+
+    @Test
+    public void floorIndex_findsLastNotGreater() {
+        long[] sorted = { 1, 3, 5, 7, 9 };
+
+        assertThat(Utils.floorIndex(sorted, 0), is(-1));
+        assertThat(Utils.floorIndex(sorted, 1), is(0));
+        assertThat(Utils.floorIndex(sorted, 4), is(1));
+        assertThat(Utils.floorIndex(sorted, 9), is(4));
+        assertThat(Utils.floorIndex(sorted, 100), is(4));
+        assertThat(Utils.floorIndex(new long[0], 100), is(-1));
+    }
 }
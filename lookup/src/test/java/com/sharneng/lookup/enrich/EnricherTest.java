@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.Lookups;
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EnricherTest {
+    private static final int PARALLELISM = 4;
+    private static final int BATCH_SIZE = 100;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private static class Fact {
+        final int code;
+        final String state;
+        CountyCode county;
+        String stateName;
+
+        Fact(int code, String state) {
+            this.code = code;
+            this.state = state;
+        }
+    }
+
+    private static final Converter<Fact, Object> byCode = new Converter<Fact, Object>() {
+        public Object convert(Fact source) {
+            return source.code;
+        }
+    };
+    private static final Converter<Fact, Object> byState = new Converter<Fact, Object>() {
+        public Object convert(Fact source) {
+            return source.state;
+        }
+    };
+    private static final Setter<Fact, CountyCode> setCounty = new Setter<Fact, CountyCode>() {
+        public void set(Fact target, CountyCode value) {
+            target.county = value;
+        }
+    };
+    private static final Setter<Fact, String> setStateName = new Setter<Fact, String>() {
+        public void set(Fact target, String value) {
+            target.stateName = value;
+        }
+    };
+
+    private static List<Fact> facts() {
+        List<Fact> facts = new ArrayList<Fact>();
+        for (CountyCode code : CountyCode.codes) {
+            facts.add(new Fact(code.getCode(), code.getState()));
+        }
+        facts.add(new Fact(-1, "XX"));
+        return facts;
+    }
+
+    @Test
+    public void enrich_setsFoundAndDefaultValues_andReportsPerBinding() {
+        List<Fact> facts = facts();
+        Lookup<CountyCode> counties = Lookups.from(CountyCode.codes).by("code").index();
+        Lookup<String> states = Lookups.from(CountyCode.codes).useFirstOnDuplicate().select(String.class, "state")
+                .defaultTo("unknown").by("state").index();
+
+        EnrichmentReport report = new Enricher<Fact>().batchSize(BATCH_SIZE).bind("county", byCode, counties,
+                setCounty).bind("state", byState, states, setStateName).enrich(facts.iterator(), PARALLELISM);
+
+        for (Fact fact : facts.subList(0, facts.size() - 1)) {
+            assertThat(fact.county.getCode(), is(fact.code));
+            assertThat(fact.stateName, is(fact.state));
+        }
+        Fact unknown = facts.get(facts.size() - 1);
+        assertThat(unknown.county, nullValue());
+        assertThat(unknown.stateName, is("unknown"));
+
+        assertThat(report.getRecords(), is((long) facts.size()));
+        assertThat(report.getBindingNames(), equalTo(Arrays.asList("county", "state")));
+        assertThat(report.getHits("county"), is((long) CountyCode.codes.size()));
+        assertThat(report.getMisses("county"), is(1L));
+        assertThat(report.getDefaults("county"), is(0L));
+        assertThat(report.getMisses("state"), is(1L));
+        assertThat(report.getDefaults("state"), is(1L));
+        assertThat(report.getThroughput(), greaterThan(0.0));
+    }
+
+    @Test
+    public void enrich_rethrowsFailureOfBatch() {
+        Lookup<CountyCode> counties = Lookups.from(CountyCode.codes).by("code").index();
+        Converter<Fact, Object> failing = new Converter<Fact, Object>() {
+            public Object convert(Fact source) {
+                throw new IllegalStateException("bad fact " + source.code);
+            }
+        };
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("bad fact");
+        new Enricher<Fact>().bind("county", failing, counties, setCounty).enrich(facts().iterator(), PARALLELISM);
+    }
+
+    @Test
+    public void bind_chokes_onDuplicateName() {
+        Lookup<CountyCode> counties = Lookups.from(CountyCode.codes).by("code").index();
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("county");
+        new Enricher<Fact>().bind("county", byCode, counties, setCounty).bind("county", byCode, counties, setCounty);
+    }
+
+    @Test
+    public void report_chokes_onUnknownBinding() {
+        EnrichmentReport report = new Enricher<Fact>().enrich(facts().iterator(), 1);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("county");
+        report.getHits("county");
+    }
+}
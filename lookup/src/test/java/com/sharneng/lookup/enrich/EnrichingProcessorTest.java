@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.enrich;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.Lookups;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class EnrichingProcessorTest {
+    private static final int BATCH_SIZE = 4;
+    private static final int COUNT = 10;
+
+    private static class Item {
+        final int key;
+        String name;
+
+        Item(int key) {
+            this.key = key;
+        }
+    }
+
+    private static final Converter<Item, Object> byKey = new Converter<Item, Object>() {
+        public Object convert(Item source) {
+            return source.key;
+        }
+    };
+    private static final Setter<Item, String> setName = new Setter<Item, String>() {
+        public void set(Item target, String value) {
+            target.name = value;
+        }
+    };
+
+    /**
+     * Publishes the items synchronously as requested, from within {@code request} without recursion.
+     */
+    private static class ListPublisher<T> implements Flow.Publisher<T> {
+        private final List<T> items;
+        private final List<Long> requests = new ArrayList<Long>();
+
+        ListPublisher(List<T> items) {
+            this.items = items;
+        }
+
+        public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int index;
+                private long demand;
+                private boolean emitting;
+                private boolean done;
+
+                public void request(long n) {
+                    requests.add(n);
+                    demand += n;
+                    if (emitting) return;
+                    emitting = true;
+                    while (demand > 0 && index < items.size()) {
+                        demand--;
+                        subscriber.onNext(items.get(index++));
+                    }
+                    if (index == items.size() && !done) {
+                        done = true;
+                        subscriber.onComplete();
+                    }
+                    emitting = false;
+                }
+
+                public void cancel() {
+                    index = items.size();
+                    done = true;
+                }
+            });
+        }
+    }
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        final List<T> items = new ArrayList<T>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+        long requestOnNext;
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        public void onNext(T item) {
+            items.add(item);
+            if (requestOnNext > 0) subscription.request(requestOnNext);
+        }
+
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static List<Item> items() {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < COUNT; i++) {
+            items.add(new Item(i));
+        }
+        return items;
+    }
+
+    private static Lookup<String> names(String prefix) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < COUNT - 1; i++) {
+            names.add(prefix + i);
+        }
+        return Lookups.from(names).by(new Converter<String, Object>() {
+            public Object convert(String source) {
+                return Integer.valueOf(source.replaceAll("\\D", ""));
+            }
+        }).index();
+    }
+
+    @Test
+    public void processor_enrichesInBatches_honoringDemand() {
+        List<Item> items = items();
+        ListPublisher<Item> publisher = new ListPublisher<Item>(items);
+        EnrichingProcessor<Item> processor = new EnrichingProcessor<Item>(new Enricher<Item>().batchSize(BATCH_SIZE)
+                .bind("name", byKey, names("a"), setName));
+        RecordingSubscriber<Item> subscriber = new RecordingSubscriber<Item>();
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        assertThat(publisher.requests.size(), is(0));
+        subscriber.subscription.request(3);
+        assertThat(subscriber.items, equalTo(items.subList(0, 3)));
+        assertThat(subscriber.items.get(2).name, is("a2"));
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertThat(subscriber.items, equalTo(items));
+        assertThat(subscriber.completed, is(true));
+        assertThat(items.get(COUNT - 1).name, nullValue());
+        assertThat(publisher.requests, equalTo(Arrays.asList(3L, 4L, 4L)));
+
+        EnrichmentReport report = processor.report();
+        assertThat(report.getRecords(), is((long) COUNT));
+        assertThat(report.getMisses("name"), is(1L));
+    }
+
+    @Test
+    public void processor_usesSwappedLookup_forNextBatch() {
+        List<Item> items = items();
+        Enricher<Item> enricher = new Enricher<Item>().batchSize(BATCH_SIZE).bind("name", byKey, names("a"), setName);
+        EnrichingProcessor<Item> processor = new EnrichingProcessor<Item>(enricher);
+        RecordingSubscriber<Item> subscriber = new RecordingSubscriber<Item>();
+        processor.subscribe(subscriber);
+        new ListPublisher<Item>(items).subscribe(processor);
+
+        subscriber.subscription.request(BATCH_SIZE);
+        enricher.swap("name", names("b"));
+        subscriber.subscription.request(BATCH_SIZE);
+
+        assertThat(items.get(BATCH_SIZE - 1).name, is("a3"));
+        assertThat(items.get(BATCH_SIZE).name, is("b4"));
+    }
+
+    @Test
+    public void processor_keepsOrder_whenRequestedFromOnNext() {
+        List<Item> items = items();
+        EnrichingProcessor<Item> processor = new EnrichingProcessor<Item>(new Enricher<Item>().batchSize(BATCH_SIZE)
+                .bind("name", byKey, names("a"), setName));
+        RecordingSubscriber<Item> subscriber = new RecordingSubscriber<Item>();
+        subscriber.requestOnNext = 1;
+        processor.subscribe(subscriber);
+        new ListPublisher<Item>(items).subscribe(processor);
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.items, equalTo(items));
+        assertThat(subscriber.completed, is(true));
+    }
+
+    @Test
+    public void processor_signalsError_onNonPositiveRequest() {
+        EnrichingProcessor<Item> processor = new EnrichingProcessor<Item>(new Enricher<Item>());
+        RecordingSubscriber<Item> subscriber = new RecordingSubscriber<Item>();
+        processor.subscribe(subscriber);
+        new ListPublisher<Item>(items()).subscribe(processor);
+
+        subscriber.subscription.request(0);
+        assertThat(subscriber.error, instanceOf(IllegalArgumentException.class));
+        assertThat(subscriber.items.size(), is(0));
+    }
+
+    @Test
+    public void processor_rejectsSecondSubscriber() {
+        EnrichingProcessor<Item> processor = new EnrichingProcessor<Item>(new Enricher<Item>());
+        processor.subscribe(new RecordingSubscriber<Item>());
+        RecordingSubscriber<Item> second = new RecordingSubscriber<Item>();
+        processor.subscribe(second);
+
+        assertThat(second.error, instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    public void processor_completes_onEmptyUpstream() {
+        EnrichingProcessor<Item> processor = new EnrichingProcessor<Item>(new Enricher<Item>());
+        RecordingSubscriber<Item> subscriber = new RecordingSubscriber<Item>();
+        processor.subscribe(subscriber);
+        new ListPublisher<Item>(Collections.<Item> emptyList()).subscribe(processor);
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.completed, is(true));
+    }
+}
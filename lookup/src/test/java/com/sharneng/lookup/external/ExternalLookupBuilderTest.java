@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.external;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.Converter;
+import com.sharneng.lookup.DuplicateKeyException;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupException;
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ExternalLookupBuilderTest {
+    private static final int PARTITIONS = 8;
+
+    private static final Converter<CountyCode, Object> code = new Converter<CountyCode, Object>() {
+        public Object convert(CountyCode source) {
+            return source.getCode();
+        }
+    };
+    private static final Converter<CountyCode, Object> state = new Converter<CountyCode, Object>() {
+        public Object convert(CountyCode source) {
+            return source.getState();
+        }
+    };
+    private static final Converter<CountyCode, String> county = new Converter<CountyCode, String>() {
+        public String convert(CountyCode source) {
+            return source.getCounty();
+        }
+    };
+    private static final Converter<CountyCode, Integer> codeValue = new Converter<CountyCode, Integer>() {
+        public Integer convert(CountyCode source) {
+            return source.getCode();
+        }
+    };
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExternalLookupBuilder<CountyCode, String> countyByCode() {
+        return new ExternalLookupBuilder<CountyCode, String>(Codecs.<Integer> serialized(), county, Codecs.strings())
+                .by(code).partitions(PARTITIONS);
+    }
+
+    private ExternalLookupBuilder<CountyCode, Integer> codeByStateAndCounty() {
+        return new ExternalLookupBuilder<CountyCode, Integer>(Codecs.strings(), codeValue,
+                Codecs.<Integer> serialized()).by(state).by(county).partitions(PARTITIONS);
+    }
+
+    @Test
+    public void build_buildsSingleKeyLookup() throws IOException {
+        Lookup<?> lookup = countyByCode().defaultTo("none").build(CountyCode.codes.iterator(), folder.newFile("c.idx"));
+
+        for (CountyCode c : CountyCode.codes) {
+            assertThat(lookup.get(c.getCode()), equalTo((Object) c.getCounty()));
+        }
+        assertThat(lookup.has(-1), is(false));
+        assertThat(lookup.find(-1), equalTo((Object) "none"));
+        assertThat(lookup.find("1001"), equalTo((Object) "none"));
+    }
+
+    @Test
+    public void build_buildsNestedLookup() throws IOException {
+        @SuppressWarnings("unchecked")
+        Lookup<Lookup<Integer>> lookup = (Lookup<Lookup<Integer>>) codeByStateAndCounty().defaultTo(0).build(
+                CountyCode.codes.iterator(), folder.newFile("s.idx"));
+
+        for (CountyCode c : CountyCode.codes) {
+            assertThat(lookup.get(c.getState()).get(c.getCounty()), equalTo(c.getCode()));
+        }
+        assertThat(lookup.get("Mississippi").get("Greene"), equalTo(28041));
+        assertThat(lookup.has("Greene"), is(false));
+        assertThat(lookup.get("XX").get("Greene"), equalTo(0));
+        assertThat(lookup.get("Alabama").get("XX"), equalTo(0));
+        assertThat(lookup.get("Alabama").has("XX"), is(false));
+    }
+
+    @Test
+    public void build_usesSinglePartition() throws IOException {
+        Lookup<?> lookup = countyByCode().partitions(1).build(CountyCode.codes.iterator(), folder.newFile("c.idx"));
+
+        assertThat(lookup.get(1001), equalTo((Object) "Autauga"));
+        assertThat(lookup.find(-1), nullValue());
+    }
+
+    @Test
+    public void open_readsIndexFileBuiltBefore() throws IOException {
+        File index = folder.newFile("s.idx");
+        codeByStateAndCounty().defaultTo(0).build(CountyCode.codes.iterator(), index);
+
+        Lookup<?> lookup = ExternalLookupBuilder.open(index, Codecs.strings(), Codecs.serialized());
+
+        assertThat(((Lookup<?>) lookup.get("Mississippi")).get("Greene"), equalTo((Object) 28041));
+        assertThat(((Lookup<?>) lookup.get("XX")).get("Greene"), equalTo((Object) 0));
+    }
+
+    @Test
+    public void open_readsOnlyAcceptedClasses_ofSerializedValues() throws IOException {
+        File index = folder.newFile("u.idx");
+        Converter<CountyCode, URI> uri = new Converter<CountyCode, URI>() {
+            public URI convert(CountyCode source) {
+                return URI.create("urn:county:" + source.getCode());
+            }
+        };
+        new ExternalLookupBuilder<CountyCode, URI>(Codecs.<Integer> serialized(), uri, Codecs.<URI> serialized()).by(
+                code).build(CountyCode.codes.iterator(), index);
+
+        Lookup<?> accepted = ExternalLookupBuilder.open(index, Codecs.serialized(), Codecs.serialized(URI.class));
+        assertThat(accepted.get(28041), equalTo((Object) URI.create("urn:county:28041")));
+
+        Lookup<?> rejected = ExternalLookupBuilder.open(index, Codecs.serialized(), Codecs.serialized());
+        exception.expect(LookupException.class);
+        exception.expectMessage("Unable to read the value");
+        rejected.get(28041);
+    }
+
+    @Test
+    public void open_chokes_onFileOtherThanIndex() throws IOException {
+        File file = folder.newFile("other");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        out.close();
+
+        exception.expect(IOException.class);
+        exception.expectMessage("Not a lookup index file.");
+        ExternalLookupBuilder.open(file, Codecs.strings(), Codecs.strings());
+    }
+
+    @Test
+    public void build_resolvesDuplicates() throws IOException {
+        List<CountyCode> source = new ArrayList<CountyCode>(CountyCode.codes);
+        source.addAll(CountyCode.dupCodes);
+
+        Lookup<?> first = codeByStateAndCounty().useFirstOnDuplicate().build(source.iterator(),
+                folder.newFile("f.idx"));
+        Lookup<?> last = codeByStateAndCounty().useLastOnDuplicate().build(source.iterator(), folder.newFile("l.idx"));
+
+        assertThat(((Lookup<?>) first.get("NJ")).get("Mercer"), equalTo((Object) 100));
+        assertThat(((Lookup<?>) last.get("NJ")).get("Mercer"), equalTo((Object) 200));
+    }
+
+    @Test
+    public void build_chokes_onDuplicateByDefault() throws IOException {
+        exception.expect(DuplicateKeyException.class);
+        exception.expectMessage("Duplicated key set NJ, Mercer for object 200 and 100");
+        codeByStateAndCounty().build(CountyCode.dupCodes.iterator(), folder.newFile("d.idx"));
+    }
+
+    @Test
+    public void build_skipsNullKeyAndValue() throws IOException {
+        List<CountyCode> source = new ArrayList<CountyCode>(CountyCode.codes);
+        source.add(CountyCode.DEFAULT);
+
+        Lookup<?> lookup = countyByCode().build(source.iterator(), folder.newFile("c.idx"));
+
+        assertThat(lookup.has(0), is(false));
+    }
+
+    @Test
+    public void build_removesSpillFiles() throws IOException {
+        File temp = folder.newFolder("temp");
+
+        countyByCode().tempDirectory(temp).build(CountyCode.codes.iterator(), folder.newFile("c.idx"));
+
+        assertThat(temp.list().length, is(0));
+    }
+
+    @Test
+    public void get_chokes_onMissingKey() throws IOException {
+        Lookup<?> lookup = countyByCode().build(CountyCode.codes.iterator(), folder.newFile("c.idx"));
+
+        exception.expect(LookupException.class);
+        lookup.get(-1);
+    }
+
+    @Test
+    public void build_replacesIndexFile_keepingOpenLookupReadable() throws IOException {
+        File index = folder.newFile("c.idx");
+        Lookup<?> old = countyByCode().build(CountyCode.codes.iterator(), index);
+
+        Lookup<?> rebuilt = countyByCode().build(CountyCode.dupCodes.iterator(), index);
+
+        assertThat(old.get(1001), equalTo((Object) "Autauga"));
+        assertThat(rebuilt.has(1001), is(false));
+        assertThat(rebuilt.get(100), equalTo((Object) "Mercer"));
+        assertThat(index.getAbsoluteFile().getParentFile().list().length, is(1));
+    }
+
+    @Test
+    public void close_releasesIndexFile() throws IOException {
+        Lookup<?> lookup = countyByCode().build(CountyCode.codes.iterator(), folder.newFile("c.idx"));
+
+        ((Closeable) lookup).close();
+
+        exception.expect(LookupException.class);
+        exception.expectMessage("Index file is closed.");
+        lookup.find(1001);
+    }
+
+    @Test
+    public void build_chokes_withoutKey() throws IOException {
+        exception.expect(IllegalStateException.class);
+        new ExternalLookupBuilder<CountyCode, String>(Codecs.strings(), county, Codecs.strings()).build(
+                CountyCode.codes.iterator(), folder.newFile("c.idx"));
+    }
+
+    @Test
+    public void partitions_chokes_onNonPowerOfTwo() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Argument partitions must be a power of two");
+        countyByCode().partitions(3);
+    }
+}
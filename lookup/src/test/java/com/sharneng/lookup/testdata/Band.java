@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// SUPPRESS CHECKSTYLE FOR TEST CODE
+package com.sharneng.lookup.testdata;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A test class of interval data.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public class Band {
+    public static final Band bandA = new Band(0, 99, "A", "00000", "19999");
+    public static final Band bandB = new Band(100, 499, "B", "20000", "49999");
+    public static final Band bandC = new Band(500, 999, "C", "50000", "99999");
+    public static final List<Band> bands = Arrays.asList(new Band[] { bandB, bandC, bandA });
+
+    public static final Band wide = new Band(50, 149, "W", "10000", "29999");
+    public static final List<Band> overlapping = Arrays.asList(new Band[] { bandA, bandB, wide, bandC });
+
+    private final int low;
+    private final int high;
+    private final String name;
+    private final String from;
+    private final String to;
+
+    public Band(int low, int high, String name, String from, String to) {
+        this.low = low;
+        this.high = high;
+        this.name = name;
+        this.from = from;
+        this.to = to;
+    }
+
+    public int getLow() {
+        return low;
+    }
+
+    public int getHigh() {
+        return high;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
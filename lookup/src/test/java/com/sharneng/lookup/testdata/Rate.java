@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// SUPPRESS CHECKSTYLE FOR TEST CODE
+package com.sharneng.lookup.testdata;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A test class of effective dated data.
+ * 
+ * @author Kenneth Xu
+ * 
+ */
+public class Rate {
+    public static final long DAY = 24L * 60 * 60 * 1000;
+    public static final Rate usd1 = new Rate("USD", 1.0, 0, null);
+    public static final Rate usd2 = new Rate("USD", 1.1, 10 * DAY, 20 * DAY);
+    public static final Rate usd3 = new Rate("USD", 1.2, 30 * DAY, null);
+    public static final Rate eur1 = new Rate("EUR", 0.8, 5 * DAY, 15 * DAY);
+    public static final List<Rate> rates = Arrays.asList(new Rate[] { usd3, eur1, usd1, usd2 });
+
+    public static final Rate usd2Again = new Rate("USD", 1.3, 10 * DAY, null);
+    public static final List<Rate> dupRates = Arrays.asList(new Rate[] { usd1, usd2, usd2Again });
+
+    private final String currency;
+    private final double rate;
+    private final Date effective;
+    private final Date expiry;
+
+    public Rate(String currency, double rate, long effective, Long expiry) {
+        this.currency = currency;
+        this.rate = rate;
+        this.effective = new Date(effective);
+        this.expiry = expiry == null ? null : new Date(expiry);
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Date getEffective() {
+        return effective;
+    }
+
+    public Date getExpiry() {
+        return expiry;
+    }
+
+    @Override
+    public String toString() {
+        return currency + "@" + rate;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2013 Original Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sharneng.lookup.trace;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import com.sharneng.lookup.Layout;
+import com.sharneng.lookup.Lookup;
+import com.sharneng.lookup.LookupException;
+import com.sharneng.lookup.Lookups;
+import com.sharneng.lookup.testdata.CountyCode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TraceRecorderTest {
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private Trace readBack() throws IOException {
+        return Trace.read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void recordedTrace_replaysSameHits() throws Exception {
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).by("code").index();
+        TraceRecorder recorder = new TraceRecorder(bytes, 1);
+        Lookup<CountyCode> traced = recorder.wrap(lookup);
+        int hits = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (traced.find(i) != null) hits++;
+            if (traced.has(-i)) hits++;
+            if (traced.find(i, null) != null) hits++;
+        }
+        try {
+            traced.get(-1);
+        } catch (LookupException e) {
+            // expected
+        }
+        if (traced.hunt(CountyCode.codes.get(0).getCode()) != null) hits++;
+        recorder.close();
+
+        Trace trace = readBack();
+
+        assertThat(recorder.recorded(), is(3002L));
+        assertThat(trace.size(), is(3002));
+        assertThat(trace.skipped(), is(0));
+        assertThat(trace.run(lookup), is(hits));
+        ReplayResult result = trace.replay(Lookups.from(CountyCode.codes).layout(Layout.HASH).by("code").index());
+        assertThat(result.getCalls(), is(3002));
+        assertThat(result.getHits(), is(hits));
+        assertThat(result.getHitRatio(), closeTo((double) hits / 3002, 1e-9));
+    }
+
+    @Test
+    public void recorder_samplesCalls() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(bytes, 10);
+        Lookup<String> traced = recorder.wrap(Lookups.from(CountyCode.codes).select(String.class, "county")
+                .useFirstOnDuplicate().by("state").index());
+        for (int i = 0; i < 1000; i++) {
+            traced.find("Alabama");
+        }
+        recorder.close();
+
+        assertThat(readBack().size(), is(100));
+    }
+
+    @Test
+    public void recorder_encodesKeysCompactly() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(bytes, 1);
+        Lookup<String> traced = recorder.wrap(Lookups.from(CountyCode.codes).select(String.class, "county")
+                .useFirstOnDuplicate().by("state").index());
+        for (int i = 0; i < 1000; i++) {
+            traced.find("Alabama");
+            traced.find(i);
+        }
+        recorder.close();
+
+        assertThat(bytes.size(), lessThan(1000 * 2 + 1000 * 3 + 10));
+        Trace trace = readBack();
+        assertThat(trace.size(), is(2000));
+        assertThat(trace.run(traced), is(1000));
+    }
+
+    @Test
+    public void recorder_keepsKeysOfAllTypes() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(bytes, 1);
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(Long.MIN_VALUE, 1);
+        map.put((short) -3, 2);
+        map.put((byte) 7, 3);
+        map.put(new BigDecimal("1.5"), 4);
+        map.put("\u4e2d\u6587", 5);
+        Lookup<Object> lookup = Lookups.create(map);
+        Lookup<Object> traced = recorder.wrap(lookup);
+        traced.find(Long.MIN_VALUE);
+        traced.find((short) -3);
+        traced.find((byte) 7);
+        traced.find(new BigDecimal("1.5"));
+        traced.find("\u4e2d\u6587");
+        traced.find(null);
+        traced.find(new Object());
+        recorder.close();
+
+        Trace trace = readBack();
+
+        assertThat(trace.size(), is(6));
+        assertThat(trace.skipped(), is(1));
+        assertThat(trace.run(lookup), is(5));
+    }
+
+    @Test
+    public void recorder_recordsActualOperations() throws Exception {
+        Lookup<CountyCode> lookup = Lookups.from(CountyCode.codes).by("code").index();
+        TraceRecorder recorder = new TraceRecorder(bytes, 1);
+        Lookup<CountyCode> traced = recorder.wrap(lookup);
+        CountyCode other = CountyCode.codes.get(1);
+        traced.find(1001);
+        traced.find(1001, other);
+        traced.get(1001);
+        traced.get(-1, other);
+        traced.has(1001);
+        traced.hunt(1001);
+        recorder.close();
+
+        Trace trace = readBack();
+
+        assertThat(trace.op(0), is(TraceFormat.FIND));
+        assertThat(trace.op(1), is(TraceFormat.FIND_DEFAULT));
+        assertThat(trace.op(2), is(TraceFormat.GET));
+        assertThat(trace.op(3), is(TraceFormat.GET_DEFAULT));
+        assertThat(trace.op(4), is(TraceFormat.HAS));
+        assertThat(trace.op(5), is(TraceFormat.HUNT));
+        assertThat(trace.run(lookup), is(5));
+    }
+
+    @Test
+    public void flush_writesSampledCalls() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(bytes, 1);
+        Lookup<CountyCode> traced = recorder.wrap(Lookups.from(CountyCode.codes).by("code").index());
+        for (int i = 0; i < 100; i++) {
+            traced.find(i);
+        }
+        recorder.flush();
+
+        assertThat(readBack().size(), is(100));
+        assertThat(recorder.recorded(), is(100L));
+        assertThat(recorder.dropped(), is(0L));
+        recorder.close();
+    }
+
+    @Test
+    public void read_skipsKeysOfClassesNotAccepted() throws Exception {
+        TraceRecorder recorder = new TraceRecorder(bytes, 1);
+        Lookup<Object> traced = recorder.wrap(Lookups.create(new HashMap<Object, Object>()));
+        traced.find(new ArrayList<Integer>(Arrays.asList(1, 2)));
+        traced.find(new BigDecimal("1.5"));
+        recorder.close();
+
+        Trace trace = readBack();
+        assertThat(trace.size(), is(1));
+        assertThat(trace.skipped(), is(1));
+
+        trace = Trace.read(new ByteArrayInputStream(bytes.toByteArray()), ArrayList.class);
+        assertThat(trace.size(), is(2));
+        assertThat(trace.skipped(), is(0));
+    }
+
+    @Test
+    public void read_chokesOnNonTrace() throws Exception {
+        exception.expect(IOException.class);
+        exception.expectMessage("Not a lookup trace");
+
+        Trace.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 }));
+    }
+
+    @Test
+    public void recorder_chokesOnNonPositiveSampleInterval() throws Exception {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("sampleInterval");
+
+        new TraceRecorder(bytes, 0);
+    }
+}